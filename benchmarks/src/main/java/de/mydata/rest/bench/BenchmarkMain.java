@@ -0,0 +1,46 @@
+package de.mydata.rest.bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Runs JMH with its usual options and writes the results as json to <code>jmh-result-&lt;time&gt;.json</code>
+ * unless <code>-rf</code>/<code>-rff</code> are given. Compare two runs with any JMH result viewer or by the
+ * <code>primaryMetric.score</code> of the benchmarks.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+public final class BenchmarkMain {
+
+	private BenchmarkMain() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions    commandLine = new CommandLineOptions(args);
+		ChainedOptionsBuilder options     = new OptionsBuilder().parent(commandLine);
+		if(!commandLine.getResultFormat().hasValue()) {
+			options.resultFormat(ResultFormatType.JSON);
+		}
+		if(!commandLine.getResult().hasValue()) {
+			String time = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+			String file = "jmh-result-" + time + "." + (commandLine.getResultFormat().hasValue()
+			                                            ? commandLine.getResultFormat().get().name().toLowerCase(Locale.ROOT)
+			                                            : "json");
+			options.result(new File(file).getAbsolutePath());
+		}
+		if(commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+		   || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+		new Runner(options.build()).run();
+	}
+}
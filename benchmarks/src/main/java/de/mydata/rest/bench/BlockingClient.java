@@ -0,0 +1,30 @@
+package de.mydata.rest.bench;
+
+import de.mydata.rest.bench.service.Reply;
+import de.mydata.rest.server.JettyRestServer;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Client side of {@link de.mydata.rest.bench.service.BlockingService}.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+public interface BlockingClient extends JettyRestServer.IRestService {
+
+	@GET
+	@Path("/ping")
+	@Produces(MediaType.TEXT_PLAIN)
+	@Override
+	boolean ping();
+
+	@GET
+	@Path("/wait/{millis}")
+	@Produces(MediaType.APPLICATION_JSON)
+	CompletableFuture<Reply> waitFor(@PathParam("millis") long millis);
+}
@@ -0,0 +1,95 @@
+package de.mydata.rest.bench;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import de.mydata.http.JsonCodecRegistry;
+import de.mydata.http.RestRequest.StringConverter;
+import de.mydata.http.RestResponse;
+import de.mydata.rest.bench.service.Item;
+import de.mydata.rest.bench.service.SampleService;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of response bodies in memory, without network, across payload sizes.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DecodeBenchmark {
+
+	private static final TypeReference<List<Item>> ITEMS = new TypeReference<List<Item>>() {
+	};
+
+	/**
+	 * Items of the json body, numbers of the text body
+	 */
+	@Param({"10", "1000", "100000"})
+	public int size;
+
+	private byte[] json;
+	private String jsonText;
+	private byte[] numbers;
+	private String numbersText;
+
+	@Setup
+	public void createPayloads() throws IOException {
+		json = JsonCodecRegistry.getInstance().writerFor(ITEMS).writeValueAsBytes(SampleService.createItems(size));
+		jsonText = new String(json, StandardCharsets.UTF_8);
+		numbersText = SampleService.createNumbers(size);
+		numbers = numbersText.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static HttpResponse response(byte[] body) {
+		HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+		response.setEntity(new ByteArrayEntity(body));
+		return response;
+	}
+
+	@Benchmark
+	public List<Item> readObject() throws IOException {
+		return RestResponse.readObject(response(json), ITEMS);
+	}
+
+	@Benchmark
+	public List<Item> stringConverterToJson() {
+		return StringConverter.toJson(jsonText, ITEMS);
+	}
+
+	@Benchmark
+	public int[] readIntegerArray() throws IOException {
+		return RestResponse.readIntegerArray(response(numbers));
+	}
+
+	@Benchmark
+	public int[] stringConverterToIntegerArray() {
+		return StringConverter.toIntegerArray(numbersText);
+	}
+
+	@Benchmark
+	public String[] stringConverterToStringArray() {
+		return StringConverter.toStringArray(numbersText);
+	}
+}
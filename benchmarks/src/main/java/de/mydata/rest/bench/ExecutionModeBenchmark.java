@@ -0,0 +1,105 @@
+package de.mydata.rest.bench;
+
+import de.mydata.http.RestAsyncClientEngine;
+import de.mydata.rest.bench.service.BlockingService;
+import de.mydata.rest.bench.service.Reply;
+import de.mydata.rest.client.RestConnection;
+import de.mydata.rest.server.JettyRestServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pooled against virtual thread execution of blocking resources. One operation sends {@link #requests} requests at
+ * once, each blocks {@link #blockMillis} on the server, and waits for all replies. With the default pool of 200
+ * threads the pooled mode needs about <code>requests / 200 * blockMillis</code>, the virtual mode about
+ * <code>blockMillis</code> plus overhead. Short block times mostly measure the client, keep them long enough that
+ * the server is the limit.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ExecutionModeBenchmark {
+
+	public enum ExecutionMode {
+		POOLED,
+		VIRTUAL
+	}
+
+	private static final int PORT = 18480;
+
+	@Param({"POOLED", "VIRTUAL"})
+	public ExecutionMode mode;
+
+	@Param({"1000", "5000"})
+	public int requests;
+
+	@Param({"500"})
+	public long blockMillis;
+
+	private JettyRestServer                server;
+	private RestAsyncClientEngine          engine;
+	private RestConnection<BlockingClient> connection;
+
+	@Setup(Level.Trial)
+	public void start() throws Exception {
+		JettyRestServer.ServerConfigFactory config = JettyRestServer.configure(PORT)
+		                                                            .setAcceptQueueSize(requests);
+		if(mode == ExecutionMode.VIRTUAL) {
+			config.useVirtualThreads();
+		}
+		server = new JettyRestServer(config, false, BlockingService.class.getPackage().getName());
+		server.start();
+
+		engine = RestAsyncClientEngine.configure()
+		                              .setMaxConnectionsPerDestination(requests)
+		                              .setRequestTimeout(TimeUnit.MINUTES.toMillis(2))
+		                              .commit();
+		connection = RestConnection.consumeAsync(engine, "http://localhost", PORT, "/blocking", BlockingClient.class);
+	}
+
+	@TearDown(Level.Trial)
+	public void stop() throws Exception {
+		engine.close();
+		server.stop();
+	}
+
+	@Benchmark
+	public int concurrentBlockingRequests() throws Exception {
+		BlockingClient         client  = connection.getService();
+		CompletableFuture<?>[]    replies = new CompletableFuture<?>[requests];
+		for (int i = 0; i < requests; i++) {
+			replies[i] = client.waitFor(blockMillis);
+		}
+		CompletableFuture.allOf(replies).get(2, TimeUnit.MINUTES);
+
+		int answered = 0;
+		for (CompletableFuture<?> reply : replies) {
+			if(reply.get() instanceof Reply) {
+				answered++;
+			}
+		}
+		if(answered != requests) {
+			throw new IllegalStateException(String.format("%d of %d requests failed", requests - answered, requests));
+		}
+		return answered;
+	}
+}
@@ -0,0 +1,80 @@
+package de.mydata.rest.bench;
+
+import de.mydata.http.RestClientEngine;
+import de.mydata.http.RestRequest;
+import de.mydata.http.RestResponse;
+import de.mydata.log.Log;
+import de.mydata.rest.bench.service.Item;
+import de.mydata.rest.bench.service.SampleService;
+import de.mydata.rest.client.RestConnection;
+import de.mydata.rest.server.JettyRestServer;
+import org.apache.http.HttpResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.ws.rs.core.MediaType;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of a {@link RestConnection} proxy call: the same request through the proxy and written by hand with the
+ * same engine. The difference is the proxy, i.e. plan lookup, url building, instrumentation and listeners.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ProxyInvocationBenchmark {
+
+	private static final int PORT = 18482;
+
+	private JettyRestServer              server;
+	private RestClientEngine             engine;
+	private RestConnection<SampleClient> connection;
+	private SampleClient                 proxy;
+	private String                       itemUrl;
+	private long                         id;
+
+	@Setup(Level.Trial)
+	public void start() throws Exception {
+		Log.setLevel(de.mydata.log.Level.WARN);
+		server = new JettyRestServer(JettyRestServer.configure(PORT), false, SampleService.class.getPackage().getName());
+		server.start();
+
+		engine = RestClientEngine.configure().commit();
+		connection = RestConnection.consume(engine, "http://localhost", PORT, "/sample", SampleClient.class);
+		proxy = connection.getService();
+		itemUrl = "http://localhost:" + PORT + "/sample/item/";
+	}
+
+	@TearDown(Level.Trial)
+	public void stop() throws Exception {
+		engine.close();
+		server.stop();
+	}
+
+	@Benchmark
+	public Item proxy() {
+		return proxy.item(++id);
+	}
+
+	@Benchmark
+	public Item direct() throws IOException, ClassNotFoundException {
+		HttpResponse response = RestRequest.doRequestOrNull(engine, RestRequest.GET.request(itemUrl + (++id), MediaType.APPLICATION_JSON_TYPE));
+		return RestResponse.readObject(response, Item.class);
+	}
+}
@@ -0,0 +1,35 @@
+package de.mydata.rest.bench;
+
+import de.mydata.rest.bench.service.Item;
+import de.mydata.rest.server.JettyRestServer;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import java.util.List;
+
+/**
+ * Client side of {@link de.mydata.rest.bench.service.SampleService}.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+public interface SampleClient extends JettyRestServer.IRestService {
+
+	@GET
+	@Path("/ping")
+	@Produces(MediaType.TEXT_PLAIN)
+	@Override
+	boolean ping();
+
+	@GET
+	@Path("/item/{id}")
+	@Produces(MediaType.APPLICATION_JSON)
+	Item item(@PathParam("id") long id);
+
+	@GET
+	@Path("/items/{count}")
+	@Produces(MediaType.APPLICATION_JSON)
+	List<Item> items(@PathParam("count") int count);
+}
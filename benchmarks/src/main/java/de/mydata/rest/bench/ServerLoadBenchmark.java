@@ -0,0 +1,91 @@
+package de.mydata.rest.bench;
+
+import de.mydata.http.RestClientEngine;
+import de.mydata.log.Log;
+import de.mydata.rest.bench.service.SampleService;
+import de.mydata.rest.server.JettyRestServer;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency distribution of an embedded server under concurrent load. Every benchmark thread is a
+ * client with an own pooled connection, the raw body is read but not decoded, so the numbers are the server's. Change
+ * the load with <code>-t</code>.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(16)
+@Fork(1)
+public class ServerLoadBenchmark {
+
+	private static final int PORT = 18481;
+
+	/**
+	 * Items in a json response
+	 */
+	@Param({"1", "100"})
+	public int items;
+
+	@Param({"false", "true"})
+	public boolean compression;
+
+	private JettyRestServer  server;
+	private RestClientEngine engine;
+	private String           itemsUrl;
+
+	@Setup(Level.Trial)
+	public void start() throws Exception {
+		Log.setLevel(de.mydata.log.Level.WARN);
+		JettyRestServer.ServerConfigFactory config = JettyRestServer.configure(PORT);
+		if(compression) {
+			config.enableCompression();
+		}
+		server = new JettyRestServer(config, false, SampleService.class.getPackage().getName());
+		server.start();
+
+		engine = RestClientEngine.configure()
+		                         .setCompression(compression)
+		                         .commit();
+		itemsUrl = "http://localhost:" + PORT + "/sample/items/" + items;
+	}
+
+	@TearDown(Level.Trial)
+	public void stop() throws Exception {
+		engine.close();
+		server.stop();
+	}
+
+	@Benchmark
+	public int json() throws IOException {
+		HttpResponse response = engine.execute(new HttpGet(itemsUrl));
+		// reading to the end hands the connection back to the pool
+		byte[] body = EntityUtils.toByteArray(response.getEntity());
+		if(response.getStatusLine().getStatusCode() != 200) {
+			throw new IllegalStateException(itemsUrl + " answered " + response.getStatusLine());
+		}
+		return body.length;
+	}
+}
@@ -0,0 +1,63 @@
+package de.mydata.rest.bench;
+
+import de.mydata.log.Log;
+import de.mydata.rest.bench.service.SampleService;
+import de.mydata.rest.server.JettyRestServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of the {@link JettyRestServer} constructor, i.e. service discovery and the jersey setup, not the start of
+ * the connectors. {@link #coldStart()} runs once per fresh jvm, like a deployment does, {@link #warmStart()} repeats
+ * it in one jvm.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StartupBenchmark {
+
+	private static final int PORT = 18483;
+
+	@Param({"1", "4"})
+	public int discoveryParallelism;
+
+	@Setup(Level.Trial)
+	public void quiet() {
+		Log.setLevel(de.mydata.log.Level.WARN);
+	}
+
+	@Benchmark
+	@Warmup(iterations = 0)
+	@Measurement(iterations = 1)
+	@Fork(10)
+	public JettyRestServer coldStart() {
+		return create();
+	}
+
+	@Benchmark
+	@Warmup(iterations = 10)
+	@Measurement(iterations = 20)
+	@Fork(1)
+	public JettyRestServer warmStart() {
+		return create();
+	}
+
+	private JettyRestServer create() {
+		return new JettyRestServer(JettyRestServer.configure(PORT).setDiscoveryParallelism(discoveryParallelism),
+		                           false, SampleService.class.getPackage().getName());
+	}
+}
@@ -0,0 +1,85 @@
+package de.mydata.rest.bench;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import de.mydata.http.JsonCodecRegistry;
+import de.mydata.http.RestResponse;
+import de.mydata.http.WireFormat;
+import de.mydata.rest.bench.service.Item;
+import de.mydata.rest.bench.service.SampleService;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of the same items in each {@link WireFormat}, in memory. The payload size of each format
+ * is printed at the start of a trial.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WireFormatBenchmark {
+
+	private static final TypeReference<List<Item>> ITEMS = new TypeReference<List<Item>>() {
+	};
+
+	@Param({"JSON", "SMILE", "CBOR"})
+	public WireFormat format;
+
+	@Param({"10", "1000", "100000"})
+	public int size;
+
+	private JsonCodecRegistry codecs;
+	private List<Item>        items;
+	private byte[]            payload;
+
+	@Setup
+	public void createPayload() throws IOException {
+		codecs = JsonCodecRegistry.getInstance(format);
+		items = SampleService.createItems(size);
+		payload = codecs.writerFor(ITEMS).writeValueAsBytes(items);
+		int json = JsonCodecRegistry.getInstance().writerFor(ITEMS).writeValueAsBytes(items).length;
+		System.out.printf("%n%s payload of %d items: %d bytes, %.0f%% of json%n", format, size, payload.length, 100.0 * payload.length / json);
+	}
+
+	/**
+	 * Like the server writing into the response stream
+	 */
+	@Benchmark
+	public int encode() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length);
+		codecs.writerFor(ITEMS).writeValue(out, items);
+		return out.size();
+	}
+
+	/**
+	 * Like the client reading the entity stream
+	 */
+	@Benchmark
+	public List<Item> decode() throws IOException {
+		HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+		response.setEntity(new ByteArrayEntity(payload));
+		return RestResponse.readObject(response, codecs.readerFor(ITEMS));
+	}
+}
@@ -0,0 +1,34 @@
+package de.mydata.rest.bench.service;
+
+import de.mydata.rest.server.JettyRestServer;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Stands in for a resource waiting for a database or another service.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+@Path("/blocking")
+public class BlockingService implements JettyRestServer.IRestService {
+
+	@GET
+	@Path("/ping")
+	@Produces(MediaType.TEXT_PLAIN)
+	@Override
+	public boolean ping() {
+		return true;
+	}
+
+	@GET
+	@Path("/wait/{millis}")
+	@Produces(MediaType.APPLICATION_JSON)
+	public Reply waitFor(@PathParam("millis") long millis) throws InterruptedException {
+		Thread.sleep(millis);
+		return new Reply(millis, Thread.currentThread().getName());
+	}
+}
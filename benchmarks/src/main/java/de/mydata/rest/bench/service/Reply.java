@@ -0,0 +1,34 @@
+package de.mydata.rest.bench.service;
+
+/**
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+public class Reply {
+
+	private long   millis;
+	private String thread;
+
+	public Reply() {
+	}
+
+	public Reply(long millis, String thread) {
+		this.millis = millis;
+		this.thread = thread;
+	}
+
+	public long getMillis() {
+		return millis;
+	}
+
+	public void setMillis(long millis) {
+		this.millis = millis;
+	}
+
+	public String getThread() {
+		return thread;
+	}
+
+	public void setThread(String thread) {
+		this.thread = thread;
+	}
+}
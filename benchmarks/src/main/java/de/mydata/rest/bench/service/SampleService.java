@@ -0,0 +1,71 @@
+package de.mydata.rest.bench.service;
+
+import de.mydata.rest.server.JettyRestServer;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resources without any work of their own, so the benchmarks measure the server and the client.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+@Path("/sample")
+public class SampleService implements JettyRestServer.IRestService {
+
+	@GET
+	@Path("/ping")
+	@Produces(MediaType.TEXT_PLAIN)
+	@Override
+	public boolean ping() {
+		return true;
+	}
+
+	@GET
+	@Path("/item/{id}")
+	@Produces(MediaType.APPLICATION_JSON)
+	public Item item(@PathParam("id") long id) {
+		return new Item(id, "item " + id, id * 0.5);
+	}
+
+	@GET
+	@Path("/items/{count}")
+	@Produces(MediaType.APPLICATION_JSON)
+	public List<Item> items(@PathParam("count") int count) {
+		return createItems(count);
+	}
+
+	@GET
+	@Path("/numbers/{count}")
+	@Produces(MediaType.TEXT_PLAIN)
+	public String numbers(@PathParam("count") int count) {
+		return createNumbers(count);
+	}
+
+	public static List<Item> createItems(int count) {
+		List<Item> items = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			items.add(new Item(i, "item " + i, i * 0.5));
+		}
+		return items;
+	}
+
+	/**
+	 * @return comma separated numbers, as {@link de.mydata.http.RestRequest.StringConverter} parses them
+	 */
+	public static String createNumbers(int count) {
+		StringBuilder text = new StringBuilder(count * 8);
+		for (int i = 0; i < count; i++) {
+			if(i > 0) {
+				text.append(", ");
+			}
+			text.append(i * 31);
+		}
+		return text.toString();
+	}
+}
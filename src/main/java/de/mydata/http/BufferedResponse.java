@@ -0,0 +1,76 @@
+package de.mydata.http;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Status, headers and the whole body of a response, independent of the engine that received it.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+public final class BufferedResponse {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final int                 status;
+    private final Map<String, String> headers;
+    private final byte[]              content;
+
+    private BufferedResponse(int status, Map<String, String> headers, byte[] content) {
+        this.status = status;
+        this.headers = Collections.unmodifiableMap(headers);
+        this.content = content == null
+                       ? EMPTY
+                       : content;
+    }
+
+    /**
+     * Reads the body to the end, which hands the connection back to the pool.
+     */
+    public static BufferedResponse read(HttpResponse response) throws IOException {
+        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Header header : response.getAllHeaders()) {
+            headers.merge(header.getName(), header.getValue(), (first, next) -> first + ", " + next);
+        }
+        HttpEntity entity = response.getEntity();
+        return new BufferedResponse(response.getStatusLine().getStatusCode(), headers, entity == null
+                                                                                       ? null
+                                                                                       : EntityUtils.toByteArray(entity));
+    }
+
+    static BufferedResponse of(int status, HttpFields fields, byte[] content) {
+        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (HttpField field : fields) {
+            headers.merge(field.getName(), field.getValue(), (first, next) -> first + ", " + next);
+        }
+        return new BufferedResponse(status, headers, content);
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the value, repeated headers joined by comma, or <code>null</code>
+     */
+    public String getHeader(String name) {
+        return headers.get(name);
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+}
@@ -0,0 +1,123 @@
+package de.mydata.http;
+
+/**
+ * Timings and sizes of one request, filled by {@link RestClientEngine} and {@link RestAsyncClientEngine} when passed
+ * to them. Phases the engine could not observe stay -1, e.g. pool wait and connect for the async engine, or connect
+ * if a pooled connection was reused (0 then).
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+public final class CallTrace {
+    
+    static final ThreadLocal<CallTrace> CURRENT = new ThreadLocal<>();
+    
+    private final    long start;
+    private volatile long poolWaitNanos;
+    private volatile long connectNanos;
+    private volatile long timeToFirstByteNanos;
+    private volatile long responseNanos;
+    private volatile long bytesSent;
+    private volatile long bytesReceived;
+    private volatile int  status;
+    
+    public CallTrace() {
+        start = System.nanoTime();
+        poolWaitNanos = -1;
+        connectNanos = -1;
+        timeToFirstByteNanos = -1;
+        responseNanos = -1;
+        status = -1;
+    }
+    
+    static CallTrace current() {
+        return CURRENT.get();
+    }
+    
+    void poolWait(long nanos) {
+        poolWaitNanos = nanos;
+        if(connectNanos < 0) {
+            // reused connection, overwritten if a new one is opened
+            connectNanos = 0;
+        }
+    }
+    
+    void connect(long nanos) {
+        connectNanos = nanos;
+    }
+    
+    void timeToFirstByte(long nanos) {
+        timeToFirstByteNanos = nanos;
+    }
+    
+    /**
+     * The response is complete, before it is decoded
+     */
+    void responded(int status) {
+        this.status = status;
+        responseNanos = System.nanoTime() - start;
+    }
+    
+    void sent(long bytes) {
+        bytesSent += bytes;
+    }
+    
+    void received(long bytes) {
+        bytesReceived += bytes;
+    }
+    
+    /**
+     * @return {@link System#nanoTime()} when the trace was created
+     */
+    public long getStart() {
+        return start;
+    }
+    
+    /**
+     * @return time waiting for a free connection of the pool
+     */
+    public long getPoolWaitNanos() {
+        return poolWaitNanos;
+    }
+    
+    /**
+     * @return time opening a new connection, 0 if a pooled one was reused
+     */
+    public long getConnectNanos() {
+        return connectNanos;
+    }
+    
+    /**
+     * @return time from sending the request until the response head arrived
+     */
+    public long getTimeToFirstByteNanos() {
+        return timeToFirstByteNanos;
+    }
+    
+    /**
+     * @return time from creating the trace until the response status was known
+     */
+    public long getResponseNanos() {
+        return responseNanos;
+    }
+    
+    /**
+     * @return request bytes written, head included, only the body for the async engine
+     */
+    public long getBytesSent() {
+        return bytesSent;
+    }
+    
+    /**
+     * @return response body bytes read, compressed as they came over the wire, inflated for the async engine
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+    
+    /**
+     * @return http status or -1 if no response arrived
+     */
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,65 @@
+package de.mydata.http;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Adds the bytes read from the body to a {@link CallTrace}.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+final class CountingEntity extends HttpEntityWrapper {
+
+    private final CallTrace trace;
+
+    CountingEntity(HttpEntity entity, CallTrace trace) {
+        super(entity);
+        this.trace = trace;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        return new FilterInputStream(wrappedEntity.getContent()) {
+            @Override
+            public int read() throws IOException {
+                int value = super.read();
+                if(value != -1) {
+                    trace.received(1);
+                }
+                return value;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = super.read(buffer, offset, length);
+                if(read > 0) {
+                    trace.received(read);
+                }
+                return read;
+            }
+
+            @Override
+            public long skip(long count) throws IOException {
+                long skipped = super.skip(count);
+                trace.received(skipped);
+                return skipped;
+            }
+        };
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        try (InputStream in = getContent()) {
+            byte[] buffer = new byte[8192];
+            int    read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+}
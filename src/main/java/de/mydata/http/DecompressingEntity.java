@@ -0,0 +1,124 @@
+package de.mydata.http;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.HttpEntityWrapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Inflates a gzip or deflate encoded body while it is read, readers of the entity see the plain body. Deflate is meant
+ * to be zlib wrapped, some servers send raw deflate data, both are read.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+final class DecompressingEntity extends HttpEntityWrapper {
+
+    static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private final boolean gzip;
+
+    private DecompressingEntity(HttpEntity entity, boolean gzip) {
+        super(entity);
+        this.gzip = gzip;
+    }
+
+    /**
+     * Replaces the entity of a compressed response.
+     */
+    static void decompress(HttpResponse response) {
+        HttpEntity entity = response.getEntity();
+        if(entity == null || entity.getContentEncoding() == null) {
+            return;
+        }
+        String encoding = entity.getContentEncoding().getValue().trim();
+        if("gzip".equalsIgnoreCase(encoding) || "x-gzip".equalsIgnoreCase(encoding)) {
+            response.setEntity(new DecompressingEntity(entity, true));
+        } else if("deflate".equalsIgnoreCase(encoding)) {
+            response.setEntity(new DecompressingEntity(entity, false));
+        } else {
+            return;
+        }
+        // the headers describe the compressed body
+        response.removeHeaders("Content-Encoding");
+        response.removeHeaders("Content-Length");
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        InputStream in = wrappedEntity.getContent();
+        return gzip
+               ? new GZIPInputStream(in, 8192)
+               : inflate(in);
+    }
+
+    private static InputStream inflate(InputStream in) throws IOException {
+        PushbackInputStream header = new PushbackInputStream(in, 2);
+        byte[]              start  = new byte[2];
+        int                 read   = 0;
+        int                 n;
+        while (read < 2 && (n = header.read(start, read, 2 - read)) != -1) {
+            read += n;
+        }
+        header.unread(start, 0, read);
+        if(read == 2 && isZlibHeader(start[0] & 0xff, start[1] & 0xff)) {
+            return new InflaterInputStream(header);
+        }
+        Inflater raw = new Inflater(true);
+        return new InflaterInputStream(header, raw) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    // only the default inflater is ended by the stream
+                    raw.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * RFC 1950: compression method 8, the two bytes are a multiple of 31
+     */
+    private static boolean isZlibHeader(int cmf, int flg) {
+        return (cmf & 0x0f) == 8 && ((cmf << 8) | flg) % 31 == 0;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        try (InputStream in = getContent()) {
+            byte[] buffer = new byte[8192];
+            int    read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
+    @Override
+    public Header getContentEncoding() {
+        return null;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    /**
+     * The compressed body is delimited on the wire, by length or chunks. The connection reuse strategy closes
+     * connections of bodies with neither, so claim chunked to keep the connection.
+     */
+    @Override
+    public boolean isChunked() {
+        return wrappedEntity.isChunked() || wrappedEntity.getContentLength() >= 0;
+    }
+}
@@ -0,0 +1,145 @@
+package de.mydata.http;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.lang.reflect.Type;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Process wide json codecs. Readers and writers are created once per type and shared, creating them resolves the
+ * (de)serializers up front, so the first real request does not pay for it.
+ * <p>
+ * Client ({@link RestResponse}, {@link de.mydata.rest.client.RestConnection}) and server
+ * ({@link de.mydata.rest.server.JsonCodecProvider}) use the same instance, one per {@link WireFormat}.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+public final class JsonCodecRegistry {
+
+    private static final Map<WireFormat, JsonCodecRegistry> INSTANCES = new EnumMap<>(WireFormat.class);
+
+    static {
+        for (WireFormat format : WireFormat.values()) {
+            INSTANCES.put(format, new JsonCodecRegistry(format));
+        }
+    }
+
+    private static final JsonCodecRegistry INSTANCE = INSTANCES.get(WireFormat.JSON);
+
+    private final WireFormat                            format;
+    private final ConcurrentMap<JavaType, ObjectReader> readers;
+    private final ConcurrentMap<JavaType, ObjectWriter> writers;
+    private volatile ObjectMapper mapper;
+
+    private JsonCodecRegistry(WireFormat format) {
+        this.format = format;
+        readers = new ConcurrentHashMap<>();
+        writers = new ConcurrentHashMap<>();
+        // the server writes into the response stream, the container closes it
+        mapper = new ObjectMapper(format.createFactory()).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    /**
+     * @return the json codecs
+     */
+    public static JsonCodecRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public static JsonCodecRegistry getInstance(WireFormat format) {
+        return INSTANCES.get(format);
+    }
+
+    /**
+     * Adds a jackson module, e.g. for java.time types, to the codecs of every wire format. Readers and writers
+     * created before are dropped, register your modules at startup to keep the caches warm.
+     */
+    public JsonCodecRegistry registerModule(Module module) {
+        for (JsonCodecRegistry registry : INSTANCES.values()) {
+            registry.addModule(module);
+        }
+        return this;
+    }
+
+    private synchronized void addModule(Module module) {
+        mapper = mapper.copy().registerModule(module);
+        readers.clear();
+        writers.clear();
+    }
+
+    public WireFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Creates readers and writers for the types now instead of on first use.
+     */
+    public JsonCodecRegistry warmUp(Type... types) {
+        for (Type type : types) {
+            JavaType javaType = constructType(type);
+            readerFor(javaType);
+            writerFor(javaType);
+        }
+        return this;
+    }
+
+    /**
+     * @return the mapper the codecs are created from, do not reconfigure it, use {@link #registerModule(Module)}
+     */
+    public ObjectMapper getMapper() {
+        return mapper;
+    }
+
+    public JavaType constructType(Type type) {
+        return mapper.getTypeFactory().constructType(type);
+    }
+
+    public ObjectReader readerFor(Class<?> type) {
+        return readerFor(constructType(type));
+    }
+
+    public ObjectReader readerFor(TypeReference<?> type) {
+        return readerFor(mapper.getTypeFactory().constructType(type));
+    }
+
+    public ObjectReader readerFor(Type type) {
+        return readerFor(constructType(type));
+    }
+
+    public ObjectReader readerFor(JavaType type) {
+        ObjectReader reader = readers.get(type);
+        if(reader == null) {
+            reader = readers.computeIfAbsent(type, mapper::readerFor);
+        }
+        return reader;
+    }
+
+    public ObjectWriter writerFor(Class<?> type) {
+        return writerFor(constructType(type));
+    }
+
+    public ObjectWriter writerFor(TypeReference<?> type) {
+        return writerFor(mapper.getTypeFactory().constructType(type));
+    }
+
+    public ObjectWriter writerFor(Type type) {
+        return writerFor(constructType(type));
+    }
+
+    public ObjectWriter writerFor(JavaType type) {
+        ObjectWriter writer = writers.get(type);
+        if(writer == null) {
+            writer = writers.computeIfAbsent(type, mapper::writerFor);
+        }
+        return writer;
+    }
+}
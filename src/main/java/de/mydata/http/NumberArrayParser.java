@@ -0,0 +1,453 @@
+package de.mydata.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Parses comma separated numbers like <code>1, 2,3</code> in one pass over the input, without substrings or boxing.
+ * Whitespace around an element is ignored, an element that is no valid number becomes 0 and trailing empty elements
+ * are dropped, like {@link RestRequest.StringConverter#toStringArray(String)} does.
+ * <p>
+ * Results go into growable primitive arrays or into a buffer of the caller, which then must have enough room
+ * ({@link java.nio.BufferOverflowException} otherwise).
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+public final class NumberArrayParser {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Powers of ten a double holds exactly.
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private NumberArrayParser() {
+    }
+
+    public static int[] parseInts(CharSequence text) {
+        IntCollector values = new IntCollector();
+        tokenize(text, values);
+        return values.toArray();
+    }
+
+    public static long[] parseLongs(CharSequence text) {
+        LongCollector values = new LongCollector();
+        tokenize(text, values);
+        return values.toArray();
+    }
+
+    public static double[] parseDoubles(CharSequence text) {
+        DoubleCollector values = new DoubleCollector();
+        tokenize(text, values);
+        return values.toArray();
+    }
+
+    /**
+     * @return count of values put into the buffer
+     */
+    public static int parseInts(CharSequence text, IntBuffer target) {
+        int start = target.position();
+        tokenize(text, (seq, from, to) -> target.put(parseInt(seq, from, to)));
+        return target.position() - start;
+    }
+
+    public static int parseLongs(CharSequence text, LongBuffer target) {
+        int start = target.position();
+        tokenize(text, (seq, from, to) -> target.put(parseLong(seq, from, to)));
+        return target.position() - start;
+    }
+
+    public static int parseDoubles(CharSequence text, DoubleBuffer target) {
+        int start = target.position();
+        tokenize(text, (seq, from, to) -> target.put(parseDouble(seq, from, to)));
+        return target.position() - start;
+    }
+
+    /**
+     * Reads ascii text from the position to the limit of the buffer.
+     */
+    public static int[] parseInts(ByteBuffer text) {
+        IntCollector values = new IntCollector();
+        new StreamTokenizer(values).feed(text).finish();
+        return values.toArray();
+    }
+
+    public static long[] parseLongs(ByteBuffer text) {
+        LongCollector values = new LongCollector();
+        new StreamTokenizer(values).feed(text).finish();
+        return values.toArray();
+    }
+
+    public static double[] parseDoubles(ByteBuffer text) {
+        DoubleCollector values = new DoubleCollector();
+        new StreamTokenizer(values).feed(text).finish();
+        return values.toArray();
+    }
+
+    /**
+     * Reads ascii text until the end of the stream, the stream is not closed.
+     */
+    public static int[] parseInts(InputStream in) throws IOException {
+        IntCollector values = new IntCollector();
+        new StreamTokenizer(values).feed(in).finish();
+        return values.toArray();
+    }
+
+    public static long[] parseLongs(InputStream in) throws IOException {
+        LongCollector values = new LongCollector();
+        new StreamTokenizer(values).feed(in).finish();
+        return values.toArray();
+    }
+
+    public static double[] parseDoubles(InputStream in) throws IOException {
+        DoubleCollector values = new DoubleCollector();
+        new StreamTokenizer(values).feed(in).finish();
+        return values.toArray();
+    }
+
+    public static int parseInts(InputStream in, IntBuffer target) throws IOException {
+        int start = target.position();
+        new StreamTokenizer((seq, from, to) -> target.put(parseInt(seq, from, to))).feed(in).finish();
+        return target.position() - start;
+    }
+
+    public static int parseLongs(InputStream in, LongBuffer target) throws IOException {
+        int start = target.position();
+        new StreamTokenizer((seq, from, to) -> target.put(parseLong(seq, from, to))).feed(in).finish();
+        return target.position() - start;
+    }
+
+    public static int parseDoubles(InputStream in, DoubleBuffer target) throws IOException {
+        int start = target.position();
+        new StreamTokenizer((seq, from, to) -> target.put(parseDouble(seq, from, to))).feed(in).finish();
+        return target.position() - start;
+    }
+
+    /**
+     * @return the number or 0 if the range is no int
+     */
+    public static int parseInt(CharSequence seq, int from, int to) {
+        long value = parseLong(seq, from, to);
+        return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE
+               ? 0
+               : (int) value;
+    }
+
+    /**
+     * @return the number or 0 if the range is no long
+     */
+    public static long parseLong(CharSequence seq, int from, int to) {
+        if(from >= to) {
+            return 0;
+        }
+        boolean negative = false;
+        char    first    = seq.charAt(from);
+        if(first == '-' || first == '+') {
+            negative = first == '-';
+            if(++from == to) {
+                return 0;
+            }
+        }
+
+        // accumulate negative, the negative range is one larger
+        long limit = negative
+                     ? Long.MIN_VALUE
+                     : -Long.MAX_VALUE;
+        long multLimit = limit / 10;
+        long result    = 0;
+        for (int i = from; i < to; i++) {
+            int digit = seq.charAt(i) - '0';
+            if(digit < 0 || digit > 9 || result < multLimit) {
+                return 0;
+            }
+            result *= 10;
+            if(result < limit + digit) {
+                return 0;
+            }
+            result -= digit;
+        }
+        return negative
+               ? result
+               : -result;
+    }
+
+    /**
+     * Decimal numbers whose digits fit into 53 bits and with a small exponent are computed exactly without
+     * {@link Double#parseDouble(String)}, everything else (many digits, NaN, hex, ...) falls back to it.
+     *
+     * @return the number or 0 if the range is no double
+     */
+    public static double parseDouble(CharSequence seq, int from, int to) {
+        if(from >= to) {
+            return 0;
+        }
+        int     i        = from;
+        boolean negative = false;
+        char    first    = seq.charAt(i);
+        if(first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+
+        long    mantissa = 0;
+        int     digits   = 0;
+        long    exponent = 0;
+        boolean anyDigit = false;
+        boolean fraction = false;
+        for (; i < to; i++) {
+            char c = seq.charAt(i);
+            if(c >= '0' && c <= '9') {
+                anyDigit = true;
+                if(mantissa == 0 && c == '0') {
+                    // leading zeros are no significant digits
+                    if(fraction) {
+                        exponent--;
+                    }
+                    continue;
+                }
+                if(++digits > 18) {
+                    return parseDoubleSlow(seq, from, to);
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if(fraction) {
+                    exponent--;
+                }
+            } else if(c == '.' && !fraction) {
+                fraction = true;
+            } else if((c == 'e' || c == 'E') && anyDigit) {
+                long exp = parseLong(seq, i + 1, to);
+                if((exp == 0 && !isZero(seq, i + 1, to)) || exp > 1000 || exp < -1000) {
+                    return parseDoubleSlow(seq, from, to);
+                }
+                exponent += exp;
+                i = to;
+                break;
+            } else {
+                return parseDoubleSlow(seq, from, to);
+            }
+        }
+        if(!anyDigit) {
+            return parseDoubleSlow(seq, from, to);
+        }
+
+        double value;
+        if(mantissa == 0) {
+            value = 0;
+        } else if(mantissa <= MAX_EXACT_MANTISSA && exponent >= -22 && exponent <= 22) {
+            value = exponent < 0
+                    ? mantissa / POWERS_OF_TEN[(int) -exponent]
+                    : mantissa * POWERS_OF_TEN[(int) exponent];
+        } else {
+            return parseDoubleSlow(seq, from, to);
+        }
+        return negative
+               ? -value
+               : value;
+    }
+
+    private static boolean isZero(CharSequence seq, int from, int to) {
+        if(from < to && (seq.charAt(from) == '-' || seq.charAt(from) == '+')) {
+            from++;
+        }
+        if(from >= to) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if(seq.charAt(i) != '0') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static double parseDoubleSlow(CharSequence seq, int from, int to) {
+        try {
+            return Double.parseDouble(seq.subSequence(from, to).toString());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void tokenize(CharSequence text, ElementSink sink) {
+        int     pendingEmpty = 0;
+        boolean anyComma     = false;
+        boolean anyElement   = false;
+        int     length       = text.length();
+        int     start        = 0;
+        while (start <= length) {
+            int end = start;
+            while (end < length && text.charAt(end) != ',') {
+                end++;
+            }
+            if(end < length) {
+                anyComma = true;
+            }
+
+            int from = start;
+            int to   = end;
+            while (from < to && isWhitespace(text.charAt(from))) {
+                from++;
+            }
+            while (to > from && isWhitespace(text.charAt(to - 1))) {
+                to--;
+            }
+
+            if(from == to) {
+                pendingEmpty++;
+            } else {
+                for (; pendingEmpty > 0; pendingEmpty--) {
+                    sink.element(text, 0, 0);
+                }
+                sink.element(text, from, to);
+                anyElement = true;
+            }
+            start = end + 1;
+        }
+        if(!anyComma && !anyElement) {
+            sink.element(text, 0, 0);
+        }
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    private interface ElementSink {
+
+        void element(CharSequence seq, int from, int to);
+    }
+
+    /**
+     * Same rules as {@link #tokenize(CharSequence, ElementSink)} for input arriving in chunks. The current element is
+     * copied into a reused builder, so nothing is allocated per element.
+     */
+    private static final class StreamTokenizer {
+
+        private final ElementSink   sink;
+        private final StringBuilder element;
+        private       int           pendingEmpty;
+        private       boolean       anyComma;
+        private       boolean       anyElement;
+
+        private StreamTokenizer(ElementSink sink) {
+            this.sink = sink;
+            this.element = new StringBuilder(32);
+        }
+
+        private StreamTokenizer feed(InputStream in) throws IOException {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int    read;
+            while ((read = in.read(buffer)) >= 0) {
+                for (int i = 0; i < read; i++) {
+                    accept((char) (buffer[i] & 0xFF));
+                }
+            }
+            return this;
+        }
+
+        private StreamTokenizer feed(ByteBuffer text) {
+            for (int i = text.position(); i < text.limit(); i++) {
+                accept((char) (text.get(i) & 0xFF));
+            }
+            return this;
+        }
+
+        private void accept(char c) {
+            if(c == ',') {
+                anyComma = true;
+                endElement();
+            } else if(element.length() > 0 || !isWhitespace(c)) {
+                element.append(c);
+            }
+        }
+
+        private void endElement() {
+            int to = element.length();
+            while (to > 0 && isWhitespace(element.charAt(to - 1))) {
+                to--;
+            }
+            if(to == 0) {
+                pendingEmpty++;
+            } else {
+                for (; pendingEmpty > 0; pendingEmpty--) {
+                    sink.element(element, 0, 0);
+                }
+                sink.element(element, 0, to);
+                anyElement = true;
+            }
+            element.setLength(0);
+        }
+
+        private void finish() {
+            endElement();
+            if(!anyComma && !anyElement) {
+                sink.element(element, 0, 0);
+            }
+        }
+    }
+
+    private static final class IntCollector implements ElementSink {
+
+        private int[] values = new int[16];
+        private int   size;
+
+        @Override
+        public void element(CharSequence seq, int from, int to) {
+            if(size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+            }
+            values[size++] = parseInt(seq, from, to);
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static final class LongCollector implements ElementSink {
+
+        private long[] values = new long[16];
+        private int    size;
+
+        @Override
+        public void element(CharSequence seq, int from, int to) {
+            if(size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+            }
+            values[size++] = parseLong(seq, from, to);
+        }
+
+        private long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static final class DoubleCollector implements ElementSink {
+
+        private double[] values = new double[16];
+        private int      size;
+
+        @Override
+        public void element(CharSequence seq, int from, int to) {
+            if(size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+            }
+            values[size++] = parseDouble(seq, from, to);
+        }
+
+        private double[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package de.mydata.http;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.client.util.BufferingResponseListener;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http2.client.HTTP2Client;
+import org.eclipse.jetty.http2.client.http.HttpClientTransportOverHTTP2;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import javax.ws.rs.core.MediaType;
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static javax.ws.rs.core.Response.Status.OK;
+
+/**
+ * Non blocking http client based on jetty's NIO client. Requests complete on the selector and a small worker pool,
+ * so no thread is bound to an outstanding request. Jetty asks for gzip encoded responses and inflates them itself.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+public class RestAsyncClientEngine implements Closeable {
+
+    private static volatile RestAsyncClientEngine defaultEngine;
+
+    private final HttpClient    client;
+    private final long          requestTimeout;
+    private final int           maxResponseSize;
+    private final AtomicInteger inFlight;
+
+    private RestAsyncClientEngine(AsyncEngineConfigFactory config) {
+        QueuedThreadPool executor = new QueuedThreadPool(config.maxThreads, Math.min(2, config.maxThreads));
+        executor.setName("rest-client-async");
+        executor.setDaemon(true);
+
+        client = config.http2
+                 ? new HttpClient(createHttp2Transport(config), new SslContextFactory.Client())
+                 : new HttpClient(new SslContextFactory.Client());
+        client.setExecutor(executor);
+        client.setMaxConnectionsPerDestination(config.maxConnectionsPerDestination);
+        client.setMaxRequestsQueuedPerDestination(config.maxRequestsQueuedPerDestination);
+        client.setConnectTimeout(config.connectTimeout);
+        client.setIdleTimeout(config.idleTimeout);
+        client.setTCPNoDelay(true);
+        requestTimeout = config.requestTimeout;
+        maxResponseSize = config.maxResponseSize;
+        inFlight = new AtomicInteger();
+        try {
+            client.start();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * h2 over https (ALPN) and h2c with prior knowledge over http, all requests to a server share one connection.
+     */
+    private static HttpClientTransportOverHTTP2 createHttp2Transport(AsyncEngineConfigFactory config) {
+        HTTP2Client http2Client = new HTTP2Client();
+        http2Client.setSelectors(1);
+        if(config.initialSessionWindow >= 0) {
+            http2Client.setInitialSessionRecvWindow(config.initialSessionWindow);
+        }
+        if(config.initialStreamWindow >= 0) {
+            http2Client.setInitialStreamRecvWindow(config.initialStreamWindow);
+        }
+        return new HttpClientTransportOverHTTP2(http2Client);
+    }
+
+    public static AsyncEngineConfigFactory configure() {
+        return new AsyncEngineConfigFactory();
+    }
+
+    public static RestAsyncClientEngine getDefault() {
+        RestAsyncClientEngine engine = defaultEngine;
+        if(engine == null) {
+            synchronized (RestAsyncClientEngine.class) {
+                engine = defaultEngine;
+                if(engine == null) {
+                    defaultEngine = engine = configure().commit();
+                }
+            }
+        }
+        return engine;
+    }
+
+    public static void setDefault(RestAsyncClientEngine engine) {
+        synchronized (RestAsyncClientEngine.class) {
+            defaultEngine = engine;
+        }
+    }
+
+    /**
+     * Sends a GET request. The future completes with the body, with <code>null</code> if the status is not 200 (see
+     * {@link RestRequest#doRequestOrNull}) or exceptionally if the request failed.
+     */
+    public CompletableFuture<String> getRequestText(String url, MediaType responseType) {
+        return get(url, responseType, null, listener -> listener.getContentAsString("UTF-8"));
+    }
+
+    /**
+     * Like {@link #getRequestText(String, MediaType)}, but hands out the raw body to decode it without a string copy.
+     */
+    public CompletableFuture<byte[]> getRequestContent(String url, MediaType responseType) {
+        return get(url, responseType, null, BufferingResponseListener::getContent);
+    }
+
+    /**
+     * @param trace filled with the time to the response head and the body bytes, jetty hands them out inflated
+     */
+    public CompletableFuture<byte[]> getRequestContent(String url, MediaType responseType, CallTrace trace) {
+        return get(url, responseType, trace, BufferingResponseListener::getContent);
+    }
+
+    private <T> CompletableFuture<T> get(String url, MediaType responseType, CallTrace trace, Function<BufferingResponseListener, T> content) {
+        CompletableFuture<T> future  = new CompletableFuture<>();
+        Request              request = newRequest(url, responseType, trace);
+        inFlight.incrementAndGet();
+        request.send(new BufferingResponseListener(maxResponseSize) {
+            @Override
+            public void onComplete(Result result) {
+                inFlight.decrementAndGet();
+                if(result.isFailed()) {
+                    future.completeExceptionally(result.getFailure());
+                } else if(result.getResponse().getStatus() != OK.getStatusCode()) {
+                    future.complete(null);
+                } else {
+                    future.complete(content.apply(this));
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Sends a GET request with additional headers, e.g. conditional ones. Unlike the other methods, the future
+     * completes with the response of any status.
+     *
+     * @param trace may be <code>null</code>
+     */
+    public CompletableFuture<BufferedResponse> getResponse(String url, MediaType responseType, Map<String, String> headers, CallTrace trace) {
+        CompletableFuture<BufferedResponse> future  = new CompletableFuture<>();
+        Request                             request = newRequest(url, responseType, trace);
+        headers.forEach(request::header);
+        inFlight.incrementAndGet();
+        request.send(new BufferingResponseListener(maxResponseSize) {
+            @Override
+            public void onComplete(Result result) {
+                inFlight.decrementAndGet();
+                if(result.isFailed()) {
+                    future.completeExceptionally(result.getFailure());
+                } else {
+                    future.complete(BufferedResponse.of(result.getResponse().getStatus(), result.getResponse().getHeaders(), getContent()));
+                }
+            }
+        });
+        return future;
+    }
+
+    private Request newRequest(String url, MediaType responseType, CallTrace trace) {
+        Request request = client.newRequest(url)
+                                .header(HttpHeader.CONTENT_TYPE, responseType.withCharset("UTF-8").toString())
+                                .timeout(requestTimeout, TimeUnit.MILLISECONDS);
+        if(trace != null) {
+            trace(request, trace);
+        }
+        return request;
+    }
+
+    private static void trace(Request request, CallTrace trace) {
+        long[] sendStart = new long[1];
+        request.onRequestBegin(sent -> sendStart[0] = System.nanoTime())
+               .onRequestContent((sent, buffer) -> trace.sent(buffer.remaining()))
+               .onResponseBegin(response -> {
+                   trace.timeToFirstByte(System.nanoTime() - sendStart[0]);
+                   trace.responded(response.getStatus());
+               })
+               .onResponseContent((response, buffer) -> trace.received(buffer.remaining()));
+    }
+
+    /**
+     * @return requests sent and not yet completed
+     */
+    public int getRequestsInFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public void close() {
+        try {
+            client.stop();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static final class AsyncEngineConfigFactory {
+
+        private int     maxThreads;
+        private int     maxConnectionsPerDestination;
+        private int     maxRequestsQueuedPerDestination;
+        private int     maxResponseSize;
+        private long    connectTimeout;
+        private long    idleTimeout;
+        private long    requestTimeout;
+        private boolean http2;
+        private int     initialSessionWindow;
+        private int     initialStreamWindow;
+
+        private AsyncEngineConfigFactory() {
+            maxThreads = 8;
+            maxConnectionsPerDestination = 64;
+            maxRequestsQueuedPerDestination = 16384;
+            maxResponseSize = 16 * 1024 * 1024;
+            connectTimeout = 5000;
+            idleTimeout = 30000;
+            requestTimeout = 30000;
+            http2 = false;
+            initialSessionWindow = -1;
+            initialStreamWindow = -1;
+        }
+
+        /**
+         * @param maxThreads threads for selectors and completion callbacks, not per request
+         */
+        public AsyncEngineConfigFactory setMaxThreads(int maxThreads) {
+            this.maxThreads = maxThreads;
+            return this;
+        }
+
+        public AsyncEngineConfigFactory setMaxConnectionsPerDestination(int maxConnections) {
+            this.maxConnectionsPerDestination = maxConnections;
+            return this;
+        }
+
+        /**
+         * @param maxQueued requests waiting for a connection, more are rejected
+         */
+        public AsyncEngineConfigFactory setMaxRequestsQueuedPerDestination(int maxQueued) {
+            this.maxRequestsQueuedPerDestination = maxQueued;
+            return this;
+        }
+
+        public AsyncEngineConfigFactory setMaxResponseSize(int bytes) {
+            this.maxResponseSize = bytes;
+            return this;
+        }
+
+        public AsyncEngineConfigFactory setConnectTimeout(long millis) {
+            this.connectTimeout = millis;
+            return this;
+        }
+
+        public AsyncEngineConfigFactory setIdleTimeout(long millis) {
+            this.idleTimeout = millis;
+            return this;
+        }
+
+        public AsyncEngineConfigFactory setRequestTimeout(long millis) {
+            this.requestTimeout = millis;
+            return this;
+        }
+
+        /**
+         * Multiplexes the requests to a server over HTTP/2, the server has to support it (see
+         * {@link de.mydata.rest.server.JettyRestServer.ServerConfigFactory#enableHttp2()}).
+         */
+        public AsyncEngineConfigFactory useHttp2() {
+            this.http2 = true;
+            return this;
+        }
+
+        /**
+         * HTTP/2 flow control windows, i.e. response bytes the server may send before the client acknowledges them.
+         *
+         * @param sessionWindow per connection, negative for jetty's default
+         * @param streamWindow  per request, negative for jetty's default
+         */
+        public AsyncEngineConfigFactory setFlowControlWindows(int sessionWindow, int streamWindow) {
+            this.initialSessionWindow = sessionWindow;
+            this.initialStreamWindow = streamWindow;
+            return this;
+        }
+
+        public RestAsyncClientEngine commit() {
+            return new RestAsyncClientEngine(this);
+        }
+    }
+}
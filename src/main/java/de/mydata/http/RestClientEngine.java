@@ -0,0 +1,412 @@
+package de.mydata.http;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ClientConnectionOperator;
+import org.apache.http.conn.ClientConnectionRequest;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ManagedClientConnection;
+import org.apache.http.conn.OperatedClientConnection;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.DefaultClientConnectionOperator;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared http client with a bounded connection pool per route. Connections are kept alive and reused between
+ * requests, idle connections are evicted in the background.
+ * <p>
+ * Use {@link #getDefault()} for the process wide engine or {@link #configure()} to build an own one.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+public class RestClientEngine implements Closeable {
+
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String SEND_START      = "de.mydata.http.send-start";
+
+    private static volatile RestClientEngine defaultEngine;
+
+    private final ThreadSafeClientConnManager connectionManager;
+    private final DefaultHttpClient           client;
+    private final ScheduledExecutorService    evictor;
+    private final int                         maxTotalConnections;
+    private final int                         maxConnectionsPerRoute;
+
+    private RestClientEngine(EngineConfigFactory config) {
+        HttpParams params = new BasicHttpParams();
+        ConnManagerParams.setMaxTotalConnections(params, config.maxTotalConnections);
+        ConnManagerParams.setMaxConnectionsPerRoute(params, new ConnPerRouteBean(config.maxConnectionsPerRoute));
+        ConnManagerParams.setTimeout(params, config.poolTimeout);
+        HttpConnectionParams.setConnectionTimeout(params, config.connectTimeout);
+        HttpConnectionParams.setSoTimeout(params, config.socketTimeout);
+        HttpConnectionParams.setTcpNoDelay(params, true);
+        HttpConnectionParams.setStaleCheckingEnabled(params, config.staleChecking);
+
+        SchemeRegistry schemes = new SchemeRegistry();
+        schemes.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
+        schemes.register(new Scheme("https", SSLSocketFactory.getSocketFactory(), 443));
+
+        maxTotalConnections = config.maxTotalConnections;
+        maxConnectionsPerRoute = config.maxConnectionsPerRoute;
+        connectionManager = new TracingConnManager(params, schemes);
+        client = new TracingHttpClient(connectionManager, params);
+
+        final long keepAlive = config.keepAlive;
+        client.setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                long duration = super.getKeepAliveDuration(response, context);
+                // server did not send a keep-alive timeout: use our own
+                return duration < 0
+                       ? keepAlive
+                       : duration;
+            }
+        });
+
+        if(config.compression) {
+            client.addRequestInterceptor((request, context) -> {
+                if(!request.containsHeader(ACCEPT_ENCODING)) {
+                    request.addHeader(ACCEPT_ENCODING, DecompressingEntity.ACCEPT_ENCODING);
+                }
+            });
+            client.addResponseInterceptor((response, context) -> DecompressingEntity.decompress(response));
+        }
+        // first, to count the bytes as they come over the wire
+        client.addResponseInterceptor((response, context) -> {
+            CallTrace trace = CallTrace.current();
+            if(trace != null && response.getEntity() != null) {
+                response.setEntity(new CountingEntity(response.getEntity(), trace));
+            }
+        }, 0);
+
+        evictor = config.evictionInterval <= 0
+                  ? null
+                  : startEvictor(config.evictionInterval, config.maxIdleTime);
+    }
+
+    private ScheduledExecutorService startEvictor(long evictionInterval, long maxIdleTime) {
+        ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rest-client-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(() -> {
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(maxIdleTime, TimeUnit.MILLISECONDS);
+        }, evictionInterval, evictionInterval, TimeUnit.MILLISECONDS);
+        return evictor;
+    }
+
+    public static EngineConfigFactory configure() {
+        return new EngineConfigFactory();
+    }
+
+    public static RestClientEngine getDefault() {
+        RestClientEngine engine = defaultEngine;
+        if(engine == null) {
+            synchronized (RestClientEngine.class) {
+                engine = defaultEngine;
+                if(engine == null) {
+                    defaultEngine = engine = configure().commit();
+                }
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * Replaces the process wide engine. The previous engine is not closed, connections still in use by it stay valid.
+     */
+    public static void setDefault(RestClientEngine engine) {
+        synchronized (RestClientEngine.class) {
+            defaultEngine = engine;
+        }
+    }
+
+    public HttpResponse execute(HttpUriRequest request) throws IOException {
+        return client.execute(request);
+    }
+
+    /**
+     * @param trace filled with the timings and sizes of the request, the received bytes while the body is read
+     */
+    public HttpResponse execute(HttpUriRequest request, CallTrace trace) throws IOException {
+        if(trace == null) {
+            return execute(request);
+        }
+        CallTrace.CURRENT.set(trace);
+        try {
+            HttpResponse response = client.execute(request);
+            trace.responded(response.getStatusLine().getStatusCode());
+            return response;
+        } finally {
+            CallTrace.CURRENT.remove();
+        }
+    }
+
+    public PoolStats getPoolStats() {
+        return new PoolStats(connectionManager.getConnectionsInPool(), maxTotalConnections, maxConnectionsPerRoute);
+    }
+
+    /**
+     * @return the connections to the host of the url and the limits of the pool
+     */
+    public PoolStats getPoolStats(String url) {
+        URI      uri  = URI.create(url);
+        HttpHost host = new HttpHost(uri.getHost(), uri.getPort(), uri.getScheme());
+        return new PoolStats(connectionManager.getConnectionsInPool(new HttpRoute(host)), maxTotalConnections, maxConnectionsPerRoute);
+    }
+
+    @Override
+    public void close() {
+        if(evictor != null) {
+            evictor.shutdownNow();
+        }
+        connectionManager.shutdown();
+    }
+
+    /**
+     * Measures the wait for a pooled connection and the connect of new ones for the {@link CallTrace} of the thread.
+     */
+    private static final class TracingConnManager extends ThreadSafeClientConnManager {
+
+        private TracingConnManager(HttpParams params, SchemeRegistry schemes) {
+            super(params, schemes);
+        }
+
+        @Override
+        protected ClientConnectionOperator createConnectionOperator(SchemeRegistry schemes) {
+            return new DefaultClientConnectionOperator(schemes) {
+                @Override
+                public void openConnection(OperatedClientConnection conn, HttpHost target, InetAddress local,
+                                           HttpContext context, HttpParams params) throws IOException {
+                    CallTrace trace = CallTrace.current();
+                    long      start = System.nanoTime();
+                    super.openConnection(conn, target, local, context, params);
+                    if(trace != null) {
+                        trace.connect(System.nanoTime() - start);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public ClientConnectionRequest requestConnection(HttpRoute route, Object state) {
+            final ClientConnectionRequest request = super.requestConnection(route, state);
+            return new ClientConnectionRequest() {
+                @Override
+                public ManagedClientConnection getConnection(long timeout, TimeUnit unit) throws InterruptedException, ConnectionPoolTimeoutException {
+                    CallTrace trace = CallTrace.current();
+                    long      start = System.nanoTime();
+                    ManagedClientConnection connection = request.getConnection(timeout, unit);
+                    if(trace != null) {
+                        trace.poolWait(System.nanoTime() - start);
+                    }
+                    return connection;
+                }
+
+                @Override
+                public void abortRequest() {
+                    request.abortRequest();
+                }
+            };
+        }
+    }
+
+    /**
+     * Measures the time to the response head and the bytes sent for the {@link CallTrace} of the thread.
+     */
+    private static final class TracingHttpClient extends DefaultHttpClient {
+
+        private TracingHttpClient(ThreadSafeClientConnManager connectionManager, HttpParams params) {
+            super(connectionManager, params);
+        }
+
+        @Override
+        protected HttpRequestExecutor createRequestExecutor() {
+            return new HttpRequestExecutor() {
+                @Override
+                protected HttpResponse doSendRequest(HttpRequest request, HttpClientConnection conn, HttpContext context) throws IOException, HttpException {
+                    CallTrace trace = CallTrace.current();
+                    if(trace == null) {
+                        return super.doSendRequest(request, conn, context);
+                    }
+                    long sent = conn.getMetrics().getSentBytesCount();
+                    context.setAttribute(SEND_START, System.nanoTime());
+                    HttpResponse response = super.doSendRequest(request, conn, context);
+                    trace.sent(conn.getMetrics().getSentBytesCount() - sent);
+                    return response;
+                }
+
+                @Override
+                protected HttpResponse doReceiveResponse(HttpRequest request, HttpClientConnection conn, HttpContext context) throws HttpException, IOException {
+                    HttpResponse response  = super.doReceiveResponse(request, conn, context);
+                    CallTrace    trace     = CallTrace.current();
+                    Object       sendStart = context.getAttribute(SEND_START);
+                    if(trace != null && sendStart != null && trace.getTimeToFirstByteNanos() < 0) {
+                        trace.timeToFirstByte(System.nanoTime() - (Long) sendStart);
+                    }
+                    return response;
+                }
+            };
+        }
+    }
+
+    public static final class PoolStats {
+
+        private final int connections;
+        private final int maxConnections;
+        private final int maxConnectionsPerRoute;
+
+        private PoolStats(int connections, int maxConnections, int maxConnectionsPerRoute) {
+            this.connections = connections;
+            this.maxConnections = maxConnections;
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        }
+
+        /**
+         * @return open connections, leased and idle
+         */
+        public int getConnections() {
+            return connections;
+        }
+
+        /**
+         * @return connections of the pool at most, of all routes
+         */
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        public int getMaxConnectionsPerRoute() {
+            return maxConnectionsPerRoute;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[connections: %d; max: %d; max per route: %d]", connections, maxConnections, maxConnectionsPerRoute);
+        }
+    }
+
+    public static final class EngineConfigFactory {
+
+        private int     maxTotalConnections;
+        private int     maxConnectionsPerRoute;
+        private int     connectTimeout;
+        private int     socketTimeout;
+        private long    poolTimeout;
+        private long    keepAlive;
+        private long    maxIdleTime;
+        private long    evictionInterval;
+        private boolean staleChecking;
+        private boolean compression;
+
+        private EngineConfigFactory() {
+            maxTotalConnections = 200;
+            maxConnectionsPerRoute = 50;
+            connectTimeout = 5000;
+            socketTimeout = 30000;
+            poolTimeout = 5000;
+            keepAlive = 30000;
+            maxIdleTime = 30000;
+            evictionInterval = 5000;
+            staleChecking = true;
+            compression = true;
+        }
+
+        public EngineConfigFactory setMaxTotalConnections(int maxTotalConnections) {
+            this.maxTotalConnections = maxTotalConnections;
+            return this;
+        }
+
+        public EngineConfigFactory setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            return this;
+        }
+
+        public EngineConfigFactory setConnectTimeout(int millis) {
+            this.connectTimeout = millis;
+            return this;
+        }
+
+        public EngineConfigFactory setSocketTimeout(int millis) {
+            this.socketTimeout = millis;
+            return this;
+        }
+
+        /**
+         * @param millis max time to wait for a free connection of the pool
+         */
+        public EngineConfigFactory setPoolTimeout(long millis) {
+            this.poolTimeout = millis;
+            return this;
+        }
+
+        /**
+         * @param millis keep-alive duration if the server does not send one
+         */
+        public EngineConfigFactory setKeepAlive(long millis) {
+            this.keepAlive = millis;
+            return this;
+        }
+
+        public EngineConfigFactory setMaxIdleTime(long millis) {
+            this.maxIdleTime = millis;
+            return this;
+        }
+
+        /**
+         * @param millis between closing expired and idle connections, not positive to keep them until they are leased
+         */
+        public EngineConfigFactory setEvictionInterval(long millis) {
+            this.evictionInterval = millis;
+            return this;
+        }
+
+        public EngineConfigFactory setStaleChecking(boolean staleChecking) {
+            this.staleChecking = staleChecking;
+            return this;
+        }
+
+        /**
+         * @param compression asks for gzip or deflate encoded responses and inflates them while they are read
+         */
+        public EngineConfigFactory setCompression(boolean compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        public RestClientEngine commit() {
+            if(maxConnectionsPerRoute > maxTotalConnections) {
+                throw new IllegalArgumentException(String.format("max connections per route (%d) exceeds max total connections (%d)",
+                                                                 maxConnectionsPerRoute, maxTotalConnections));
+            }
+            return new RestClientEngine(this);
+        }
+    }
+}
@@ -1,18 +1,23 @@
 package de.mydata.http;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.type.TypeReference;
+import de.mydata.log.Log;
+import de.mydata.log.Logger;
 import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpUriRequest;
-import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.entity.ByteArrayEntity;
 
 import javax.ws.rs.core.MediaType;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.Arrays;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
 
+import static javax.ws.rs.core.HttpHeaders.ACCEPT;
 import static javax.ws.rs.core.HttpHeaders.CONTENT_TYPE;
 import static javax.ws.rs.core.Response.Status.OK;
 
@@ -21,17 +26,23 @@ import static javax.ws.rs.core.Response.Status.OK;
  */
 public class RestRequest {
     
+    private static final Logger LOG = Log.getLogger(RestRequest.class);
+    
     protected RestRequest() {
     }
     
     public static String getRequestText(HttpUriRequest request) {
+        return getRequestText(RestClientEngine.getDefault(), request);
+    }
+    
+    public static String getRequestText(RestClientEngine engine, HttpUriRequest request) {
         String result = null;
         
         HttpResponse response = null;
         try {
-            response = doRequestOrNull(request);
+            response = doRequestOrNull(engine, request);
         } catch (Exception e) {
-            e.printStackTrace();
+            LOG.error("request failed: " + request.getURI(), e);
         }
         
         // Get the response
@@ -39,24 +50,39 @@ public class RestRequest {
             try {
                 result = readLines(response);
             } catch (Exception e) {
-                e.printStackTrace();
+                LOG.error("reading the response failed: " + request.getURI(), e);
             }
         }
-        System.out.println(String.format("RESULT: '%s'", result));
+        final String text = result;
+        LOG.trace(() -> "RESULT: '" + Log.abbreviate(text) + "'");
         return result;
     }
     
     public static HttpResponse doRequestOrNull(HttpUriRequest request) {
+        return doRequestOrNull(RestClientEngine.getDefault(), request);
+    }
+    
+    public static HttpResponse doRequestOrNull(RestClientEngine engine, HttpUriRequest request) {
+        return doRequestOrNull(engine, request, null);
+    }
+    
+    /**
+     * @param trace gets the status of a response dropped as <code>null</code>, may be <code>null</code>
+     */
+    public static HttpResponse doRequestOrNull(RestClientEngine engine, HttpUriRequest request, CallTrace trace) {
         try {
-            System.out.println("SEND TO: " + request.getURI().toURL().toString() + " ...");
+            LOG.debug("SEND TO: %s ...", request.getURI());
             
-            HttpClient   client   = new DefaultHttpClient();
-            HttpResponse response = client.execute(request);
-            System.out.println("RESPONSE STATUS: " + response.getStatusLine().getStatusCode());
+            HttpResponse response = engine.execute(request, trace);
+            LOG.debug("RESPONSE STATUS: %d %s", response.getStatusLine().getStatusCode(), request.getURI());
             
             if(response.getStatusLine().getStatusCode() == OK.getStatusCode()) {
                 return response;
             } else {
+                // release the pooled connection
+                if(response.getEntity() != null) {
+                    response.getEntity().consumeContent();
+                }
                 return null;
             }
         } catch (Exception e) {
@@ -74,20 +100,49 @@ public class RestRequest {
             request.addHeader(CONTENT_TYPE, responseType.withCharset("UTF-8").toString());
             return request;
         }
+        
+        /**
+         * @param accept the formats the caller decodes, e.g. a binary {@link WireFormat} before json, may be
+         *               <code>null</code>
+         */
+        public static HttpUriRequest request(String url, MediaType responseType, String accept) {
+            HttpUriRequest request = request(url, responseType);
+            if(accept != null) {
+                request.addHeader(ACCEPT, accept);
+            }
+            return request;
+        }
+    }
+    
+    public static class POST {
+        
+        protected POST() {
+        }
+        
+        /**
+         * @param json the body, sent as is
+         */
+        public static HttpUriRequest request(String url, byte[] json, MediaType responseType) {
+            HttpPost request = new HttpPost(url);
+            ByteArrayEntity entity = new ByteArrayEntity(json);
+            entity.setContentType(MediaType.APPLICATION_JSON + "; charset=UTF-8");
+            request.setEntity(entity);
+            request.addHeader(ACCEPT, responseType.toString());
+            return request;
+        }
     }
     
     public static String readLines(HttpResponse response) {
         StringBuilder sb = new StringBuilder();
-        try {
-            BufferedReader in = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-            String         line;
+        // closing the stream hands the connection back to the pool
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(response.getEntity().getContent()))) {
+            String line;
             while ((line = in.readLine()) != null) {
                 if(sb.length() > 0) {
                     sb.append(System.lineSeparator());
                 }
                 sb.append(line);
             }
-            in.close();
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -103,8 +158,8 @@ public class RestRequest {
             boolean pingResult = false;
             try {
                 pingResult = Boolean.parseBoolean(out);
-            } catch (Exception ignored) {
-                ignored.printStackTrace();
+            } catch (Exception e) {
+                LOG.warn("no boolean: %s", out);
             }
             return pingResult;
         }
@@ -158,28 +213,51 @@ public class RestRequest {
         }
         
         public static <T> T toJson(String out, Class<T> jsonType) {
-            ObjectMapper mapper = new ObjectMapper();
             try {
-                return mapper.readValue(out, jsonType);
+                return JsonCodecRegistry.getInstance().readerFor(jsonType).readValue(out);
             } catch (IOException e) {
                 return null;
             }
         }
         
+        public static <T> T toJson(String out, TypeReference<T> jsonType) {
+            try {
+                return JsonCodecRegistry.getInstance().readerFor(jsonType).readValue(out);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        
         public static String[] toStringArray(String text) {
             return text.split(",\\s*");
         }
         
         public static int[] toIntegerArray(String text) {
-            return Arrays.stream(toStringArray(text)).mapToInt(StringConverter::toInteger).toArray();
+            return NumberArrayParser.parseInts(text);
         }
     
         public static double[] toDoubleArray(String text) {
-            return Arrays.stream(toStringArray(text)).mapToDouble(StringConverter::toDouble).toArray();
+            return NumberArrayParser.parseDoubles(text);
         }
     
         public static long[] toLongArray(String text) {
-            return Arrays.stream(toStringArray(text)).mapToLong(StringConverter::toLong).toArray();
+            return NumberArrayParser.parseLongs(text);
+        }
+    
+        /**
+         * @return count of values put into the buffer
+         */
+        public static int toIntegerArray(CharSequence text, IntBuffer target) {
+            return NumberArrayParser.parseInts(text, target);
+        }
+    
+        public static int toDoubleArray(CharSequence text, DoubleBuffer target) {
+            return NumberArrayParser.parseDoubles(text, target);
+        }
+    
+        public static int toLongArray(CharSequence text, LongBuffer target) {
+            return NumberArrayParser.parseLongs(text, target);
         }
     }
 }
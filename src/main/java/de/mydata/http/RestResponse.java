@@ -1,16 +1,148 @@
 package de.mydata.http;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
 import org.apache.http.HttpResponse;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @author Bjoern Frohberg, mydata GmbH
  */
 public class RestResponse {
-    
+
+    /**
+     * Decodes the json body directly from the entity stream. The stream is closed afterwards, which releases the
+     * connection.
+     *
+     * @return the object or <code>null</code> if the body is no valid json for the type
+     */
     public static <T> T readObject(HttpResponse response, Class<T> responseType) throws IOException, ClassNotFoundException {
-        String lines = RestRequest.readLines(response);
-        return RestRequest.StringConverter.toJson(lines, responseType);
+        return readObject(response, JsonCodecRegistry.getInstance().readerFor(responseType));
+    }
+
+    /**
+     * Like {@link #readObject(HttpResponse, Class)} for generic types, e.g. <code>new TypeReference&lt;List&lt;Item&gt;&gt;() {}</code>
+     */
+    public static <T> T readObject(HttpResponse response, TypeReference<T> responseType) throws IOException {
+        return readObject(response, JsonCodecRegistry.getInstance().readerFor(responseType));
+    }
+
+    /**
+     * @param reader a reader of the {@link JsonCodecRegistry}
+     */
+    public static <T> T readObject(HttpResponse response, ObjectReader reader) throws IOException {
+        try (InputStream in = response.getEntity().getContent()) {
+            return reader.readValue(in);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Decodes the elements of a json array one at a time while the body is read. The stream is closed when the
+     * iterator is exhausted; close it yourself if you stop early (see {@link MappingIterator#close()}).
+     * <p>
+     * A body that is no array is returned as single element.
+     */
+    public static <T> Iterator<T> iterateArray(HttpResponse response, Class<T> elementType) throws IOException {
+        return iterateArray(response, JsonCodecRegistry.getInstance().readerFor(elementType));
+    }
+
+    /**
+     * Like {@link #iterateArray(HttpResponse, Class)}. Newline delimited json is read the same way, one value per line.
+     *
+     * @param reader a reader of the {@link JsonCodecRegistry} for the element type
+     */
+    public static <T> Iterator<T> iterateArray(HttpResponse response, ObjectReader reader) throws IOException {
+        InputStream in = response.getEntity().getContent();
+        try {
+            return reader.readValues(in);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Like {@link #iterateArray(HttpResponse, Class)}, use with try-with-resources to release the connection.
+     */
+    public static <T> Stream<T> streamArray(HttpResponse response, Class<T> elementType) throws IOException {
+        return streamArray(response, JsonCodecRegistry.getInstance().readerFor(elementType));
+    }
+
+    /**
+     * Like {@link #iterateArray(HttpResponse, ObjectReader)}, use with try-with-resources to release the connection.
+     */
+    public static <T> Stream<T> streamArray(HttpResponse response, ObjectReader reader) throws IOException {
+        return stream((MappingIterator<T>) RestResponse.<T>iterateArray(response, reader));
+    }
+
+    /**
+     * The stream closes the iterator on {@link Stream#close()}
+     */
+    public static <T> Stream<T> stream(MappingIterator<T> elements) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(elements, Spliterator.ORDERED), false)
+                            .onClose(() -> {
+                                try {
+                                    elements.close();
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e);
+                                }
+                            });
+    }
+
+    /**
+     * Parses a comma separated body (see {@link NumberArrayParser}) while it is read, without building a string.
+     */
+    public static int[] readIntegerArray(HttpResponse response) throws IOException {
+        try (InputStream in = response.getEntity().getContent()) {
+            return NumberArrayParser.parseInts(in);
+        }
+    }
+
+    public static long[] readLongArray(HttpResponse response) throws IOException {
+        try (InputStream in = response.getEntity().getContent()) {
+            return NumberArrayParser.parseLongs(in);
+        }
+    }
+
+    public static double[] readDoubleArray(HttpResponse response) throws IOException {
+        try (InputStream in = response.getEntity().getContent()) {
+            return NumberArrayParser.parseDoubles(in);
+        }
+    }
+
+    /**
+     * @return count of values put into the buffer
+     */
+    public static int readIntegerArray(HttpResponse response, IntBuffer target) throws IOException {
+        try (InputStream in = response.getEntity().getContent()) {
+            return NumberArrayParser.parseInts(in, target);
+        }
+    }
+
+    public static int readLongArray(HttpResponse response, LongBuffer target) throws IOException {
+        try (InputStream in = response.getEntity().getContent()) {
+            return NumberArrayParser.parseLongs(in, target);
+        }
+    }
+
+    public static int readDoubleArray(HttpResponse response, DoubleBuffer target) throws IOException {
+        try (InputStream in = response.getEntity().getContent()) {
+            return NumberArrayParser.parseDoubles(in, target);
+        }
     }
 }
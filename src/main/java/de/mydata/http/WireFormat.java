@@ -0,0 +1,96 @@
+package de.mydata.http;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import javax.ws.rs.core.MediaType;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * The encodings the jackson codecs of {@link JsonCodecRegistry} speak. The binary ones carry the same data model as
+ * json, but need neither text encoding nor number formatting, and repeated property names are written once.
+ * <p>
+ * A service method offers a binary format by listing its media type in <code>@Produces</code> next to json, e.g.
+ * <code>@Produces({MediaType.APPLICATION_JSON, WireFormat.SMILE_TYPE})</code>. {@link de.mydata.rest.client.RestConnection}
+ * then asks for it and decodes by the content type of the answer, clients not asking still get json.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+public enum WireFormat {
+
+    JSON(MediaType.APPLICATION_JSON, JsonFactory::new),
+    SMILE(WireFormat.SMILE_TYPE, SmileFactory::new),
+    CBOR(WireFormat.CBOR_TYPE, CBORFactory::new);
+
+    public static final String SMILE_TYPE = "application/x-jackson-smile";
+    public static final String CBOR_TYPE  = "application/cbor";
+
+    private final String                mediaType;
+    private final Supplier<JsonFactory> factory;
+
+    WireFormat(String mediaType, Supplier<JsonFactory> factory) {
+        this.mediaType = mediaType;
+        this.factory = factory;
+    }
+
+    /**
+     * @param contentType a header value, parameters are ignored
+     * @return json for <code>null</code>, any json or <code>+json</code> type, <code>null</code> for other types
+     */
+    public static WireFormat of(String contentType) {
+        if(contentType == null) {
+            return JSON;
+        }
+        int    end  = contentType.indexOf(';');
+        String type = (end < 0
+                       ? contentType
+                       : contentType.substring(0, end)).trim();
+        int slash = type.indexOf('/');
+        return of(slash < 0
+                  ? type
+                  : type.substring(0, slash), slash < 0
+                                              ? ""
+                                              : type.substring(slash + 1));
+    }
+
+    /**
+     * Like {@link #of(String)}
+     */
+    public static WireFormat of(MediaType mediaType) {
+        return mediaType == null
+               ? JSON
+               : of(mediaType.getType(), mediaType.getSubtype());
+    }
+
+    private static WireFormat of(String type, String subtype) {
+        subtype = subtype.toLowerCase(Locale.ROOT);
+        if("json".equals(subtype) || subtype.endsWith("+json") || "x-ndjson".equals(subtype)) {
+            return JSON;
+        }
+        if(!"application".equalsIgnoreCase(type)) {
+            return null;
+        }
+        switch (subtype) {
+            case "x-jackson-smile":
+                return SMILE;
+            case "cbor":
+                return CBOR;
+            default:
+                return null;
+        }
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public boolean isBinary() {
+        return this != JSON;
+    }
+
+    JsonFactory createFactory() {
+        return factory.get();
+    }
+}
@@ -0,0 +1,160 @@
+package de.mydata.log;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes to {@link System#out}, warnings and failures to {@link System#err}, on a background thread. Logging threads
+ * only append to a lock free queue, so they never wait for the console. If the queue is full, messages are dropped
+ * and counted instead of blocking; the count is written with the next message.
+ * <p>
+ * Pending messages are written on shutdown of the jvm, after the holds of {@link Log#holdOnShutdown(long)} are released.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+public class AsyncConsoleSink implements LogSink {
+    
+    private final Queue<Entry>  queue;
+    private final AtomicInteger size;
+    private final AtomicLong    dropped;
+    private final int           capacity;
+    private final Thread        writer;
+    private volatile boolean    parked;
+    private volatile boolean    closed;
+    
+    /**
+     * @param capacity messages queued before new ones are dropped
+     */
+    public AsyncConsoleSink(int capacity) {
+        this.capacity = capacity;
+        queue = new ConcurrentLinkedQueue<>();
+        size = new AtomicInteger();
+        dropped = new AtomicLong();
+        writer = new Thread(this::drainLoop, "rest-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::closeOnShutdown, "rest-log-shutdown"));
+    }
+    
+    @Override
+    public void write(Level level, String logger, String message, Throwable error) {
+        if(closed || size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
+        queue.offer(new Entry(level, message, error));
+        if(parked) {
+            LockSupport.unpark(writer);
+        }
+    }
+    
+    /**
+     * @return messages dropped because the queue was full
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+    
+    /**
+     * Writes the pending messages and stops the writer, waits at most a second.
+     */
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void closeOnShutdown() {
+        try {
+            Log.awaitShutdownHolds();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        close();
+    }
+    
+    private void drainLoop() {
+        StringBuilder out = new StringBuilder(4096);
+        StringBuilder err = new StringBuilder(1024);
+        while (true) {
+            Entry entry = queue.poll();
+            if(entry == null) {
+                flush(out, System.out);
+                flush(err, System.err);
+                if(closed && queue.isEmpty()) {
+                    return;
+                }
+                parked = true;
+                // re-check, a message offered before parked was set did not unpark us
+                if(queue.isEmpty() && !closed) {
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+                }
+                parked = false;
+                continue;
+            }
+            size.decrementAndGet();
+            long drops = dropped.getAndSet(0);
+            if(drops > 0) {
+                err.append(Level.WARN.getLabel()).append(" - ").append(drops).append(" log messages dropped").append(System.lineSeparator());
+            }
+            boolean       toErr  = Level.WARN.includes(entry.level);
+            StringBuilder target = toErr
+                                   ? err
+                                   : out;
+            // keep the order of messages across both streams
+            if(toErr) {
+                flush(out, System.out);
+            } else {
+                flush(err, System.err);
+            }
+            entry.appendTo(target);
+            if(target.length() > 64 * 1024) {
+                flush(target, target == out
+                              ? System.out
+                              : System.err);
+            }
+        }
+    }
+    
+    private static void flush(StringBuilder text, PrintStream stream) {
+        if(text.length() > 0) {
+            stream.print(text);
+            stream.flush();
+            text.setLength(0);
+        }
+    }
+    
+    private static final class Entry {
+        
+        private final Level     level;
+        private final String    message;
+        private final Throwable error;
+        
+        private Entry(Level level, String message, Throwable error) {
+            this.level = level;
+            this.message = message;
+            this.error = error;
+        }
+        
+        private void appendTo(StringBuilder text) {
+            text.append(level.getLabel()).append(" - ").append(message).append(System.lineSeparator());
+            if(error != null) {
+                StringWriter trace = new StringWriter();
+                error.printStackTrace(new PrintWriter(trace));
+                text.append(trace);
+            }
+        }
+    }
+}
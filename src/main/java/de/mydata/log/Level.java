@@ -0,0 +1,42 @@
+package de.mydata.log;
+
+/**
+ * Log levels, ordered by severity. The labels are the prefixes the console output always had.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+public enum Level {
+    
+    /**
+     * Request and response bodies
+     */
+    TRACE("[TRACE]"),
+    /**
+     * One line per request
+     */
+    DEBUG("[DEBUG]"),
+    /**
+     * Startup and configuration, what <code>DEBUG_OK_ALLOWED</code> printed
+     */
+    INFO("[OK]"),
+    /**
+     * What <code>WARNINGS_ALLOWED</code> printed
+     */
+    WARN("[WARN]"),
+    ERROR("[FAIL]"),
+    OFF("");
+    
+    private final String label;
+    
+    Level(String label) {
+        this.label = label;
+    }
+    
+    public String getLabel() {
+        return label;
+    }
+    
+    public boolean includes(Level level) {
+        return level.ordinal() >= ordinal() && level != OFF;
+    }
+}
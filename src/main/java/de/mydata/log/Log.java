@@ -0,0 +1,130 @@
+package de.mydata.log;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process wide logging configuration. The level is read from the system property <code>de.mydata.log.level</code>
+ * (default {@link Level#INFO}, also for an unknown level), messages go to an {@link AsyncConsoleSink} unless another
+ * sink is set.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+public final class Log {
+    
+    public static final String LEVEL_PROPERTY = "de.mydata.log.level";
+    
+    private static volatile Level   level         = Level.INFO;
+    private static volatile LogSink sink;
+    private static volatile int     maxBodyLength = 256;
+    private static final    Object  SHUTDOWN_LOCK = new Object();
+    private static          int     shutdownHolds = 0;
+    private static          long    shutdownHoldMillis = 0;
+    
+    static {
+        String configured = System.getProperty(LEVEL_PROPERTY);
+        if(configured != null) {
+            try {
+                level = Level.valueOf(configured.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                getLogger(Log.class).warn("invalid %s '%s', logging at %s", LEVEL_PROPERTY, configured, level);
+            }
+        }
+    }
+    
+    private Log() {
+    }
+    
+    public static Logger getLogger(Class<?> type) {
+        return new Logger(type.getName());
+    }
+    
+    public static Level getLevel() {
+        return level;
+    }
+    
+    /**
+     * @param level lowest level written, {@link Level#OFF} for none
+     */
+    public static void setLevel(Level level) {
+        Log.level = level;
+    }
+    
+    public static LogSink getSink() {
+        LogSink current = sink;
+        if(current == null) {
+            synchronized (Log.class) {
+                current = sink;
+                if(current == null) {
+                    sink = current = new AsyncConsoleSink(8192);
+                }
+            }
+        }
+        return current;
+    }
+    
+    /**
+     * Replaces the sink, the previous one is not closed.
+     */
+    public static void setSink(LogSink sink) {
+        synchronized (Log.class) {
+            Log.sink = sink;
+        }
+    }
+    
+    /**
+     * Keeps the sink open on shutdown of the jvm until {@link #releaseOnShutdown()}. Shutdown hooks run concurrently,
+     * a hook logging while it works, e.g. a server draining its requests, holds the sink before the jvm shuts down.
+     *
+     * @param maxMillis the sink closes at the latest this long after the shutdown began, should a hold never be released
+     */
+    public static void holdOnShutdown(long maxMillis) {
+        synchronized (SHUTDOWN_LOCK) {
+            shutdownHolds++;
+            shutdownHoldMillis = Math.max(shutdownHoldMillis, maxMillis);
+        }
+    }
+    
+    public static void releaseOnShutdown() {
+        synchronized (SHUTDOWN_LOCK) {
+            shutdownHolds--;
+            SHUTDOWN_LOCK.notifyAll();
+        }
+    }
+    
+    /**
+     * Waits until every hold is released or the longest max time of the holds passed, called by the shutdown hook of
+     * the sink before it closes.
+     */
+    static void awaitShutdownHolds() throws InterruptedException {
+        synchronized (SHUTDOWN_LOCK) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownHoldMillis);
+            while (shutdownHolds > 0) {
+                long wait = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if(wait <= 0) {
+                    return;
+                }
+                SHUTDOWN_LOCK.wait(wait);
+            }
+        }
+    }
+    
+    /**
+     * @param maxBodyLength characters of a logged body, see {@link #abbreviate(Object)}
+     */
+    public static void setMaxBodyLength(int maxBodyLength) {
+        Log.maxBodyLength = maxBodyLength;
+    }
+    
+    /**
+     * @return the value as string, cut to the max body length
+     */
+    public static String abbreviate(Object body) {
+        String text  = String.valueOf(body);
+        int    limit = maxBodyLength;
+        if(text.length() <= limit) {
+            return text;
+        }
+        return text.substring(0, limit) + "... (" + text.length() + " chars)";
+    }
+}
@@ -0,0 +1,17 @@
+package de.mydata.log;
+
+/**
+ * Receives the messages of enabled levels, already formatted. Set your own with {@link Log#setSink(LogSink)}, e.g. to
+ * hand them to the logging framework of the application.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+public interface LogSink {
+    
+    /**
+     * Called on the logging thread, must not block.
+     *
+     * @param error may be <code>null</code>
+     */
+    void write(Level level, String logger, String message, Throwable error);
+}
@@ -0,0 +1,136 @@
+package de.mydata.log;
+
+import java.util.function.Supplier;
+
+import static java.lang.String.format;
+
+/**
+ * Level gated logger. A message of a disabled level costs a single check: use the {@link Supplier} or pattern
+ * variants instead of building the message yourself, the pattern is only formatted if the level is enabled.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+public final class Logger {
+    
+    private final String name;
+    
+    Logger(String name) {
+        this.name = name;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public boolean isEnabled(Level level) {
+        return Log.getLevel().includes(level);
+    }
+    
+    public boolean isTraceEnabled() {
+        return isEnabled(Level.TRACE);
+    }
+    
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+    
+    public boolean isInfoEnabled() {
+        return isEnabled(Level.INFO);
+    }
+    
+    public boolean isWarnEnabled() {
+        return isEnabled(Level.WARN);
+    }
+    
+    public void log(Level level, String message) {
+        if(isEnabled(level)) {
+            Log.getSink().write(level, name, message, null);
+        }
+    }
+    
+    public void log(Level level, String message, Throwable error) {
+        if(isEnabled(level)) {
+            Log.getSink().write(level, name, message, error);
+        }
+    }
+    
+    public void log(Level level, Supplier<String> message) {
+        if(isEnabled(level)) {
+            Log.getSink().write(level, name, message.get(), null);
+        }
+    }
+    
+    public void log(Level level, String pattern, Object arg) {
+        if(isEnabled(level)) {
+            Log.getSink().write(level, name, format(pattern, arg), null);
+        }
+    }
+    
+    public void log(Level level, String pattern, Object arg1, Object arg2) {
+        if(isEnabled(level)) {
+            Log.getSink().write(level, name, format(pattern, arg1, arg2), null);
+        }
+    }
+    
+    public void log(Level level, String pattern, Object... args) {
+        if(isEnabled(level)) {
+            Log.getSink().write(level, name, format(pattern, args), null);
+        }
+    }
+    
+    public void trace(Supplier<String> message) {
+        log(Level.TRACE, message);
+    }
+    
+    public void trace(String pattern, Object arg) {
+        log(Level.TRACE, pattern, arg);
+    }
+    
+    public void debug(String message) {
+        log(Level.DEBUG, message);
+    }
+    
+    public void debug(Supplier<String> message) {
+        log(Level.DEBUG, message);
+    }
+    
+    public void debug(String pattern, Object arg) {
+        log(Level.DEBUG, pattern, arg);
+    }
+    
+    public void debug(String pattern, Object arg1, Object arg2) {
+        log(Level.DEBUG, pattern, arg1, arg2);
+    }
+    
+    public void info(String message) {
+        log(Level.INFO, message);
+    }
+    
+    public void info(String pattern, Object arg) {
+        log(Level.INFO, pattern, arg);
+    }
+    
+    public void info(String pattern, Object... args) {
+        log(Level.INFO, pattern, args);
+    }
+    
+    public void warn(String message) {
+        log(Level.WARN, message);
+    }
+    
+    public void warn(String pattern, Object arg) {
+        log(Level.WARN, pattern, arg);
+    }
+    
+    public void warn(String pattern, Object... args) {
+        log(Level.WARN, pattern, args);
+    }
+    
+    public void error(String message) {
+        log(Level.ERROR, message);
+    }
+    
+    public void error(String message, Throwable error) {
+        log(Level.ERROR, message, error);
+    }
+}
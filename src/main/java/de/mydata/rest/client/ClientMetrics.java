@@ -0,0 +1,67 @@
+package de.mydata.rest.client;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per method metrics of the calls of one {@link RestConnection}, always registered as its first listener.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+public final class ClientMetrics implements RestCallListener {
+    
+    private final Map<Method, MethodMetrics> methods;
+    
+    ClientMetrics(Collection<Method> methods) {
+        Map<Method, MethodMetrics> metrics = new HashMap<>();
+        for (Method method : methods) {
+            metrics.put(method, new MethodMetrics(method));
+        }
+        this.methods = Collections.unmodifiableMap(metrics);
+    }
+    
+    @Override
+    public void onCall(RestCallEvent event) {
+        MethodMetrics metrics = methods.get(event.getMethod());
+        if(metrics != null) {
+            metrics.record(event);
+        }
+    }
+    
+    /**
+     * @return the metrics of a service method or <code>null</code> if it is no rest method
+     */
+    public MethodMetrics forMethod(Method method) {
+        return methods.get(method);
+    }
+    
+    /**
+     * @return metrics of all service methods, by name
+     */
+    public List<MethodMetrics> getMethodMetrics() {
+        List<MethodMetrics> all = new ArrayList<>(methods.values());
+        all.sort(Comparator.comparing(metrics -> metrics.getMethod().getName()));
+        return all;
+    }
+    
+    public void reset() {
+        for (MethodMetrics metrics : methods.values()) {
+            metrics.reset();
+        }
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (MethodMetrics metrics : getMethodMetrics()) {
+            text.append(metrics).append(System.lineSeparator());
+        }
+        return text.toString();
+    }
+}
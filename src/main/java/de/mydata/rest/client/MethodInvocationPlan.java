@@ -0,0 +1,445 @@
+package de.mydata.rest.client;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import de.mydata.http.JsonCodecRegistry;
+import de.mydata.http.RestResponse;
+import de.mydata.http.WireFormat;
+import org.apache.commons.lang3.reflect.TypeUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.lang.String.format;
+
+/**
+ * Everything {@link RestConnection} needs to call one service method, resolved once when the proxy is created: the
+ * url template split into literals and parameter slots, the media type and the decoder for the response.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+final class MethodInvocationPlan {
+
+    private static final ThreadLocal<StringBuilder> URL_BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final Method          method;
+    private final String[]        literals;
+    private final int[]           slots;
+    private final int             urlLength;
+    private final MediaType       responseType;
+    private final String          accept;
+    private final boolean         async;
+    private final Class<?>        contentType;
+    private final Type            genericContentType;
+    private final ResponseDecoder decoder;
+
+    private MethodInvocationPlan(Method method, String serviceUrl) {
+        this.method = method;
+        String       template   = joinPath(serviceUrl, method.getAnnotation(Path.class).value());
+        List<String> literals   = new ArrayList<>();
+        List<String> paramNames = new ArrayList<>();
+        List<String> slotNames  = new ArrayList<>();
+        parseTemplate(template, literals, slotNames);
+        for (String name : slotNames) {
+            if(!paramNames.contains(name)) {
+                paramNames.add(name);
+            }
+        }
+
+        int[] argIndexByName = resolveArguments(method, paramNames);
+        this.literals = literals.toArray(new String[literals.size()]);
+        this.slots = new int[slotNames.size()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = argIndexByName[paramNames.indexOf(slotNames.get(i))];
+        }
+        this.urlLength = template.length() + 16;
+
+        String   mediaType = MediaType.TEXT_PLAIN;
+        String[] produces  = {};
+        if(method.isAnnotationPresent(Produces.class)) {
+            produces = method.getAnnotation(Produces.class).value();
+            mediaType = produces[0];
+        }
+        this.responseType = MediaType.valueOf(mediaType);
+
+        this.async = CompletableFuture.class.equals(method.getReturnType());
+        if(async) {
+            Type futureType = method.getGenericReturnType();
+            genericContentType = futureType instanceof ParameterizedType
+                                 ? ((ParameterizedType) futureType).getActualTypeArguments()[0]
+                                 : Object.class;
+        } else {
+            genericContentType = method.getGenericReturnType();
+        }
+        Class<?> rawType = TypeUtils.getRawType(genericContentType, null);
+        this.contentType = rawType == null
+                           ? Object.class
+                           : rawType;
+        this.decoder = resolveDecoder(contentType, genericContentType);
+        // strings are json already, the server writes them as they are
+        this.accept = CharSequence.class.isAssignableFrom(contentType)
+                      ? null
+                      : resolveAccept(produces);
+    }
+
+    /**
+     * @return a plan for every method of the service having a {@link Path}-annotation
+     */
+    static Map<Method, MethodInvocationPlan> compile(String serviceUrl, Class<?> service) {
+        Map<Method, MethodInvocationPlan> plans = new HashMap<>();
+        for (Method method : service.getMethods()) {
+            if(method.isAnnotationPresent(Path.class)) {
+                plans.put(method, new MethodInvocationPlan(method, serviceUrl));
+            }
+        }
+        return Collections.unmodifiableMap(plans);
+    }
+
+    String buildUrl(Object[] args) {
+        if(slots.length == 0) {
+            return literals[0];
+        }
+
+        StringBuilder url = URL_BUILDER.get();
+        url.setLength(0);
+        url.ensureCapacity(urlLength);
+        url.append(literals[0]);
+        for (int i = 0; i < slots.length; i++) {
+            appendPathSegment(url, String.valueOf(args[slots[i]]));
+            url.append(literals[i + 1]);
+        }
+        return url.toString();
+    }
+
+    Method getMethod() {
+        return method;
+    }
+
+    MediaType getResponseType() {
+        return responseType;
+    }
+
+    /**
+     * @return the <code>Accept</code> header preferring a binary {@link WireFormat}, <code>null</code> if the method
+     * offers none
+     */
+    String getAccept() {
+        return accept;
+    }
+
+    boolean isAsync() {
+        return async;
+    }
+
+    Class<?> getContentType() {
+        return contentType;
+    }
+
+    Type getGenericContentType() {
+        return genericContentType;
+    }
+
+    Object decode(HttpResponse response) throws IOException {
+        return decoder.read(response);
+    }
+
+    Object decode(byte[] content) {
+        return decoder.read(content, WireFormat.JSON);
+    }
+
+    /**
+     * @param contentType of the answer, selects the {@link WireFormat}
+     */
+    Object decode(byte[] content, String contentType) {
+        return decoder.read(content, formatOf(contentType));
+    }
+
+    /**
+     * @param content a json value embedded in another document, e.g. a batch response
+     */
+    Object decode(JsonNode content) {
+        return decoder.read(content);
+    }
+
+    private static ResponseDecoder resolveDecoder(Class<?> contentType, Type genericContentType) {
+        if(Void.TYPE.equals(contentType) || Void.class.equals(contentType)) {
+            return new ResponseDecoder() {
+                @Override
+                public Object read(HttpResponse response) throws IOException {
+                    if(response.getEntity() != null) {
+                        response.getEntity().consumeContent();
+                    }
+                    return null;
+                }
+
+                @Override
+                public Object read(byte[] content, WireFormat format) {
+                    return null;
+                }
+
+                @Override
+                public Object read(JsonNode content) {
+                    return null;
+                }
+            };
+        }
+
+        if(Stream.class.equals(contentType)) {
+            return streamDecoder(genericContentType);
+        }
+
+        JavaType type = JsonCodecRegistry.getInstance().constructType(genericContentType);
+        return new ResponseDecoder() {
+            @Override
+            public Object read(HttpResponse response) throws IOException {
+                return RestResponse.readObject(response, codecs(response).readerFor(type));
+            }
+
+            @Override
+            public Object read(byte[] content, WireFormat format) {
+                try {
+                    return JsonCodecRegistry.getInstance(format).readerFor(type).readValue(content);
+                } catch (IOException e) {
+                    return null;
+                }
+            }
+
+            @Override
+            public Object read(JsonNode content) {
+                try {
+                    return JsonCodecRegistry.getInstance().readerFor(type).readValue(content);
+                } catch (IOException e) {
+                    return null;
+                }
+            }
+        };
+    }
+
+    /**
+     * Decodes the elements of a json array or newline delimited json lazily while the body arrives. The connection
+     * is released when the stream is exhausted or closed.
+     */
+    private static ResponseDecoder streamDecoder(Type genericContentType) {
+        Type elementType = genericContentType instanceof ParameterizedType
+                           ? ((ParameterizedType) genericContentType).getActualTypeArguments()[0]
+                           : Object.class;
+        JavaType type = JsonCodecRegistry.getInstance().constructType(elementType);
+        return new ResponseDecoder() {
+            @Override
+            public Object read(HttpResponse response) throws IOException {
+                return RestResponse.streamArray(response, codecs(response).readerFor(type));
+            }
+
+            @Override
+            public Object read(byte[] content, WireFormat format) {
+                try {
+                    return RestResponse.stream(JsonCodecRegistry.getInstance(format).readerFor(type).readValues(content));
+                } catch (IOException e) {
+                    return null;
+                }
+            }
+
+            @Override
+            public Object read(JsonNode content) {
+                if(!content.isArray()) {
+                    return Stream.of(content).map(this::element);
+                }
+                return StreamSupport.stream(content.spliterator(), false).map(this::element);
+            }
+
+            private Object element(JsonNode element) {
+                try {
+                    return JsonCodecRegistry.getInstance().readerFor(type).readValue(element);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * The first binary format of the method, json stays acceptable if the method produces it, e.g. for servers
+     * without the binary codecs
+     */
+    private static String resolveAccept(String[] produces) {
+        WireFormat binary = null;
+        boolean    json   = false;
+        for (String type : produces) {
+            WireFormat format = WireFormat.of(type);
+            if(format == WireFormat.JSON) {
+                json = true;
+            } else if(format != null && binary == null) {
+                binary = format;
+            }
+        }
+        if(binary == null) {
+            return null;
+        }
+        return json
+               ? binary.getMediaType() + ", " + MediaType.APPLICATION_JSON + ";q=0.9"
+               : binary.getMediaType();
+    }
+
+    private static JsonCodecRegistry codecs(HttpResponse response) {
+        Header contentType = response.getEntity() == null
+                             ? null
+                             : response.getEntity().getContentType();
+        return JsonCodecRegistry.getInstance(formatOf(contentType == null
+                                                      ? null
+                                                      : contentType.getValue()));
+    }
+
+    /**
+     * @return the format of the content type, json for other types
+     */
+    private static WireFormat formatOf(String contentType) {
+        WireFormat format = WireFormat.of(contentType);
+        return format == null
+               ? WireFormat.JSON
+               : format;
+    }
+
+    private static String joinPath(String serviceUrl, String path) {
+        if(path.isEmpty()) {
+            return serviceUrl;
+        }
+        boolean slashLeft  = serviceUrl.endsWith("/");
+        boolean slashRight = path.startsWith("/");
+        if(slashLeft && slashRight) {
+            return serviceUrl + path.substring(1);
+        } else if(!slashLeft && !slashRight) {
+            return serviceUrl + "/" + path;
+        }
+        return serviceUrl + path;
+    }
+
+    /**
+     * Splits <code>/a/{id}/b/{name: [a-z]+}</code> into the literals <code>/a/</code>, <code>/b/</code>, <code>""</code>
+     * and the parameter names <code>id</code>, <code>name</code>.
+     */
+    private static void parseTemplate(String template, List<String> literals, List<String> names) {
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < template.length(); i++) {
+            char c = template.charAt(i);
+            if(c != '{') {
+                literal.append(c);
+                continue;
+            }
+
+            int depth = 1;
+            int end   = i + 1;
+            while (end < template.length() && depth > 0) {
+                char e = template.charAt(end);
+                if(e == '{') {
+                    depth++;
+                } else if(e == '}') {
+                    depth--;
+                }
+                end++;
+            }
+            if(depth > 0) {
+                throw new IllegalArgumentException(format("Unclosed parameter in path '%s'", template));
+            }
+
+            String param = template.substring(i + 1, end - 1);
+            int    colon = param.indexOf(':');
+            names.add((colon < 0
+                       ? param
+                       : param.substring(0, colon)).trim());
+            literals.add(literal.toString());
+            literal.setLength(0);
+            i = end - 1;
+        }
+        literals.add(literal.toString());
+    }
+
+    /**
+     * Parameters with a {@link PathParam}-annotation are bound by name, all others by position.
+     */
+    private static int[] resolveArguments(Method method, List<String> paramNames) {
+        int[]          indices     = new int[paramNames.size()];
+        boolean[]      bound       = new boolean[paramNames.size()];
+        boolean[]      used        = new boolean[method.getParameterCount()];
+        Annotation[][] annotations = method.getParameterAnnotations();
+        for (int arg = 0; arg < annotations.length; arg++) {
+            for (Annotation annotation : annotations[arg]) {
+                if(annotation instanceof PathParam) {
+                    int name = paramNames.indexOf(((PathParam) annotation).value());
+                    if(name >= 0) {
+                        indices[name] = arg;
+                        bound[name] = true;
+                        used[arg] = true;
+                    }
+                }
+            }
+        }
+
+        int nextArg = 0;
+        for (int name = 0; name < indices.length; name++) {
+            if(bound[name]) {
+                continue;
+            }
+            while (nextArg < used.length && used[nextArg]) {
+                nextArg++;
+            }
+            if(nextArg >= used.length) {
+                throw new IllegalArgumentException(format("No argument for path parameter '%s' in %s method '%s'",
+                                                          paramNames.get(name),
+                                                          method.getDeclaringClass().getCanonicalName(),
+                                                          method.getName()));
+            }
+            indices[name] = nextArg;
+            used[nextArg] = true;
+        }
+        return indices;
+    }
+
+    private static void appendPathSegment(StringBuilder url, String value) {
+        for (int i = 0; i < value.length(); ) {
+            int c = value.codePointAt(i);
+            if(c < 128 && isUnreserved((char) c)) {
+                url.append((char) c);
+            } else {
+                for (byte b : new String(Character.toChars(c)).getBytes(StandardCharsets.UTF_8)) {
+                    url.append('%').append(HEX[(b >> 4) & 0x0F]).append(HEX[b & 0x0F]);
+                }
+            }
+            i += Character.charCount(c);
+        }
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+               || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    private interface ResponseDecoder {
+
+        Object read(HttpResponse response) throws IOException;
+
+        Object read(byte[] content, WireFormat format);
+
+        Object read(JsonNode content);
+    }
+}
@@ -0,0 +1,161 @@
+package de.mydata.rest.client;
+
+import de.mydata.rest.server.metrics.LatencyHistogram;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and phase latencies of one service method on the client side. Recording takes no lock.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+public final class MethodMetrics {
+    
+    private final Method           method;
+    private final LongAdder        calls;
+    private final LongAdder        errors;
+    private final LongAdder        notOk;
+    private final LongAdder        cacheHits;
+    private final LongAdder        bytesSent;
+    private final LongAdder        bytesReceived;
+    private final LatencyHistogram total;
+    private final LatencyHistogram poolWait;
+    private final LatencyHistogram connect;
+    private final LatencyHistogram timeToFirstByte;
+    private final LatencyHistogram decode;
+    
+    MethodMetrics(Method method) {
+        this.method = method;
+        calls = new LongAdder();
+        errors = new LongAdder();
+        notOk = new LongAdder();
+        cacheHits = new LongAdder();
+        bytesSent = new LongAdder();
+        bytesReceived = new LongAdder();
+        total = new LatencyHistogram();
+        poolWait = new LatencyHistogram();
+        connect = new LatencyHistogram();
+        timeToFirstByte = new LatencyHistogram();
+        decode = new LatencyHistogram();
+    }
+    
+    void record(RestCallEvent event) {
+        calls.increment();
+        if(event.isFailed()) {
+            errors.increment();
+        } else if(event.isNotOk()) {
+            notOk.increment();
+        }
+        if(event.isCacheHit()) {
+            cacheHits.increment();
+        }
+        bytesSent.add(event.getBytesSent());
+        bytesReceived.add(event.getBytesReceived());
+        total.record(event.getTotalNanos());
+        recordObserved(poolWait, event.getPoolWaitNanos());
+        recordObserved(connect, event.getConnectNanos());
+        recordObserved(timeToFirstByte, event.getTimeToFirstByteNanos());
+        recordObserved(decode, event.getDecodeNanos());
+    }
+    
+    private static void recordObserved(LatencyHistogram histogram, long nanos) {
+        if(nanos >= 0) {
+            histogram.record(nanos);
+        }
+    }
+    
+    void reset() {
+        calls.reset();
+        errors.reset();
+        notOk.reset();
+        cacheHits.reset();
+        bytesSent.reset();
+        bytesReceived.reset();
+        total.reset();
+        poolWait.reset();
+        connect.reset();
+        timeToFirstByte.reset();
+        decode.reset();
+    }
+    
+    public Method getMethod() {
+        return method;
+    }
+    
+    public long getCalls() {
+        return calls.sum();
+    }
+    
+    /**
+     * @return calls failed with an exception
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+    
+    /**
+     * @return responses with another status than 200
+     */
+    public long getNotOk() {
+        return notOk.sum();
+    }
+    
+    /**
+     * @return calls answered by the {@link ResponseCache}
+     */
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+    
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+    
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+    
+    /**
+     * @return time from invoking the proxy until the result was decoded
+     */
+    public LatencyHistogram getTotal() {
+        return total;
+    }
+    
+    /**
+     * @return wait for a pooled connection, blocking calls only
+     */
+    public LatencyHistogram getPoolWait() {
+        return poolWait;
+    }
+    
+    /**
+     * @return connect time, 0 for reused connections, blocking calls only
+     */
+    public LatencyHistogram getConnect() {
+        return connect;
+    }
+    
+    public LatencyHistogram getTimeToFirstByte() {
+        return timeToFirstByte;
+    }
+    
+    public LatencyHistogram getDecode() {
+        return decode;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                             "[%s; calls: %d; errors: %d; not ok: %d; cache hits: %d; in: %d B; out: %d B; p50/p99 ms total: %s; pool: %s; connect: %s; ttfb: %s; decode: %s]",
+                             method.getName(), getCalls(), getErrors(), getNotOk(), getCacheHits(), getBytesReceived(), getBytesSent(),
+                             percentiles(total), percentiles(poolWait), percentiles(connect), percentiles(timeToFirstByte),
+                             percentiles(decode));
+    }
+    
+    private static String percentiles(LatencyHistogram histogram) {
+        return String.format(Locale.ROOT, "%.3f/%.3f", histogram.getValueAtQuantile(0.5) / 1e6, histogram.getValueAtQuantile(0.99) / 1e6);
+    }
+}
@@ -0,0 +1,339 @@
+package de.mydata.rest.client;
+
+import de.mydata.http.BufferedResponse;
+import org.apache.http.impl.cookie.DateParseException;
+import org.apache.http.impl.cookie.DateUtils;
+
+import javax.ws.rs.core.MediaType;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.BaseStream;
+
+/**
+ * Bounded cache of GET responses for {@link RestConnection}s, keyed by url and media type, see
+ * {@link RestConnection#setCache(ResponseCache)}. One cache may be shared between connections.
+ * <p>
+ * Responses are stored following their <code>Cache-Control</code> (<code>max-age</code>, <code>no-cache</code>,
+ * <code>no-store</code>) or <code>Expires</code> header. Fresh entries are answered without a request, stale ones
+ * with an <code>ETag</code> or <code>Last-Modified</code> are revalidated by a conditional request, a
+ * <code>304</code> answer keeps them. Responses without freshness and validators are not stored.
+ * <p>
+ * The decoded object is stored for immutable types (strings, boxed primitives, enums), other types are decoded from
+ * the stored body on every hit, as callers may change them. {@link CacheConfigFactory#setShareDecoded(boolean)}
+ * shares all decoded objects, if the callers treat them as read only.
+ * <p>
+ * The least recently used entries are evicted when the bodies exceed the max size.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+public final class ResponseCache {
+    
+    private static final String IF_NONE_MATCH     = "If-None-Match";
+    private static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    
+    private final long                         maxBytes;
+    private final boolean                      shareDecoded;
+    private final LinkedHashMap<String, Entry> entries;
+    private final LongAdder                    hits;
+    private final LongAdder                    misses;
+    private final LongAdder                    revalidations;
+    private final LongAdder                    evictions;
+    private       long                         bytes;
+    
+    private ResponseCache(CacheConfigFactory config) {
+        maxBytes = config.maxBytes;
+        shareDecoded = config.shareDecoded;
+        entries = new LinkedHashMap<>(64, 0.75f, true);
+        hits = new LongAdder();
+        misses = new LongAdder();
+        revalidations = new LongAdder();
+        evictions = new LongAdder();
+    }
+    
+    public static CacheConfigFactory configure() {
+        return new CacheConfigFactory();
+    }
+    
+    static String key(String url, MediaType responseType) {
+        return responseType + " " + url;
+    }
+    
+    synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+    
+    /**
+     * Stores a 200 response if its headers allow it.
+     *
+     * @param decoded the decoded body, kept instead of the body if it is safe to share
+     */
+    void store(String key, BufferedResponse response, Class<?> contentType, Object decoded) {
+        long    now        = System.currentTimeMillis();
+        long    freshUntil = freshUntil(response, now);
+        String  etag       = response.getHeader("ETag");
+        String  modified   = response.getHeader("Last-Modified");
+        boolean validators = etag != null || modified != null;
+        if(freshUntil < 0 || freshUntil <= now && !validators || "*".equals(response.getHeader("Vary"))) {
+            remove(key);
+            return;
+        }
+        int weight = response.getContent().length + key.length() * 2;
+        if(weight > maxBytes) {
+            remove(key);
+            return;
+        }
+        long  lifetime = freshUntil - now;
+        // a stream is consumed by the first reader
+        Entry entry    = (shareDecoded || isImmutable(contentType)) && !BaseStream.class.isAssignableFrom(contentType)
+                         ? new Entry(null, decoded, true, null, etag, modified, lifetime, weight)
+                         : new Entry(response.getContent(), null, false, response.getHeader("Content-Type"), etag, modified, lifetime, weight);
+        synchronized (this) {
+            Entry previous = entries.put(key, entry);
+            if(previous != null) {
+                bytes -= previous.weight;
+            }
+            bytes += weight;
+            evict();
+        }
+    }
+    
+    /**
+     * The server answered the conditional request with 304, the entry is fresh again, for the lifetime the 304 sent
+     * or the one stored.
+     */
+    void revalidated(Entry entry, BufferedResponse response) {
+        long now = System.currentTimeMillis();
+        if(response.getHeader("Cache-Control") != null || response.getHeader("Expires") != null) {
+            entry.lifetime = Math.max(0, freshUntil(response, now) - now);
+        }
+        entry.freshUntil = now + entry.lifetime;
+        revalidations.increment();
+        hits.increment();
+    }
+    
+    synchronized void remove(String key) {
+        Entry removed = entries.remove(key);
+        if(removed != null) {
+            bytes -= removed.weight;
+        }
+    }
+    
+    void hit() {
+        hits.increment();
+    }
+    
+    void miss() {
+        misses.increment();
+    }
+    
+    private void evict() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().weight;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+    
+    /**
+     * @return millis the response is fresh until, the current time if it has to be revalidated, -1 if it must not
+     * be stored
+     */
+    private static long freshUntil(BufferedResponse response, long now) {
+        String cacheControl = response.getHeader("Cache-Control");
+        if(cacheControl != null) {
+            long maxAge = -1;
+            for (String directive : cacheControl.split(",")) {
+                String name = directive.trim().toLowerCase(Locale.ROOT);
+                if(name.equals("no-store")) {
+                    return -1;
+                }
+                if(name.equals("no-cache")) {
+                    return now;
+                }
+                if(name.startsWith("max-age=")) {
+                    try {
+                        maxAge = Long.parseLong(name.substring("max-age=".length()).replace("\"", ""));
+                    } catch (NumberFormatException e) {
+                        return now;
+                    }
+                }
+            }
+            if(maxAge >= 0) {
+                return now + TimeUnit.SECONDS.toMillis(maxAge);
+            }
+        }
+        String expires = response.getHeader("Expires");
+        if(expires != null) {
+            try {
+                String date = response.getHeader("Date");
+                long   sent = date == null
+                              ? now
+                              : DateUtils.parseDate(date).getTime();
+                return now + Math.max(0, DateUtils.parseDate(expires).getTime() - sent);
+            } catch (DateParseException e) {
+                // invalid dates mean already expired
+                return now;
+            }
+        }
+        return now;
+    }
+    
+    private static boolean isImmutable(Class<?> type) {
+        return type.isPrimitive()
+               || type == String.class
+               || type.isEnum()
+               || type == Boolean.class
+               || type == Character.class
+               || Number.class.isAssignableFrom(type) && type.getName().startsWith("java.")
+                  && !type.getName().startsWith("java.util.concurrent.atomic.")
+               || type == Void.class;
+    }
+    
+    public long getHits() {
+        return hits.sum();
+    }
+    
+    public long getMisses() {
+        return misses.sum();
+    }
+    
+    /**
+     * @return stale entries the server confirmed with 304, counted as hits too
+     */
+    public long getRevalidations() {
+        return revalidations.sum();
+    }
+    
+    public long getEvictions() {
+        return evictions.sum();
+    }
+    
+    public synchronized int getEntries() {
+        return entries.size();
+    }
+    
+    public synchronized long getBytes() {
+        return bytes;
+    }
+    
+    public double getHitRatio() {
+        long hits  = getHits();
+        long total = hits + getMisses();
+        return total == 0
+               ? 0
+               : (double) hits / total;
+    }
+    
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("[entries: %d; bytes: %d of %d; hits: %d; misses: %d; revalidations: %d; evictions: %d]",
+                             getEntries(), getBytes(), maxBytes, getHits(), getMisses(), getRevalidations(), getEvictions());
+    }
+    
+    static final class Entry {
+        
+        private final    byte[]  content;
+        private final    Object  decoded;
+        private final    boolean shared;
+        private final    String  mediaType;
+        private final    String  etag;
+        private final    String  lastModified;
+        private final    int     weight;
+        private volatile long    lifetime;
+        private volatile long    freshUntil;
+        
+        private Entry(byte[] content, Object decoded, boolean shared, String mediaType, String etag, String lastModified, long lifetime, int weight) {
+            this.content = content;
+            this.decoded = decoded;
+            this.shared = shared;
+            this.mediaType = mediaType;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.lifetime = lifetime;
+            this.freshUntil = System.currentTimeMillis() + lifetime;
+            this.weight = weight;
+        }
+        
+        boolean isFresh() {
+            return System.currentTimeMillis() < freshUntil;
+        }
+        
+        boolean isShared() {
+            return shared;
+        }
+        
+        Object getDecoded() {
+            return decoded;
+        }
+        
+        byte[] getContent() {
+            return content;
+        }
+        
+        /**
+         * @return content type of the stored body
+         */
+        String getMediaType() {
+            return mediaType;
+        }
+        
+        /**
+         * @return headers of the conditional request
+         */
+        Map<String, String> getValidators() {
+            Map<String, String> validators = new HashMap<>(2);
+            if(etag != null) {
+                validators.put(IF_NONE_MATCH, etag);
+            }
+            if(lastModified != null) {
+                validators.put(IF_MODIFIED_SINCE, lastModified);
+            }
+            return validators;
+        }
+    }
+    
+    public static final class CacheConfigFactory {
+        
+        private long    maxBytes;
+        private boolean shareDecoded;
+        
+        private CacheConfigFactory() {
+            maxBytes = 16 * 1024 * 1024;
+            shareDecoded = false;
+        }
+        
+        /**
+         * @param maxBytes size of the stored bodies, the least recently used entries are evicted above
+         */
+        public CacheConfigFactory setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+            return this;
+        }
+        
+        /**
+         * @param shareDecoded hands out the same decoded object on every hit, for any type
+         */
+        public CacheConfigFactory setShareDecoded(boolean shareDecoded) {
+            this.shareDecoded = shareDecoded;
+            return this;
+        }
+        
+        public ResponseCache commit() {
+            if(maxBytes <= 0) {
+                throw new IllegalArgumentException("max bytes must be positive: " + maxBytes);
+            }
+            return new ResponseCache(this);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package de.mydata.rest.client;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.mydata.http.CallTrace;
+import de.mydata.http.JsonCodecRegistry;
+import de.mydata.http.RestRequest;
+import de.mydata.http.WireFormat;
+import de.mydata.log.Log;
+import de.mydata.log.Logger;
+import de.mydata.rest.server.JettyRestServer;
+import de.mydata.rest.server.batch.BatchServlet;
+import org.apache.http.HttpResponse;
+
+import javax.ws.rs.core.MediaType;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Gathers calls of a service and sends them to the batch endpoint of the server in one round trip, see
+ * {@link RestConnection#batch()} and {@link de.mydata.rest.server.batch.BatchServlet}. Use it as scope, closing it
+ * sends the calls not sent yet:
+ * <pre>
+ * try (RestBatch&lt;Items&gt; batch = connection.batch()) {
+ *     CompletableFuture&lt;Item&gt; first  = batch.add(items -&gt; items.find(1));
+ *     CompletableFuture&lt;Item&gt; second = batch.add(items -&gt; items.find(2));
+ * }
+ * </pre>
+ * Methods returning a {@link CompletableFuture} may be called on {@link #getService()} directly. The futures complete
+ * while the answers arrive, in the order the server finishes them; like single calls, answers other than
+ * <code>200</code> complete with <code>null</code>. The calls bypass the {@link ResponseCache}.
+ * <p>
+ * A batch is used by one thread.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+public final class RestBatch<T extends JettyRestServer.IRestService> implements AutoCloseable {
+    
+    private static final Logger LOG = Log.getLogger(RestBatch.class);
+    
+    private final RestConnection<T>                 connection;
+    private final Map<Method, MethodInvocationPlan> plans;
+    private final String                            server;
+    private final String                            batchUrl;
+    private final T                                 recorder;
+    private final List<Call>                        calls;
+    
+    RestBatch(RestConnection<T> connection, Class<T> service, Map<Method, MethodInvocationPlan> plans, String server, String batchPath) {
+        this.connection = connection;
+        this.plans = plans;
+        this.server = server;
+        this.batchUrl = server + batchPath;
+        this.calls = new ArrayList<>();
+        @SuppressWarnings("unchecked")
+        T recorder = (T) Proxy.newProxyInstance(service.getClassLoader(), new Class<?>[]{service}, new Recorder());
+        this.recorder = recorder;
+    }
+    
+    /**
+     * @return a proxy gathering the calls: methods returning a {@link CompletableFuture} return one completed when
+     * the batch is sent, all others return <code>null</code>, <code>0</code> or <code>false</code>, see
+     * {@link #add(Function)}
+     */
+    public T getService() {
+        return recorder;
+    }
+    
+    /**
+     * @param call one call of the service, e.g. <code>items -&gt; items.find(42)</code>
+     * @return the result, completed when the batch is sent
+     */
+    public <R> CompletableFuture<R> add(Function<T, R> call) {
+        int before = calls.size();
+        R   result = call.apply(recorder);
+        if(calls.size() != before + 1) {
+            throw new IllegalArgumentException("a batched call has to call exactly one service method, it called " + (calls.size() - before));
+        }
+        Call recorded = calls.get(before);
+        if(recorded.plan.isAsync()) {
+            return CompletableFuture.completedFuture(result);
+        }
+        @SuppressWarnings("unchecked")
+        CompletableFuture<R> future = (CompletableFuture<R>) recorded.result;
+        return future;
+    }
+    
+    /**
+     * @return calls gathered and not sent yet
+     */
+    public int size() {
+        return calls.size();
+    }
+    
+    /**
+     * Sends the gathered calls in one request and completes their futures while the answers arrive. Calls added
+     * afterwards go into the next batch.
+     *
+     * @throws IOException if the batch failed as whole, the futures of the calls without answer fail too
+     */
+    public void send() throws IOException {
+        if(calls.isEmpty()) {
+            return;
+        }
+        List<Call> sending = new ArrayList<>(calls);
+        calls.clear();
+        CallTrace trace = new CallTrace();
+        try {
+            LOG.debug("SEND BATCH OF %d TO: %s ...", sending.size(), batchUrl);
+            HttpResponse response = connection.getEngine().execute(RestRequest.POST.request(batchUrl, encode(sending), MediaType.APPLICATION_JSON_TYPE), trace);
+            try (InputStream in = response.getEntity().getContent()) {
+                if(response.getStatusLine().getStatusCode() != 200) {
+                    throw new IOException("batch failed with status " + response.getStatusLine().getStatusCode() + ": " + batchUrl);
+                }
+                receive(in, sending, trace);
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(sending, e);
+            throw e;
+        }
+        fail(sending, new IOException("no answer in the batch response"));
+    }
+    
+    /**
+     * Sends the calls not sent yet.
+     */
+    @Override
+    public void close() throws IOException {
+        send();
+    }
+    
+    private byte[] encode(List<Call> sending) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(64 + sending.size() * 96);
+        try (JsonGenerator json = JsonCodecRegistry.getInstance().getMapper().getFactory().createGenerator(body)) {
+            json.writeStartArray();
+            for (int id = 0; id < sending.size(); id++) {
+                Call call = sending.get(id);
+                json.writeStartObject();
+                json.writeNumberField("id", id);
+                json.writeStringField("method", "GET");
+                json.writeStringField("path", call.path);
+                json.writeObjectFieldStart("headers");
+                // bodies are embedded into the json answer, binary formats do not fit
+                WireFormat format = WireFormat.of(call.plan.getResponseType());
+                json.writeStringField("Accept", format != null && format.isBinary()
+                                                ? MediaType.APPLICATION_JSON
+                                                : call.plan.getResponseType().toString());
+                json.writeEndObject();
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
+        return body.toByteArray();
+    }
+    
+    /**
+     * Reads one answer after the other, the first calls complete while the rest is still in transfer.
+     */
+    private void receive(InputStream in, List<Call> sending, CallTrace trace) throws IOException {
+        ObjectMapper mapper = JsonCodecRegistry.getInstance().getMapper();
+        try (JsonParser parser = mapper.getFactory().createParser(in)) {
+            if(parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("json array of answers expected: " + batchUrl);
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                JsonNode answer = mapper.readTree(parser);
+                int      id     = answer.path("id").asInt(-1);
+                if(id < 0 || id >= sending.size()) {
+                    continue;
+                }
+                complete(sending.get(id), answer, trace);
+            }
+        }
+    }
+    
+    private void complete(Call call, JsonNode answer, CallTrace trace) {
+        int       status      = answer.path("status").asInt();
+        Object    value       = null;
+        Throwable error       = null;
+        long      decodeNanos = -1;
+        JsonNode  body        = answer.get("body");
+        if(status == 200 && body != null) {
+            long start = System.nanoTime();
+            try {
+                String contentType = answer.path("headers").path("Content-Type").asText();
+                if(BatchServlet.ENCODING_BASE64.equals(answer.path(BatchServlet.ENCODING).asText(null))) {
+                    value = call.plan.decode(body.binaryValue(), contentType);
+                } else if(body.isTextual() && !isJson(contentType)) {
+                    value = call.plan.decode(body.asText().getBytes(StandardCharsets.UTF_8));
+                } else {
+                    value = call.plan.decode(body);
+                }
+                decodeNanos = System.nanoTime() - start;
+            } catch (IOException | RuntimeException e) {
+                error = e;
+            }
+        }
+        connection.fireCall(call.plan, call.url, trace, status, decodeNanos, error, false);
+        if(error != null) {
+            call.result.completeExceptionally(error);
+        } else {
+            call.result.complete(value);
+        }
+    }
+    
+    private static void fail(List<Call> sending, Throwable error) {
+        for (Call call : sending) {
+            call.result.completeExceptionally(error);
+        }
+    }
+    
+    private static boolean isJson(String contentType) {
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith(MediaType.APPLICATION_JSON) || type.contains("+json");
+    }
+    
+    private static Object defaultValue(Class<?> type) {
+        return type.isPrimitive() && type != Void.TYPE
+               ? Array.get(Array.newInstance(type, 1), 0)
+               : null;
+    }
+    
+    private static final class Call {
+        
+        private final MethodInvocationPlan      plan;
+        private final String                    url;
+        private final String                    path;
+        private final CompletableFuture<Object> result;
+        
+        private Call(MethodInvocationPlan plan, String url, String path) {
+            this.plan = plan;
+            this.url = url;
+            this.path = path;
+            this.result = new CompletableFuture<>();
+        }
+    }
+    
+    private final class Recorder implements InvocationHandler {
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            MethodInvocationPlan plan = plans.get(method);
+            if(plan == null) {
+                if(Object.class.equals(method.getDeclaringClass())) {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            return "RestBatch[" + batchUrl + "]";
+                    }
+                }
+                throw new UnsupportedOperationException("not a rest method: " + method);
+            }
+            String url  = plan.buildUrl(args);
+            Call   call = new Call(plan, url, url.substring(server.length()));
+            calls.add(call);
+            return plan.isAsync()
+                   ? call.result
+                   : defaultValue(method.getReturnType());
+        }
+    }
+}
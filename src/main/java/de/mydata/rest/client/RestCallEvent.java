@@ -0,0 +1,130 @@
+package de.mydata.rest.client;
+
+import de.mydata.http.CallTrace;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+
+/**
+ * One finished call of a {@link RestConnection} proxy. Phases not observed are -1, see {@link CallTrace}.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+public final class RestCallEvent {
+    
+    private final Method    method;
+    private final String    url;
+    private final boolean   async;
+    private final CallTrace trace;
+    private final int       status;
+    private final long      decodeNanos;
+    private final long      totalNanos;
+    private final Throwable error;
+    private final boolean   cacheHit;
+    
+    RestCallEvent(Method method, String url, boolean async, CallTrace trace, int status, long decodeNanos, Throwable error, boolean cacheHit) {
+        this.method = method;
+        this.url = url;
+        this.async = async;
+        this.trace = trace;
+        this.status = status;
+        this.decodeNanos = decodeNanos;
+        this.totalNanos = System.nanoTime() - trace.getStart();
+        this.error = error;
+        this.cacheHit = cacheHit;
+    }
+    
+    /**
+     * @return the service interface method
+     */
+    public Method getMethod() {
+        return method;
+    }
+    
+    public String getUrl() {
+        return url;
+    }
+    
+    public boolean isAsync() {
+        return async;
+    }
+    
+    /**
+     * @return http status, 304 for a revalidated cache entry, 200 for a fresh one, -1 if no response arrived
+     */
+    public int getStatus() {
+        return status;
+    }
+    
+    /**
+     * @return the exception the call failed with, <code>null</code> also for a status other than 200
+     */
+    public Throwable getError() {
+        return error;
+    }
+    
+    public boolean isFailed() {
+        return error != null;
+    }
+    
+    /**
+     * @return a response with another status than 200, the proxy returned <code>null</code> for it
+     */
+    public boolean isNotOk() {
+        return error == null && !cacheHit && status != 200;
+    }
+    
+    /**
+     * @return the result came from the {@link ResponseCache}, without or with a conditional request
+     */
+    public boolean isCacheHit() {
+        return cacheHit;
+    }
+    
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+    
+    public long getPoolWaitNanos() {
+        return trace.getPoolWaitNanos();
+    }
+    
+    public long getConnectNanos() {
+        return trace.getConnectNanos();
+    }
+    
+    public long getTimeToFirstByteNanos() {
+        return trace.getTimeToFirstByteNanos();
+    }
+    
+    public long getDecodeNanos() {
+        return decodeNanos;
+    }
+    
+    public long getBytesSent() {
+        return trace.getBytesSent();
+    }
+    
+    public long getBytesReceived() {
+        return trace.getBytesReceived();
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("[%s %s; status: %d%s; total: %s; ttfb: %s; decode: %s; in: %d B; out: %d B%s]",
+                             method.getName(), url, status, cacheHit
+                                                            ? " (cached)"
+                                                            : "",
+                             millis(totalNanos), millis(getTimeToFirstByteNanos()),
+                             millis(decodeNanos), getBytesReceived(), getBytesSent(),
+                             error == null
+                             ? ""
+                             : "; error: " + error);
+    }
+    
+    private static String millis(long nanos) {
+        return nanos < 0
+               ? "-"
+               : String.format(Locale.ROOT, "%.3f ms", nanos / 1e6);
+    }
+}
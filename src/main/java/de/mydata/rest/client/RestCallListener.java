@@ -0,0 +1,15 @@
+package de.mydata.rest.client;
+
+/**
+ * Gets every call of a {@link RestConnection} proxy, after the response was decoded or the call failed. Add one to a
+ * connection with {@link RestConnection#addListener(RestCallListener)} or to all connections by naming the
+ * implementation in <code>META-INF/services/de.mydata.rest.client.RestCallListener</code>.
+ * <p>
+ * Listeners are called on the calling thread, for asynchronous calls on a thread of the engine, so keep them short.
+ *
+ * @author Bjoern Frohberg, mydata GmbH
+ */
+public interface RestCallListener {
+    
+    void onCall(RestCallEvent event);
+}
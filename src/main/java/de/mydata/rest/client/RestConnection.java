@@ -1,35 +1,106 @@
 package de.mydata.rest.client;
 
+import de.mydata.http.BufferedResponse;
+import de.mydata.http.CallTrace;
+import de.mydata.http.RestAsyncClientEngine;
+import de.mydata.http.RestClientEngine;
 import de.mydata.http.RestRequest;
-import de.mydata.http.RestResponse;
+import de.mydata.log.Log;
+import de.mydata.log.Logger;
 import de.mydata.rest.server.JettyRestServer;
 import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
 
 import javax.ws.rs.Path;
-import javax.ws.rs.Produces;
-import javax.ws.rs.core.MediaType;
 import java.io.IOException;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static javax.ws.rs.core.HttpHeaders.ACCEPT;
+import static javax.ws.rs.core.HttpHeaders.CONTENT_TYPE;
 
 /**
  * @author Bjoern Frohberg, mydata GmbH
  */
 public class RestConnection<T extends JettyRestServer.IRestService> {
     
-    private String           service;
-    private T                ref;
+    /**
+     * Listeners named in <code>META-INF/services/de.mydata.rest.client.RestCallListener</code>
+     */
+    private static final List<RestCallListener> INSTALLED_LISTENERS = loadListeners();
+    
+    private static final Logger LOG = Log.getLogger(RestConnection.class);
+    
+    private String                            server;
+    private String                            service;
+    private Class<T>                          serviceType;
+    private T                                 ref;
+    private Map<Method, MethodInvocationPlan> plans;
+    private RestClientEngine                  engine;
+    private volatile RestAsyncClientEngine    asyncEngine;
+    private ClientMetrics                     metrics;
+    private List<RestCallListener>            listeners;
+    private volatile ResponseCache            cache;
     
     public static <T extends JettyRestServer.IRestService> RestConnection<T> consume(String host, int port, String resourcePath, Class<T> service) {
+        return consume(RestClientEngine.getDefault(), host, port, resourcePath, service);
+    }
+    
+    /**
+     * @param engine http client to use, may be shared between connections
+     */
+    public static <T extends JettyRestServer.IRestService> RestConnection<T> consume(RestClientEngine engine, String host, int port, String resourcePath, Class<T> service) {
         RestConnection<T> serviceResource = new RestConnection<T>();
-        serviceResource.service = host + ":" + port + resourcePath;
+        serviceResource.engine = engine;
+        serviceResource.server = host + ":" + port;
+        serviceResource.service = serviceResource.server + resourcePath;
+        serviceResource.serviceType = service;
+        RestResourceHandler handler = new RestResourceHandler(serviceResource, service);
+        serviceResource.plans = handler.plans;
+        serviceResource.metrics = new ClientMetrics(handler.plans.keySet());
+        serviceResource.listeners = new CopyOnWriteArrayList<>();
+        serviceResource.listeners.add(serviceResource.metrics);
+        serviceResource.listeners.addAll(INSTALLED_LISTENERS);
         //noinspection unchecked
         serviceResource.ref = (T) Proxy.newProxyInstance(service.getClassLoader(),
                                                          new Class<?>[]{service},
-                                                         new RestResourceHandler(serviceResource));
+                                                         handler);
+        return serviceResource;
+    }
+    
+    private static List<RestCallListener> loadListeners() {
+        List<RestCallListener> listeners = new ArrayList<>();
+        for (RestCallListener listener : ServiceLoader.load(RestCallListener.class, RestConnection.class.getClassLoader())) {
+            listeners.add(listener);
+        }
+        return Collections.unmodifiableList(listeners);
+    }
+    
+    /**
+     * Like {@link #consume(String, int, String, Class)}, but uses a non blocking engine for service methods
+     * returning a {@link CompletableFuture}.
+     */
+    public static <T extends JettyRestServer.IRestService> RestConnection<T> consumeAsync(String host, int port, String resourcePath, Class<T> service) {
+        return consumeAsync(RestAsyncClientEngine.getDefault(), host, port, resourcePath, service);
+    }
+    
+    /**
+     * @param asyncEngine an engine created with {@link RestAsyncClientEngine.AsyncEngineConfigFactory#useHttp2()}
+     *                    multiplexes all calls over one connection to the server
+     */
+    public static <T extends JettyRestServer.IRestService> RestConnection<T> consumeAsync(RestAsyncClientEngine asyncEngine, String host, int port, String resourcePath, Class<T> service) {
+        RestConnection<T> serviceResource = consume(host, port, resourcePath, service);
+        serviceResource.asyncEngine = asyncEngine;
         return serviceResource;
     }
     
@@ -40,49 +111,348 @@ public class RestConnection<T extends JettyRestServer.IRestService> {
         return ref;
     }
     
+    public RestClientEngine getEngine() {
+        return engine;
+    }
+    
+    /**
+     * @return engine for service methods returning a {@link CompletableFuture}, the default one if none was given
+     */
+    public RestAsyncClientEngine getAsyncEngine() {
+        RestAsyncClientEngine engine = asyncEngine;
+        if(engine == null) {
+            synchronized (this) {
+                engine = asyncEngine;
+                if(engine == null) {
+                    asyncEngine = engine = RestAsyncClientEngine.getDefault();
+                }
+            }
+        }
+        return engine;
+    }
+    
+    /**
+     * @return pool usage of the route to this service
+     */
+    public RestClientEngine.PoolStats getPoolStats() {
+        return engine.getPoolStats(service);
+    }
+    
+    /**
+     * @return latencies per phase, bytes and failures of the calls per service method
+     */
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * @param cache answers GET calls from stored responses, may be shared with other connections, <code>null</code>
+     *              to call the server every time
+     */
+    public RestConnection<T> setCache(ResponseCache cache) {
+        this.cache = cache;
+        return this;
+    }
+    
+    public ResponseCache getCache() {
+        return cache;
+    }
+    
+    /**
+     * Gathers calls to send them to the server in one request, see {@link RestBatch}. The server has to enable
+     * batching at <code>/batch</code>.
+     */
+    public RestBatch<T> batch() {
+        return batch("/batch");
+    }
+    
+    /**
+     * @param batchPath of the batch endpoint of the server
+     */
+    public RestBatch<T> batch(String batchPath) {
+        return new RestBatch<>(this, serviceType, plans, server, batchPath);
+    }
+    
+    public RestConnection<T> addListener(RestCallListener listener) {
+        listeners.add(listener);
+        return this;
+    }
+    
+    public RestConnection<T> removeListener(RestCallListener listener) {
+        listeners.remove(listener);
+        return this;
+    }
+    
+    private void fireCall(MethodInvocationPlan plan, String url, CallTrace trace, long decodeNanos, Throwable error) {
+        fireCall(plan, url, trace, trace.getStatus(), decodeNanos, error, false);
+    }
+    
+    void fireCall(MethodInvocationPlan plan, String url, CallTrace trace, int status, long decodeNanos, Throwable error, boolean cacheHit) {
+        RestCallEvent event = new RestCallEvent(plan.getMethod(), url, plan.isAsync(), trace, status, decodeNanos, error, cacheHit);
+        for (RestCallListener listener : listeners) {
+            try {
+                listener.onCall(event);
+            } catch (RuntimeException e) {
+                LOG.warn("call listener %s failed: %s", listener.getClass().getName(), e);
+            }
+        }
+    }
+    
     private static class RestResourceHandler implements InvocationHandler {
         
         private final RestConnection<? extends JettyRestServer.IRestService> serviceResource;
+        private final Map<Method, MethodInvocationPlan>                      plans;
         
-        public <T extends JettyRestServer.IRestService> RestResourceHandler(RestConnection<T> serviceResource) {
+        /**
+         * Proxies pass copies of the interface methods, so the plans are looked up by {@link Method#equals}, not by
+         * identity. Both hash and equals are cheap field comparisons.
+         */
+        public <T extends JettyRestServer.IRestService> RestResourceHandler(RestConnection<T> serviceResource, Class<T> service) {
             this.serviceResource = serviceResource;
+            this.plans = MethodInvocationPlan.compile(serviceResource.service, service);
         }
         
         @Override
         public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-            String url = serviceResource.service;
-            url += method.getAnnotation(Path.class).value();
+            MethodInvocationPlan plan = plans.get(method);
+            if(plan == null) {
+                return invokeUnmapped(proxy, method, args);
+            }
             
-            Matcher matcher = Pattern.compile("(?<p>\\{.*\\})").matcher(url);
-            if(matcher.find()) {
-                for (int i = 1; i < matcher.groupCount(); i++) {
-                    String pName = matcher.group(i);
-                    url = url.replace(pName, String.valueOf(args[i - 1]));
+            String        url   = plan.buildUrl(args);
+            ResponseCache cache = serviceResource.cache;
+            if(cache != null) {
+                CompletableFuture<Object> cached = requestCached(url, plan, cache);
+                if(plan.isAsync()) {
+                    return cached;
+                }
+                try {
+                    return cached.join();
+                } catch (CompletionException e) {
+                    throw rethrowable(e, method);
                 }
             }
+            if(plan.isAsync()) {
+                return requestAsync(url, plan);
+            }
     
-            Object content = request(url, method);
-            System.out.println(String.format("[RESULT] - %s", String.valueOf(content)));
+            Object content = request(url, plan);
+            LOG.trace(() -> "RESULT: " + Log.abbreviate(content));
             return content;
         }
+        
+        private Object invokeUnmapped(Object proxy, Method method, Object[] args) {
+            if(Object.class.equals(method.getDeclaringClass())) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "RestConnection[" + serviceResource.service + "]";
+                }
+            }
+            throw new UnsupportedOperationException(String.format("Your rest client method must have a %s-annotation! in %s method '%s'",
+                                                                  Path.class.getCanonicalName(),
+                                                                  method.getDeclaringClass().getCanonicalName(),
+                                                                  method.getName()));
+        }
+        
+        private CompletableFuture<Object> requestAsync(String url, MethodInvocationPlan plan) {
+            if(plan.getAccept() != null) {
+                return requestNegotiated(url, plan);
+            }
+            CallTrace                 trace  = new CallTrace();
+            CompletableFuture<Object> result = new CompletableFuture<>();
+            serviceResource.getAsyncEngine()
+                           .getRequestContent(url, plan.getResponseType(), trace)
+                           .whenComplete((content, failure) -> {
+                               Object    value       = null;
+                               Throwable error       = failure;
+                               long      decodeNanos = -1;
+                               if(failure == null && content != null) {
+                                   long start = System.nanoTime();
+                                   try {
+                                       value = plan.decode(content);
+                                       decodeNanos = System.nanoTime() - start;
+                                   } catch (Throwable e) {
+                                       error = e;
+                                   }
+                               }
+                               serviceResource.fireCall(plan, url, trace, decodeNanos, unwrap(error));
+                               if(error != null) {
+                                   result.completeExceptionally(error);
+                               } else {
+                                   result.complete(value);
+                               }
+                           });
+            return result;
+        }
     
-        private Object request(String url, Method method) throws IOException {
-            String contentType = MediaType.TEXT_PLAIN;
-            if(method.isAnnotationPresent(Produces.class)) {
-                contentType = method.getAnnotation(Produces.class).value()[0];
+        /**
+         * Offering a binary format, the answer is decoded by the content type the server chose
+         */
+        private CompletableFuture<Object> requestNegotiated(String url, MethodInvocationPlan plan) {
+            CallTrace                 trace  = new CallTrace();
+            CompletableFuture<Object> result = new CompletableFuture<>();
+            send(url, plan, Collections.emptyMap(), trace).whenComplete((response, failure) -> {
+                Object    value       = null;
+                Throwable error       = failure;
+                long      decodeNanos = -1;
+                if(failure == null && response.getStatus() == 200) {
+                    long start = System.nanoTime();
+                    try {
+                        value = plan.decode(response.getContent(), response.getHeader(CONTENT_TYPE));
+                        decodeNanos = System.nanoTime() - start;
+                    } catch (Throwable e) {
+                        error = e;
+                    }
+                }
+                serviceResource.fireCall(plan, url, trace, decodeNanos, unwrap(error));
+                if(error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+            return result;
+        }
+        
+        private Object request(String url, MethodInvocationPlan plan) throws IOException {
+            CallTrace trace       = new CallTrace();
+            long      decodeNanos = -1;
+            try {
+                HttpResponse response = RestRequest.doRequestOrNull(serviceResource.engine, RestRequest.GET.request(url, plan.getResponseType(), plan.getAccept()), trace);
+                if(response == null) {
+                    serviceResource.fireCall(plan, url, trace, decodeNanos, null);
+                    return null;
+                }
+                long   start   = System.nanoTime();
+                Object content = plan.decode(response);
+                decodeNanos = System.nanoTime() - start;
+                serviceResource.fireCall(plan, url, trace, decodeNanos, null);
+                return content;
+            } catch (IOException | RuntimeException e) {
+                serviceResource.fireCall(plan, url, trace, decodeNanos, unwrap(e));
+                throw e;
+            }
+        }
+        
+        /**
+         * Answers from the cache while the entry is fresh, revalidates a stale one with a conditional request.
+         */
+        private CompletableFuture<Object> requestCached(String url, MethodInvocationPlan plan, ResponseCache cache) {
+            String              key   = ResponseCache.key(url, plan.getResponseType());
+            CallTrace           trace = new CallTrace();
+            ResponseCache.Entry entry = cache.get(key);
+            if(entry != null && entry.isFresh()) {
+                cache.hit();
+                long   start = System.nanoTime();
+                Object value = decodeCached(entry, plan);
+                serviceResource.fireCall(plan, url, trace, 200, System.nanoTime() - start, null, true);
+                return CompletableFuture.completedFuture(value);
             }
             
-            MediaType responseType = MediaType.valueOf(contentType);
-            
-            HttpResponse response = RestRequest.doRequestOrNull(RestRequest.GET.request(url, responseType));
-            if(response != null) {
-                try {
-                    return RestResponse.readObject(response, method.getReturnType());
-                } catch (ClassNotFoundException e) {
-                    throw new RuntimeException(e);
+            Map<String, String> validators = entry == null
+                                             ? Collections.emptyMap()
+                                             : entry.getValidators();
+            CompletableFuture<Object> result = new CompletableFuture<>();
+            send(url, plan, validators, trace).whenComplete((response, failure) -> {
+                Object    value       = null;
+                Throwable error       = failure;
+                long      decodeNanos = -1;
+                boolean   hit         = false;
+                if(failure == null) {
+                    try {
+                        long start = System.nanoTime();
+                        if(response.getStatus() == 304 && entry != null) {
+                            cache.revalidated(entry, response);
+                            hit = true;
+                            value = decodeCached(entry, plan);
+                            decodeNanos = System.nanoTime() - start;
+                        } else if(response.getStatus() == 200) {
+                            cache.miss();
+                            value = plan.decode(response.getContent(), response.getHeader(CONTENT_TYPE));
+                            decodeNanos = System.nanoTime() - start;
+                            cache.store(key, response, plan.getContentType(), value);
+                        } else {
+                            cache.miss();
+                            cache.remove(key);
+                        }
+                    } catch (Throwable e) {
+                        error = e;
+                    }
+                }
+                serviceResource.fireCall(plan, url, trace, trace.getStatus(), decodeNanos, unwrap(error), hit);
+                if(error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
                 }
+            });
+            return result;
+        }
+        
+        private static Object decodeCached(ResponseCache.Entry entry, MethodInvocationPlan plan) {
+            return entry.isShared()
+                   ? entry.getDecoded()
+                   : plan.decode(entry.getContent(), entry.getMediaType());
+        }
+        
+        private CompletableFuture<BufferedResponse> send(String url, MethodInvocationPlan plan, Map<String, String> headers, CallTrace trace) {
+            if(plan.getAccept() != null) {
+                headers = new HashMap<>(headers);
+                headers.put(ACCEPT, plan.getAccept());
+            }
+            if(plan.isAsync()) {
+                return serviceResource.getAsyncEngine().getResponse(url, plan.getResponseType(), headers, trace);
+            }
+            CompletableFuture<BufferedResponse> response = new CompletableFuture<>();
+            HttpUriRequest                      request  = RestRequest.GET.request(url, plan.getResponseType());
+            headers.forEach(request::addHeader);
+            try {
+                LOG.debug("SEND TO: %s ...", url);
+                response.complete(BufferedResponse.read(serviceResource.engine.execute(request, trace)));
+            } catch (IOException e) {
+                // like RestRequest#doRequestOrNull
+                response.completeExceptionally(new RuntimeException(e));
+            } catch (RuntimeException e) {
+                response.completeExceptionally(e);
+            }
+            return response;
+        }
+        
+        /**
+         * Checked causes the method does not declare are wrapped in a {@link RuntimeException} like
+         * {@link RestRequest#doRequestOrNull} wraps them, the proxy would throw an
+         * {@link java.lang.reflect.UndeclaredThrowableException} otherwise.
+         *
+         * @return the cause of the failed future to throw from the method
+         */
+        private static Throwable rethrowable(CompletionException failure, Method method) {
+            Throwable cause = failure.getCause() == null
+                              ? failure
+                              : failure.getCause();
+            if(cause instanceof RuntimeException || cause instanceof Error) {
+                return cause;
+            }
+            for (Class<?> declared : method.getExceptionTypes()) {
+                if(declared.isInstance(cause)) {
+                    return cause;
+                }
+            }
+            return new RuntimeException(cause);
+        }
+        
+        /**
+         * @return the cause of the wrappers {@link RestRequest} and {@link CompletableFuture} add
+         */
+        private static Throwable unwrap(Throwable error) {
+            while ((error instanceof CompletionException || error != null && RuntimeException.class.equals(error.getClass()))
+                   && error.getCause() != null) {
+                error = error.getCause();
             }
-            return null;
+            return error;
         }
     }
-}
\ No newline at end of file
+}
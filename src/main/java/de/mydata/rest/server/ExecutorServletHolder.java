@@ -0,0 +1,433 @@
+package de.mydata.rest.server;
+
+import de.mydata.log.Log;
+import de.mydata.log.Logger;
+import de.mydata.rest.server.file.ContentOutput;
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.servlet.ServletHolder;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Servlet;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds the jersey servlet and runs it, i.e. jersey and the resource method, on an own {@link Executor}. The jetty
+ * thread runs the filters, suspends the request and returns; acceptors and selectors stay on jetty's pool.
+ * <p>
+ * Resource methods using jersey's own async support ({@code @Suspended}) are not supported in this mode.
+ * <p>
+ * Requests running longer than the timeout are answered with <code>503</code>, the method keeps running on the
+ * executor but its response is dropped.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public class ExecutorServletHolder extends ServletHolder {
+
+	private static final Logger LOG = Log.getLogger(ExecutorServletHolder.class);
+
+	private final Executor      executor;
+	private final long          asyncTimeout;
+	private final AtomicBoolean warnedSynchronous;
+
+	/**
+	 * @param asyncTimeout max millis a request may run on the executor, 0 for no limit
+	 */
+	public ExecutorServletHolder(Class<? extends Servlet> servlet, Executor executor, long asyncTimeout) {
+		super(servlet);
+		this.executor = executor;
+		this.asyncTimeout = asyncTimeout;
+		warnedSynchronous = new AtomicBoolean();
+		setAsyncSupported(true);
+	}
+
+	@Override
+	public void handle(Request baseRequest, ServletRequest request, ServletResponse response) throws ServletException, IOException {
+		if(!request.isAsyncSupported()) {
+			if(warnedSynchronous.compareAndSet(false, true)) {
+				LOG.warn("a filter in front of %s does not support async, its requests run on jetty's threads without timeout", getName());
+			}
+			super.handle(baseRequest, request, response);
+			return;
+		}
+
+		Servlet        servlet    = getServlet();
+		ServletRequest dispatched = new DispatchedRequest((HttpServletRequest) request);
+		AtomicBoolean  done       = new AtomicBoolean();
+		ReentrantLock  writing    = new ReentrantLock();
+		// the executor thread answers through it, it must not touch the response once the timeout answered
+		GuardedResponse guarded = new GuardedResponse((HttpServletResponse) response, done, writing);
+		AsyncContext    async   = request.startAsync(dispatched, response);
+		async.setTimeout(asyncTimeout);
+		async.addListener(new AsyncListener() {
+			@Override
+			public void onTimeout(AsyncEvent event) {
+				if(!done.compareAndSet(false, true)) {
+					return;
+				}
+				// a write in progress keeps its response, the following ones fail
+				if(writing.tryLock()) {
+					try {
+						sendError(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+					} finally {
+						writing.unlock();
+					}
+				}
+				async.complete();
+			}
+
+			@Override
+			public void onComplete(AsyncEvent event) {
+			}
+
+			@Override
+			public void onError(AsyncEvent event) {
+				done.set(true);
+			}
+
+			@Override
+			public void onStartAsync(AsyncEvent event) {
+			}
+		});
+		try {
+			executor.execute(() -> {
+				try {
+					if(!done.get()) {
+						servlet.service(dispatched, guarded);
+					}
+				} catch (Throwable e) {
+					if(!done.get()) {
+						LOG.error("resource invocation failed", e);
+						guarded.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+					}
+				} finally {
+					if(done.compareAndSet(false, true)) {
+						async.complete();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			if(done.compareAndSet(false, true)) {
+				sendError(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+				async.complete();
+			}
+		}
+	}
+
+	/**
+	 * Jetty resets the servlet path and path info of the request when the dispatch on its thread returns, which may be
+	 * before the executor runs jersey. Keeps the values of the original dispatch.
+	 */
+	private static final class DispatchedRequest extends HttpServletRequestWrapper {
+		
+		private final String       contextPath;
+		private final String       servletPath;
+		private final String       pathInfo;
+		private final String       requestURI;
+		private final StringBuffer requestURL;
+		private final String       queryString;
+		
+		private DispatchedRequest(HttpServletRequest request) {
+			super(request);
+			contextPath = request.getContextPath();
+			servletPath = request.getServletPath();
+			pathInfo = request.getPathInfo();
+			requestURI = request.getRequestURI();
+			requestURL = request.getRequestURL();
+			queryString = request.getQueryString();
+		}
+		
+		@Override
+		public String getContextPath() {
+			return contextPath;
+		}
+		
+		@Override
+		public String getServletPath() {
+			return servletPath;
+		}
+		
+		@Override
+		public String getPathInfo() {
+			return pathInfo;
+		}
+		
+		@Override
+		public String getRequestURI() {
+			return requestURI;
+		}
+		
+		@Override
+		public StringBuffer getRequestURL() {
+			return new StringBuffer(requestURL);
+		}
+		
+		@Override
+		public String getQueryString() {
+			return queryString;
+		}
+	}
+	
+	/**
+	 * The response as the executor thread sees it. Once the request is done, i.e. answered by the timeout, writes fail
+	 * and headers are ignored: jetty recycles the response, it may belong to the next request of the connection
+	 * already. Writes hold a lock, so the timeout does not answer in the middle of one. It is a {@link ReentrantLock}
+	 * rather than a monitor, a virtual thread blocked in a write must not pin its carrier.
+	 */
+	private static final class GuardedResponse extends HttpServletResponseWrapper {
+		
+		private final AtomicBoolean done;
+		private final ReentrantLock writing;
+		private       PrintWriter   writer;
+		
+		private GuardedResponse(HttpServletResponse response, AtomicBoolean done, ReentrantLock writing) {
+			super(response);
+			this.done = done;
+			this.writing = writing;
+		}
+		
+		private HttpServletResponse response() {
+			return (HttpServletResponse) getResponse();
+		}
+		
+		/**
+		 * Runs the change of the response unless the request is done.
+		 */
+		private void unlessDone(Runnable change) {
+			writing.lock();
+			try {
+				if(!done.get()) {
+					change.run();
+				}
+			} finally {
+				writing.unlock();
+			}
+		}
+		
+		@Override
+		public void setStatus(int status) {
+			unlessDone(() -> response().setStatus(status));
+		}
+		
+		@Override
+		@SuppressWarnings("deprecation")
+		public void setStatus(int status, String message) {
+			unlessDone(() -> response().setStatus(status, message));
+		}
+		
+		@Override
+		public void sendError(int status) {
+			unlessDone(() -> ExecutorServletHolder.sendError(response(), status));
+		}
+		
+		@Override
+		public void sendError(int status, String message) {
+			sendError(status);
+		}
+		
+		@Override
+		public void setHeader(String name, String value) {
+			unlessDone(() -> response().setHeader(name, value));
+		}
+		
+		@Override
+		public void addHeader(String name, String value) {
+			unlessDone(() -> response().addHeader(name, value));
+		}
+		
+		@Override
+		public void setIntHeader(String name, int value) {
+			setHeader(name, String.valueOf(value));
+		}
+		
+		@Override
+		public void addIntHeader(String name, int value) {
+			addHeader(name, String.valueOf(value));
+		}
+		
+		@Override
+		public void setDateHeader(String name, long date) {
+			unlessDone(() -> response().setDateHeader(name, date));
+		}
+		
+		@Override
+		public void addDateHeader(String name, long date) {
+			unlessDone(() -> response().addDateHeader(name, date));
+		}
+		
+		@Override
+		public void setContentType(String type) {
+			unlessDone(() -> response().setContentType(type));
+		}
+		
+		@Override
+		public void setContentLength(int length) {
+			setContentLengthLong(length);
+		}
+		
+		@Override
+		public void setContentLengthLong(long length) {
+			unlessDone(() -> response().setContentLengthLong(length));
+		}
+		
+		@Override
+		public void flushBuffer() throws IOException {
+			writing.lock();
+			try {
+				checkNotDone();
+				response().flushBuffer();
+			} finally {
+				writing.unlock();
+			}
+		}
+		
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			ServletOutputStream out = response().getOutputStream();
+			return out instanceof HttpOutput
+			       ? new GuardedHttpOutput((HttpOutput) out)
+			       : new GuardedOutput(out);
+		}
+		
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			if(writer == null) {
+				writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+			}
+			return writer;
+		}
+		
+		private void checkNotDone() throws IOException {
+			if(done.get()) {
+				throw new IOException("the request timed out");
+			}
+		}
+		
+		private class GuardedOutput extends ServletOutputStream {
+			
+			private final ServletOutputStream out;
+			
+			private GuardedOutput(ServletOutputStream out) {
+				this.out = out;
+			}
+			
+			@Override
+			public void write(int b) throws IOException {
+				writing.lock();
+				try {
+					checkNotDone();
+					out.write(b);
+				} finally {
+					writing.unlock();
+				}
+			}
+			
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				writing.lock();
+				try {
+					checkNotDone();
+					out.write(b, off, len);
+				} finally {
+					writing.unlock();
+				}
+			}
+			
+			@Override
+			public void flush() throws IOException {
+				writing.lock();
+				try {
+					checkNotDone();
+					out.flush();
+				} finally {
+					writing.unlock();
+				}
+			}
+			
+			@Override
+			public void close() throws IOException {
+				writing.lock();
+				try {
+					if(!done.get()) {
+						out.close();
+					}
+				} finally {
+					writing.unlock();
+				}
+			}
+			
+			@Override
+			public boolean isReady() {
+				return out.isReady();
+			}
+			
+			@Override
+			public void setWriteListener(WriteListener listener) {
+				out.setWriteListener(listener);
+			}
+		}
+		
+		/**
+		 * Hands file regions to jetty under the same guard as the writes.
+		 */
+		private final class GuardedHttpOutput extends GuardedOutput implements ContentOutput {
+			
+			private final HttpOutput out;
+			
+			private GuardedHttpOutput(HttpOutput out) {
+				super(out);
+				this.out = out;
+			}
+			
+			@Override
+			public void sendContent(ByteBuffer content) throws IOException {
+				writing.lock();
+				try {
+					checkNotDone();
+					out.sendContent(content);
+				} finally {
+					writing.unlock();
+				}
+			}
+			
+			@Override
+			public void sendContent(ReadableByteChannel content) throws IOException {
+				writing.lock();
+				try {
+					checkNotDone();
+					out.sendContent(content);
+				} finally {
+					writing.unlock();
+				}
+			}
+		}
+	}
+	
+	private static void sendError(ServletResponse response, int status) {
+		if(!response.isCommitted()) {
+			try {
+				((HttpServletResponse) response).sendError(status);
+			} catch (IOException | IllegalStateException ignored) {
+			}
+		}
+	}
+}
@@ -11,4 +11,15 @@ public interface IEmbeddedRestServer {
      * @throws Exception
      */
     void execute() throws Exception;
+
+    /**
+     * Stops taking new requests and waits for the ones in flight, before the server is stopped.
+     *
+     * Servers that cannot drain throw an {@link UnsupportedOperationException}.
+     *
+     * @return <code>false</code> if requests were still in flight after the timeout
+     */
+    default boolean drain() throws InterruptedException {
+        throw new UnsupportedOperationException(getClass().getName() + " cannot drain its requests");
+    }
 }
@@ -1,12 +1,51 @@
 package de.mydata.rest.server;
 
 import de.mydata.http.RestRequest;
+import de.mydata.log.Level;
+import de.mydata.log.Log;
+import de.mydata.log.Logger;
+import de.mydata.rest.server.admission.AdmissionController;
+import de.mydata.rest.server.admission.AdmissionFeature;
+import de.mydata.rest.server.admission.AdmissionLimit;
+import de.mydata.rest.server.admission.AdmissionListener;
+import de.mydata.rest.server.admission.ConnectionLimiter;
+import de.mydata.rest.server.admission.LowResourcesHandler;
+import de.mydata.rest.server.batch.BatchServlet;
+import de.mydata.rest.server.cache.InFlightRequests;
+import de.mydata.rest.server.cache.ResourceResponseCache;
+import de.mydata.rest.server.cache.ResponseCacheFeature;
+import de.mydata.rest.server.cache.SingleFlightFeature;
+import de.mydata.rest.server.cache.SingleFlightListener;
+import de.mydata.rest.server.file.FileRegion;
+import de.mydata.rest.server.file.FileRegionFilter;
+import de.mydata.rest.server.file.FileRegionWriter;
+import de.mydata.rest.server.file.MappedFileCache;
+import de.mydata.rest.server.lifecycle.DrainHandler;
+import de.mydata.rest.server.lifecycle.ReadinessServlet;
+import de.mydata.rest.server.lifecycle.ReusePortConnector;
+import de.mydata.rest.server.metrics.RestMetrics;
+import de.mydata.rest.server.metrics.RestMetricsListener;
+import de.mydata.rest.server.metrics.RestMetricsServlet;
 import org.apache.http.HttpVersion;
+import org.eclipse.jetty.alpn.server.ALPNServerConnectionFactory;
+import org.eclipse.jetty.http2.ErrorCode;
+import org.eclipse.jetty.http2.HTTP2Cipher;
+import org.eclipse.jetty.http2.api.Session;
+import org.eclipse.jetty.http2.server.AbstractHTTP2ServerConnectionFactory;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.http2.server.HTTP2ServerConnectionFactory;
 import org.eclipse.jetty.server.*;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.eclipse.jetty.servlet.DefaultServlet;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.BlockingArrayQueue;
+import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.component.LifeCycle;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.glassfish.jersey.CommonProperties;
+import org.glassfish.jersey.servlet.ServletContainer;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
 import org.springframework.core.type.filter.AssignableTypeFilter;
@@ -18,6 +57,11 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
 
 import static java.lang.Math.max;
 import static java.lang.String.format;
@@ -28,48 +72,742 @@ import static java.lang.String.format;
 public class JettyRestServer extends Server implements IEmbeddedRestServer {
 	
 	public static final boolean CHECK_PATH_ON_SERVICE_TYPE = true;
+	/**
+	 * @deprecated use {@link Log#setLevel(Level)}, <code>false</code> raises the level to {@link Level#ERROR} when a
+	 * server is created
+	 */
+	@Deprecated
 	public static       boolean WARNINGS_ALLOWED           = true;
+	/**
+	 * @deprecated use {@link Log#setLevel(Level)}, <code>false</code> raises the level to {@link Level#WARN} when a
+	 * server is created
+	 */
+	@Deprecated
 	public static       boolean DEBUG_OK_ALLOWED           = true;
 	
+	private static final Logger LOG = Log.getLogger(JettyRestServer.class);
+	
 	private static final String DEFAULT_PATH = "/";
 	
 	private static final String PATH_MATCHER_ANY = DEFAULT_PATH + "*";
+	
+	/**
+	 * Time for stopping the server after a drain, before the log sink closes regardless
+	 */
+	private static final long SHUTDOWN_LOG_MARGIN_MILLIS = 5000;
 	private final int                                   port;
+	private final ServerConfigFactory                   config;
 	private final ServletContextHandler                 context;
+	private final DrainHandler                          drainHandler;
 	private final ServletHolder                         jerseyServlet;
+	private final ServiceDiscovery                      discovery;
+	private final RestMetrics                           metrics;
+	private final ResourceResponseCache                 responseCache;
+	private final InFlightRequests                      inFlightRequests;
+	private final AdmissionController                   admission;
+	private final MappedFileCache                       fileCache;
 	private final Collection<String>                    typeNames;
 	private final Collection<Map.Entry<String, Method>> resourcesFound;
 	
 	public JettyRestServer(int port, boolean sessions, String... servicePackageNames) {
-		super(port);
-		this.port = port;
+		this(configure(port), sessions, servicePackageNames);
+	}
+	
+	/**
+	 * @param config thread pool and connector settings, see {@link #configure(int)}
+	 */
+	public JettyRestServer(ServerConfigFactory config, boolean sessions, String... servicePackageNames) {
+		super(config.createThreadPool());
+		applyDeprecatedLogFlags();
+		this.port = config.port;
+		this.config = config;
+		setConnectors(new Connector[]{config.createConnector(this, config.createPlainFactories(new HttpConfiguration()))});
+		
 		context = new ServletContextHandler(sessions
 		                                    ? ServletContextHandler.SESSIONS
 		                                    : ServletContextHandler.NO_SESSIONS);
 		// root path
 		context.setContextPath(DEFAULT_PATH);
-		setHandler(context);
+		drainHandler = new DrainHandler();
+		drainHandler.setHandler(config.installResourceLimits(this, config.wrapCompression(context)));
+		setHandler(drainHandler);
+		if(config.readinessPath != null) {
+			context.addServlet(new ServletHolder(new ReadinessServlet(drainHandler)), config.readinessPath);
+			LOG.info("readiness at http://[host:port]%s", config.readinessPath);
+		}
 		
-		jerseyServlet = context.addServlet(org.glassfish.jersey.servlet.ServletContainer.class, PATH_MATCHER_ANY);
+		jerseyServlet = config.createJerseyServlet();
+		context.addServlet(jerseyServlet, PATH_MATCHER_ANY);
 		jerseyServlet.setInitOrder(0);
 		
 		// Tells the Jersey Servlet which REST service/class to load.
-		typeNames = new ArrayList<>();
-		resourcesFound = new ArrayList<>();
-		for (String servicePackageName : servicePackageNames) {
-			Collection<Class<IRestService>> services = ClassUtils.findClassesOfType(IRestService.class, servicePackageName);
-			for (Class<IRestService> service : services) {
-				if(service.isAnnotationPresent(Deprecated.class)) {
-					System.out.println(format("[WARN] Service '%s' skipped cause of %s-annotation", service.getCanonicalName(), Deprecated.class.getCanonicalName()));
-					continue;
-				}
-				validateServicePathAnnotationOrDie(service);
-				resourcesFound.addAll(warnNoMethods(service));
-				typeNames.add(service.getCanonicalName());
-			}
+		discovery = ServiceDiscovery.discover(config.discoveryParallelism, servicePackageNames);
+		typeNames = discovery.getTypeNames();
+		resourcesFound = discovery.getResourcesFound();
+		Collection<String> providerNames = new ArrayList<>(typeNames);
+		providerNames.add(JsonCodecProvider.class.getName());
+		metrics = config.metricsPath == null
+		          ? null
+		          : installMetrics(config.metricsPath, providerNames);
+		responseCache = config.responseCacheBytes < 0
+		                ? null
+		                : installResponseCache(config.responseCacheBytes, providerNames);
+		inFlightRequests = config.requestCoalescing
+		                   ? installRequestCoalescing(providerNames)
+		                   : null;
+		admission = config.admissionLimits.isEmpty()
+		            ? null
+		            : installAdmissionControl(config.admissionLimits, providerNames);
+		if(config.batchPath != null) {
+			installBatching(config);
 		}
-		String restServices = StringUtils.collectionToCommaDelimitedString(typeNames);
+		fileCache = installFileServing(config, providerNames);
+		String restServices = StringUtils.collectionToCommaDelimitedString(providerNames);
 		jerseyServlet.setInitParameter("jersey.config.server.provider.classnames", restServices);
+		// json goes through JsonCodecProvider, moxy would take precedence
+		jerseyServlet.setInitParameter(CommonProperties.MOXY_JSON_FEATURE_DISABLE, Boolean.TRUE.toString());
+	}
+	
+	@SuppressWarnings("deprecation")
+	private static void applyDeprecatedLogFlags() {
+		Level least = !WARNINGS_ALLOWED
+		              ? Level.ERROR
+		              : DEBUG_OK_ALLOWED
+		                ? null
+		                : Level.WARN;
+		if(least != null && Log.getLevel().compareTo(least) < 0) {
+			Log.setLevel(least);
+		}
+	}
+	
+	private RestMetrics installMetrics(String metricsPath, Collection<String> providerNames) {
+		RestMetrics restMetrics = new RestMetrics();
+		restMetrics.register(resourcesFound);
+		context.setAttribute(RestMetrics.CONTEXT_ATTRIBUTE, restMetrics);
+		context.addServlet(new ServletHolder(new RestMetricsServlet(restMetrics)), metricsPath);
+		providerNames.add(RestMetricsListener.class.getName());
+		addLifeCycleListener(new LifeCycle.Listener() {
+			@Override
+			public void lifeCycleStarting(LifeCycle event) {
+			}
+			
+			@Override
+			public void lifeCycleStarted(LifeCycle event) {
+				restMetrics.registerMBean(port);
+			}
+			
+			@Override
+			public void lifeCycleFailure(LifeCycle event, Throwable cause) {
+			}
+			
+			@Override
+			public void lifeCycleStopping(LifeCycle event) {
+			}
+			
+			@Override
+			public void lifeCycleStopped(LifeCycle event) {
+				restMetrics.unregisterMBean(port);
+			}
+		});
+		LOG.info("metrics at http://[host:port]%s", metricsPath);
+		return restMetrics;
+	}
+	
+	private ResourceResponseCache installResponseCache(long maxBytes, Collection<String> providerNames) {
+		ResourceResponseCache cache = new ResourceResponseCache(maxBytes);
+		context.setAttribute(ResourceResponseCache.CONTEXT_ATTRIBUTE, cache);
+		providerNames.add(ResponseCacheFeature.class.getName());
+		long cached = resourcesFound.stream()
+		                            .filter(resource -> ResponseCacheFeature.isCached(resource.getValue()))
+		                            .count();
+		LOG.info("response cache of %d bytes for %d resources", maxBytes, cached);
+		return cache;
+	}
+	
+	private InFlightRequests installRequestCoalescing(Collection<String> providerNames) {
+		InFlightRequests flights = new InFlightRequests();
+		context.setAttribute(InFlightRequests.CONTEXT_ATTRIBUTE, flights);
+		providerNames.add(SingleFlightFeature.class.getName());
+		providerNames.add(SingleFlightListener.class.getName());
+		long coalesced = resourcesFound.stream()
+		                               .filter(resource -> SingleFlightFeature.isCoalesced(resource.getValue()))
+		                               .count();
+		LOG.info("request coalescing for %d resources", coalesced);
+		return flights;
+	}
+	
+	private AdmissionController installAdmissionControl(Map<String, AdmissionLimit> limits, Collection<String> providerNames) {
+		AdmissionController controller = new AdmissionController(limits);
+		context.setAttribute(AdmissionController.CONTEXT_ATTRIBUTE, controller);
+		providerNames.add(AdmissionFeature.class.getName());
+		providerNames.add(AdmissionListener.class.getName());
+		Collection<String> unknown = controller.unknownResources(resourcesFound);
+		if(!unknown.isEmpty()) {
+			throw new IllegalArgumentException(format("Your admission limits match no rest resource: %s", unknown));
+		}
+		LOG.info("admission limits for %d resources", limits.size());
+		return controller;
+	}
+	
+	private void installBatching(ServerConfigFactory config) {
+		Executor executor = config.resourceExecutor == null
+		                    ? getThreadPool()
+		                    : config.resourceExecutor;
+		context.addServlet(new ServletHolder(new BatchServlet(jerseyServlet, config.batchPath, executor,
+		                                                      config.maxBatchRequests, config.batchParallelism)),
+		                   config.batchPath);
+		LOG.info("batch requests at http://[host:port]%s", config.batchPath);
+	}
+	
+	private MappedFileCache installFileServing(ServerConfigFactory config, Collection<String> providerNames) {
+		MappedFileCache cache = new MappedFileCache(config.maxMappedFiles, config.maxMappedFileSize);
+		context.setAttribute(MappedFileCache.CONTEXT_ATTRIBUTE, cache);
+		providerNames.add(FileRegionWriter.class.getName());
+		providerNames.add(FileRegionFilter.class.getName());
+		config.fileDirectories.forEach((path, directory) -> {
+			ServletHolder files = new ServletHolder(DefaultServlet.class);
+			files.setInitParameter("resourceBase", directory.getAbsolutePath().toString());
+			files.setInitParameter("pathInfoOnly", Boolean.TRUE.toString());
+			files.setInitParameter("dirAllowed", Boolean.FALSE.toString());
+			files.setInitParameter("acceptRanges", Boolean.TRUE.toString());
+			files.setInitParameter("etags", Boolean.TRUE.toString());
+			files.setInitParameter("useFileMappedBuffer", Boolean.TRUE.toString());
+			files.setInitParameter("maxCachedFiles", String.valueOf(config.maxMappedFiles));
+			files.setInitParameter("maxCachedFileSize", String.valueOf(cache.getMaxFileSize()));
+			files.setInitParameter("maxCacheSize", String.valueOf(Math.min((long) config.maxMappedFiles * cache.getMaxFileSize(), Integer.MAX_VALUE)));
+			context.addServlet(files, path.endsWith("/*")
+			                          ? path
+			                          : path + "/*");
+			LOG.info("files of %s at http://[host:port]%s", directory.getAbsolutePath(), path);
+		});
+		return cache;
+	}
+	
+	public static ServerConfigFactory configure(int port) {
+		return new ServerConfigFactory(port);
+	}
+	
+	/**
+	 * Thread pool and connector settings. The defaults are jetty's defaults, which queue without bound. Set
+	 * {@link #setMaxQueuedJobs(int)} to bound the queue: jobs beyond it are rejected and jetty closes the affected
+	 * connection instead of letting the backlog grow. Connectors created by {@link SSLConfigFactory#commit()} use the
+	 * same acceptor, selector and accept queue settings.
+	 */
+	public static final class ServerConfigFactory {
+		
+		private final int      port;
+		private       int      minThreads;
+		private       int      maxThreads;
+		private       int      threadIdleTimeout;
+		private       int      maxQueuedJobs;
+		private       int      acceptors;
+		private       int      selectors;
+		private       int      acceptQueueSize;
+		private       int      idleTimeout;
+		private       int      maxConnections;
+		private       int      acceptRateLimit;
+		private       int      lowResourcesIdleTimeout;
+		private       boolean  reusePort;
+		private       String   readinessPath;
+		private       boolean  drainOnShutdown;
+		private       long     readinessDelay;
+		private       long     drainTimeout;
+		private       Executor resourceExecutor;
+		private       long     resourceTimeout;
+		private       boolean  http2;
+		private       int      maxConcurrentStreams;
+		private       int      initialSessionWindow;
+		private       int      initialStreamWindow;
+		private       boolean  compression;
+		private       int      compressionMinSize;
+		private       int      compressionLevel;
+		private       int      deflaterPoolCapacity;
+		private       String[] compressibleMimeTypes;
+		private       int      discoveryParallelism;
+		private       String   metricsPath;
+		private       long     responseCacheBytes;
+		private       boolean  requestCoalescing;
+		private       String   batchPath;
+		private       int      maxBatchRequests;
+		private       int      batchParallelism;
+		private       int      maxMappedFiles;
+		private       long     maxMappedFileSize;
+		private final Map<String, File> fileDirectories;
+		private final Map<String, AdmissionLimit> admissionLimits;
+		
+		private ServerConfigFactory(int port) {
+			this.port = port;
+			minThreads = 8;
+			maxThreads = 200;
+			threadIdleTimeout = 60000;
+			maxQueuedJobs = -1;
+			acceptors = -1;
+			selectors = -1;
+			acceptQueueSize = 0;
+			idleTimeout = 30000;
+			maxConnections = -1;
+			acceptRateLimit = -1;
+			lowResourcesIdleTimeout = -1;
+			reusePort = false;
+			drainOnShutdown = false;
+			readinessDelay = 0;
+			drainTimeout = 30000;
+			resourceTimeout = 0;
+			http2 = false;
+			maxConcurrentStreams = 128;
+			initialSessionWindow = -1;
+			initialStreamWindow = -1;
+			compression = false;
+			compressionMinSize = 1024;
+			compressionLevel = Deflater.DEFAULT_COMPRESSION;
+			deflaterPoolCapacity = -1;
+			compressibleMimeTypes = new String[]{MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, MediaType.TEXT_PLAIN,
+			                                     MediaType.TEXT_XML, MediaType.TEXT_HTML, "text/css", "text/csv", "application/javascript"};
+			discoveryParallelism = Runtime.getRuntime().availableProcessors();
+			responseCacheBytes = -1;
+			requestCoalescing = false;
+			maxBatchRequests = 100;
+			batchParallelism = 8;
+			maxMappedFiles = 256;
+			maxMappedFileSize = 64 * 1024 * 1024;
+			fileDirectories = new LinkedHashMap<>();
+			admissionLimits = new LinkedHashMap<>();
+		}
+		
+		public ServerConfigFactory setMinThreads(int minThreads) {
+			this.minThreads = minThreads;
+			return this;
+		}
+		
+		public ServerConfigFactory setMaxThreads(int maxThreads) {
+			this.maxThreads = maxThreads;
+			return this;
+		}
+		
+		/**
+		 * @param millis idle time after that threads above {@link #setMinThreads(int)} stop
+		 */
+		public ServerConfigFactory setThreadIdleTimeout(int millis) {
+			this.threadIdleTimeout = millis;
+			return this;
+		}
+		
+		/**
+		 * @param maxQueuedJobs jobs waiting for a thread, negative for no bound
+		 */
+		public ServerConfigFactory setMaxQueuedJobs(int maxQueuedJobs) {
+			this.maxQueuedJobs = maxQueuedJobs;
+			return this;
+		}
+		
+		/**
+		 * @param acceptors acceptor threads per connector, negative to let jetty decide
+		 */
+		public ServerConfigFactory setAcceptors(int acceptors) {
+			this.acceptors = acceptors;
+			return this;
+		}
+		
+		/**
+		 * @param selectors selector threads per connector, negative to let jetty decide
+		 */
+		public ServerConfigFactory setSelectors(int selectors) {
+			this.selectors = selectors;
+			return this;
+		}
+		
+		/**
+		 * @param acceptQueueSize backlog of the server socket, 0 for the os default
+		 */
+		public ServerConfigFactory setAcceptQueueSize(int acceptQueueSize) {
+			this.acceptQueueSize = acceptQueueSize;
+			return this;
+		}
+		
+		public ServerConfigFactory setIdleTimeout(int millis) {
+			this.idleTimeout = millis;
+			return this;
+		}
+		
+		/**
+		 * Binds the port with <code>SO_REUSEPORT</code>, so the next process of a rolling restart binds it before
+		 * this one drains, see {@link ReusePortConnector}.
+		 */
+		public ServerConfigFactory enableReusePort() {
+			this.reusePort = true;
+			return this;
+		}
+		
+		/**
+		 * Answers health checks at <code>/ready</code>, see {@link ReadinessServlet}.
+		 */
+		public ServerConfigFactory enableReadiness() {
+			return enableReadiness("/ready");
+		}
+		
+		/**
+		 * @param path of the readiness endpoint, takes precedence over a resource with the same path
+		 */
+		public ServerConfigFactory enableReadiness(String path) {
+			this.readinessPath = path;
+			return this;
+		}
+		
+		/**
+		 * {@link JettyRestServer#execute()} drains the server when the jvm shuts down, e.g. on <code>SIGTERM</code>,
+		 * instead of cutting off the requests in flight, see {@link JettyRestServer#drain()}.
+		 *
+		 * @param readinessDelay millis the server keeps accepting after the readiness turned <code>503</code>, the
+		 *                       interval of the load balancer's health checks
+		 * @param drainTimeout   millis the requests in flight get to complete after accepting stopped
+		 */
+		public ServerConfigFactory enableGracefulShutdown(long readinessDelay, long drainTimeout) {
+			this.drainOnShutdown = true;
+			this.readinessDelay = readinessDelay;
+			this.drainTimeout = drainTimeout;
+			return this;
+		}
+		
+		/**
+		 * Limits the open connections and sheds load when the pool runs out of threads. At max connections the
+		 * connectors stop accepting, further clients wait in the accept queue and the open connections get the shorter
+		 * idle timeout. Without threads left the server is in low resources mode: connections get the shorter idle
+		 * timeout as well, and requests are answered with <code>503</code> and <code>Retry-After</code>, see
+		 * {@link LowResourcesHandler}.
+		 *
+		 * @param maxConnections open connections at most, not positive for no limit
+		 * @param idleTimeout    idle timeout of the connections in low resources mode, negative for no low resources
+		 *                       mode
+		 */
+		public ServerConfigFactory setLowResources(int maxConnections, int idleTimeout) {
+			this.maxConnections = maxConnections;
+			this.lowResourcesIdleTimeout = idleTimeout;
+			return this;
+		}
+		
+		/**
+		 * Limits how fast the connectors accept connections, e.g. against reconnect storms. Beyond the rate they stop
+		 * accepting for the rest of the second, clients wait in the accept queue.
+		 *
+		 * @param acceptsPerSecond connections accepted per second at most, not positive for no limit
+		 */
+		public ServerConfigFactory setAcceptRateLimit(int acceptsPerSecond) {
+			this.acceptRateLimit = acceptsPerSecond;
+			return this;
+		}
+		
+		/**
+		 * Runs jersey and the resource methods on the executor instead of jetty's pool, so blocking resources do not
+		 * hold jetty threads. Use it for {@link IRestService}s that mostly wait for databases or other services.
+		 *
+		 * @param executor executes one task per request, <code>null</code> to run on jetty's pool
+		 */
+		public ServerConfigFactory setResourceExecutor(Executor executor) {
+			this.resourceExecutor = executor;
+			return this;
+		}
+		
+		/**
+		 * {@link #setResourceExecutor(Executor)} with one virtual thread per request.
+		 *
+		 * @throws UnsupportedOperationException before java 21
+		 */
+		public ServerConfigFactory useVirtualThreads() {
+			try {
+				this.resourceExecutor = (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			} catch (NoSuchMethodException e) {
+				throw new UnsupportedOperationException("Virtual threads need java 21 or newer, running " + System.getProperty("java.version"), e);
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalStateException(e);
+			}
+			return this;
+		}
+		
+		/**
+		 * @param millis max time of a request on the resource executor, 0 for no limit
+		 */
+		public ServerConfigFactory setResourceTimeout(long millis) {
+			this.resourceTimeout = millis;
+			return this;
+		}
+		
+		/**
+		 * Serves HTTP/2 besides HTTP/1.1: h2c (upgrade or prior knowledge) on the plain connector and, if ssl is
+		 * enabled afterwards, ALPN negotiated h2 on the https connector.
+		 */
+		public ServerConfigFactory enableHttp2() {
+			this.http2 = true;
+			return this;
+		}
+		
+		/**
+		 * @param maxConcurrentStreams requests a client may multiplex over one HTTP/2 connection
+		 */
+		public ServerConfigFactory setMaxConcurrentStreams(int maxConcurrentStreams) {
+			this.maxConcurrentStreams = maxConcurrentStreams;
+			return this;
+		}
+		
+		/**
+		 * HTTP/2 flow control windows, i.e. bytes a client may send before the server acknowledges them.
+		 *
+		 * @param sessionWindow per connection, negative for jetty's default
+		 * @param streamWindow  per request, negative for jetty's default
+		 */
+		public ServerConfigFactory setFlowControlWindows(int sessionWindow, int streamWindow) {
+			this.initialSessionWindow = sessionWindow;
+			this.initialStreamWindow = streamWindow;
+			return this;
+		}
+		
+		/**
+		 * Gzips responses of clients sending <code>Accept-Encoding: gzip</code>. Deflate is not offered, browsers
+		 * disagree about its framing; brotli has no pure java encoder.
+		 */
+		public ServerConfigFactory enableCompression() {
+			this.compression = true;
+			return this;
+		}
+		
+		/**
+		 * @param bytes smaller responses are sent as they are, compressing them costs more than it saves
+		 */
+		public ServerConfigFactory setCompressionMinSize(int bytes) {
+			this.compressionMinSize = bytes;
+			return this;
+		}
+		
+		/**
+		 * @param level 1 (fast) to 9 (small), see {@link Deflater}
+		 */
+		public ServerConfigFactory setCompressionLevel(int level) {
+			this.compressionLevel = level;
+			return this;
+		}
+		
+		/**
+		 * @param mimeTypes the only types compressed, e.g. images are compressed already
+		 */
+		public ServerConfigFactory setCompressibleMimeTypes(String... mimeTypes) {
+			this.compressibleMimeTypes = mimeTypes;
+			return this;
+		}
+		
+		/**
+		 * @param capacity deflaters kept for reuse, negative for no limit
+		 */
+		public ServerConfigFactory setDeflaterPoolCapacity(int capacity) {
+			this.deflaterPoolCapacity = capacity;
+			return this;
+		}
+		
+		/**
+		 * Records requests, errors and latencies per resource method, served in the prometheus text format at
+		 * <code>/metrics</code> and by JMX, see {@link RestMetrics}.
+		 */
+		public ServerConfigFactory enableMetrics() {
+			return enableMetrics("/metrics");
+		}
+		
+		/**
+		 * @param path of the scrape endpoint, takes precedence over a resource with the same path
+		 */
+		public ServerConfigFactory enableMetrics(String path) {
+			this.metricsPath = path;
+			return this;
+		}
+		
+		/**
+		 * Serves the responses of <code>GET</code> methods annotated with
+		 * {@link de.mydata.rest.server.cache.CachedResponse} from memory, see {@link ResourceResponseCache}.
+		 *
+		 * @param maxBytes of the cached bodies, the least recently used are evicted beyond it
+		 */
+		public ServerConfigFactory enableResponseCache(long maxBytes) {
+			this.responseCacheBytes = maxBytes;
+			return this;
+		}
+		
+		/**
+		 * Concurrent identical requests of <code>GET</code> methods annotated with
+		 * {@link de.mydata.rest.server.cache.SingleFlight} share one invocation, see {@link InFlightRequests}.
+		 */
+		public ServerConfigFactory enableRequestCoalescing() {
+			this.requestCoalescing = true;
+			return this;
+		}
+		
+		/**
+		 * Admits the requests of the resource within the limit, refusing the others at once with <code>429</code> or
+		 * <code>503</code> and <code>Retry-After</code>, see {@link AdmissionController}. Each limited resource has its
+		 * own, so an overloaded one does not take the threads of the others.
+		 *
+		 * @param resourceKey as in {@link JettyRestServer#getResourcesFound()}, e.g.
+		 *                    <code>http://%s:%d/items/{id}</code> for the service path <code>/items</code>; a key
+		 *                    matching no resource fails the creation of the server
+		 * @param limit       see {@link AdmissionLimit#configure()}
+		 */
+		public ServerConfigFactory limitResource(String resourceKey, AdmissionLimit limit) {
+			admissionLimits.put(resourceKey, limit);
+			return this;
+		}
+		
+		/**
+		 * Accepts many requests in one body at <code>/batch</code> and runs them in parallel, see
+		 * {@link BatchServlet}. {@link de.mydata.rest.client.RestConnection#batch()} sends them.
+		 */
+		public ServerConfigFactory enableBatching() {
+			return enableBatching("/batch");
+		}
+		
+		/**
+		 * @param path of the batch endpoint, takes precedence over a resource with the same path
+		 */
+		public ServerConfigFactory enableBatching(String path) {
+			this.batchPath = path;
+			return this;
+		}
+		
+		/**
+		 * @param maxRequests per batch, larger ones are refused
+		 * @param parallelism requests of one batch running at once, on the resource executor if set, else on the
+		 *                    server's pool
+		 */
+		public ServerConfigFactory setBatchLimits(int maxRequests, int parallelism) {
+			this.maxBatchRequests = maxRequests;
+			this.batchParallelism = parallelism;
+			return this;
+		}
+		
+		/**
+		 * Serves the files below the directory with jetty's default servlet, next to the resources: with ranges,
+		 * <code>ETag</code>s and hot files from memory mapped buffers, up to the limits of
+		 * {@link #setFileCache(int, long)}. Resource methods hand out files as {@link FileRegion}.
+		 *
+		 * @param path of the files, e.g. <code>/files</code>, takes precedence over a resource with the same path
+		 */
+		public ServerConfigFactory serveFiles(String path, File directory) {
+			fileDirectories.put(path, directory);
+			return this;
+		}
+		
+		/**
+		 * Limits the memory mapped files of {@link FileRegion} results and of {@link #serveFiles(String, File)}, see
+		 * {@link MappedFileCache}. Defaults to 256 files of up to 64 MB.
+		 *
+		 * @param maxFiles    mapped at once, 0 to map none
+		 * @param maxFileSize larger files are streamed from their channel
+		 */
+		public ServerConfigFactory setFileCache(int maxFiles, long maxFileSize) {
+			this.maxMappedFiles = maxFiles;
+			this.maxMappedFileSize = maxFileSize;
+			return this;
+		}
+		
+		/**
+		 * @param parallelism threads finding and validating the services on startup, 1 to use the calling thread
+		 */
+		public ServerConfigFactory setDiscoveryParallelism(int parallelism) {
+			this.discoveryParallelism = parallelism;
+			return this;
+		}
+		
+		private Handler wrapCompression(Handler handler) {
+			if(!compression) {
+				return handler;
+			}
+			GzipHandler gzip = new GzipHandler();
+			gzip.setMinGzipSize(compressionMinSize);
+			gzip.setCompressionLevel(compressionLevel);
+			gzip.setDeflaterPoolCapacity(deflaterPoolCapacity);
+			gzip.setIncludedMimeTypes(compressibleMimeTypes);
+			gzip.setIncludedMethods(HttpMethod.GET, HttpMethod.POST, HttpMethod.PUT);
+			gzip.setHandler(handler);
+			return gzip;
+		}
+		
+		private ConnectionFactory[] createPlainFactories(HttpConfiguration httpConfig) {
+			if(!http2) {
+				return new ConnectionFactory[]{new HttpConnectionFactory(httpConfig)};
+			}
+			return new ConnectionFactory[]{new HttpConnectionFactory(httpConfig), configureHttp2(new HTTP2CServerConnectionFactory(httpConfig))};
+		}
+		
+		private ConnectionFactory[] createSecureFactories(HttpConfiguration httpsConfig, SslContextFactory sslContextFactory, String httpVersion) {
+			if(!http2) {
+				return new ConnectionFactory[]{new SslConnectionFactory(sslContextFactory, httpVersion),
+				                               new HttpConnectionFactory(httpsConfig)};
+			}
+			// h2 forbids some ciphers, prefer the allowed ones
+			sslContextFactory.setCipherComparator(HTTP2Cipher.COMPARATOR);
+			sslContextFactory.setUseCipherSuitesOrder(true);
+			HttpConnectionFactory        http1 = new HttpConnectionFactory(httpsConfig);
+			HTTP2ServerConnectionFactory h2    = configureHttp2(new HTTP2ServerConnectionFactory(httpsConfig));
+			ALPNServerConnectionFactory  alpn  = new ALPNServerConnectionFactory(h2.getProtocol(), http1.getProtocol());
+			alpn.setDefaultProtocol(http1.getProtocol());
+			return new ConnectionFactory[]{new SslConnectionFactory(sslContextFactory, alpn.getProtocol()), alpn, h2, http1};
+		}
+		
+		private <F extends AbstractHTTP2ServerConnectionFactory> F configureHttp2(F factory) {
+			factory.setMaxConcurrentStreams(maxConcurrentStreams);
+			if(initialSessionWindow >= 0) {
+				factory.setInitialSessionRecvWindow(initialSessionWindow);
+			}
+			if(initialStreamWindow >= 0) {
+				factory.setInitialStreamRecvWindow(initialStreamWindow);
+			}
+			return factory;
+		}
+		
+		private ServletHolder createJerseyServlet() {
+			if(resourceExecutor == null) {
+				return new ServletHolder(ServletContainer.class);
+			}
+			return new ExecutorServletHolder(ServletContainer.class, resourceExecutor, resourceTimeout);
+		}
+		
+		private QueuedThreadPool createThreadPool() {
+			BlockingQueue<Runnable> queue = maxQueuedJobs < 0
+			                                ? null
+			                                : new BlockingArrayQueue<>(max(1, Math.min(maxQueuedJobs, maxThreads)), max(1, minThreads), max(1, maxQueuedJobs));
+			QueuedThreadPool threadPool = new QueuedThreadPool(maxThreads, minThreads, threadIdleTimeout, queue);
+			threadPool.setName("jetty-rest");
+			return threadPool;
+		}
+		
+		private ServerConnector createConnector(Server server, ConnectionFactory... factories) {
+			ServerConnector connector = reusePort
+			                            ? new ReusePortConnector(server, acceptors, selectors, factories)
+			                            : new ServerConnector(server, null, null, null, acceptors, selectors, factories);
+			connector.setPort(port);
+			connector.setAcceptQueueSize(acceptQueueSize);
+			connector.setIdleTimeout(idleTimeout);
+			return connector;
+		}
+		
+		/**
+		 * The limits apply to all connectors of the server, the ones added by {@link SSLConfigFactory} included.
+		 *
+		 * @return the handler, wrapped to answer <code>503</code> in low resources mode if it is enabled
+		 */
+		private Handler installResourceLimits(Server server, Handler handler) {
+			if(maxConnections > 0) {
+				server.addBean(new ConnectionLimiter(maxConnections, lowResourcesIdleTimeout, server));
+			}
+			if(acceptRateLimit > 0) {
+				server.addBean(new AcceptRateLimit(acceptRateLimit, 1, TimeUnit.SECONDS, server));
+			}
+			if(lowResourcesIdleTimeout < 0) {
+				return handler;
+			}
+			LowResourceMonitor monitor = new LowResourceMonitor(server);
+			monitor.setMonitorThreads(true);
+			monitor.setLowResourcesIdleTimeout(lowResourcesIdleTimeout);
+			server.addBean(monitor);
+			LowResourcesHandler lowResources = new LowResourcesHandler(monitor);
+			lowResources.setHandler(handler);
+			return lowResources;
+		}
 	}
 	
 	public void enableSSL(String keyStorePw, String keyManagerPw) throws FileNotFoundException {
@@ -163,7 +901,7 @@ public class JettyRestServer extends Server implements IEmbeddedRestServer {
 			                  ? ""
 			                  : keyStorePw;
 			if(keyStorePw == null) {
-				System.out.println("[WARN] - no keyStorePw in SSLConfig");
+				LOG.warn("no keyStorePw in SSLConfig");
 			}
 			return this;
 		}
@@ -174,7 +912,7 @@ public class JettyRestServer extends Server implements IEmbeddedRestServer {
 			                    : keyManagerPw;
 			;
 			if(keyManagerPw == null) {
-				System.out.println("[WARN] - no keyManagerPw in SSLConfig");
+				LOG.warn("no keyManagerPw in SSLConfig");
 			}
 			return this;
 		}
@@ -184,7 +922,7 @@ public class JettyRestServer extends Server implements IEmbeddedRestServer {
 			http_config.setSecureScheme(hyperTerminalTransferProtocolSSL);
 			http_config.setSecurePort(confidentialPort);
 			
-			SslContextFactory sslContextFactory = new SslContextFactory();
+			SslContextFactory sslContextFactory = new SslContextFactory.Server();
 			sslContextFactory.setKeyStorePath(keyStoreFile.getAbsolutePath());
 			
 			//Set correct password here for deployed system.
@@ -198,31 +936,47 @@ public class JettyRestServer extends Server implements IEmbeddedRestServer {
 			
 			HttpConfiguration https_config = new HttpConfiguration(http_config);
 			https_config.addCustomizer(new SecureRequestCustomizer());
-			ServerConnector https = new ServerConnector(server,
-			                                            new SslConnectionFactory(sslContextFactory, httpVersion.toString()),
-			                                            new HttpConnectionFactory(https_config));
+			ServerConnector https = newConnector(createSecureFactories(https_config, sslContextFactory));
 			https.setPort(confidentialPort);
 			https.setIdleTimeout(httpsIdleTimeout);
 			
 			server.setConnectors(combineConnectors(http_config, https));
-			System.out.println("[OK] - You can access your url using ssl: " + hyperTerminalTransferProtocolSSL + ":" + confidentialPort + "\\ ..");
+			LOG.info("You can access your url using ssl: %s:%d\\ ..", hyperTerminalTransferProtocolSSL, confidentialPort);
 		}
 		
 		private Connector[] combineConnectors(HttpConfiguration http_config, ServerConnector https) {
 			Connector[] connectors = server.getConnectors();
-			if(connectors == null) {
-				connectors = new Connector[2];
-			}
-			Arrays.copyOf(connectors, max(2, connectors.length + 1));
-			connectors[connectors.length - 1] = https;
-			if(connectors.length == 2 && connectors[0] == null) {
-				ServerConnector tempHttpConnector = new ServerConnector(server);
-				tempHttpConnector.addConnectionFactory(new HttpConnectionFactory(http_config));
+			if(connectors == null || connectors.length == 0) {
+				ServerConnector tempHttpConnector = newConnector(createPlainFactories(http_config));
 				tempHttpConnector.setPort(server.getURI().getPort());
-				connectors[0] = tempHttpConnector;
+				connectors = new Connector[]{tempHttpConnector};
 			}
+			connectors = Arrays.copyOf(connectors, connectors.length + 1);
+			connectors[connectors.length - 1] = https;
 			return connectors;
 		}
+		
+		private ConnectionFactory[] createPlainFactories(HttpConfiguration httpConfig) {
+			if(server instanceof JettyRestServer) {
+				return ((JettyRestServer) server).config.createPlainFactories(httpConfig);
+			}
+			return new ConnectionFactory[]{new HttpConnectionFactory(httpConfig)};
+		}
+		
+		private ConnectionFactory[] createSecureFactories(HttpConfiguration httpsConfig, SslContextFactory sslContextFactory) {
+			if(server instanceof JettyRestServer) {
+				return ((JettyRestServer) server).config.createSecureFactories(httpsConfig, sslContextFactory, httpVersion.toString());
+			}
+			return new ConnectionFactory[]{new SslConnectionFactory(sslContextFactory, httpVersion.toString()),
+			                               new HttpConnectionFactory(httpsConfig)};
+		}
+		
+		private ServerConnector newConnector(ConnectionFactory... factories) {
+			if(server instanceof JettyRestServer) {
+				return ((JettyRestServer) server).config.createConnector(server, factories);
+			}
+			return new ServerConnector(server, factories);
+		}
 	}
 	
 	public SSLConfigFactory enableSSL(File keystoreFile, String keyStorePw, String keyManagerPw) {
@@ -235,6 +989,65 @@ public class JettyRestServer extends Server implements IEmbeddedRestServer {
 		return resourcesFound;
 	}
 	
+	/**
+	 * @return how long finding, loading and validating the services took
+	 */
+	public ServiceDiscovery.Timings getDiscoveryTimings() {
+		return discovery.getTimings();
+	}
+	
+	/**
+	 * @return <code>null</code> if metrics are not enabled, see {@link ServerConfigFactory#enableMetrics()}
+	 */
+	public RestMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * @return <code>null</code> if the response cache is not enabled, see
+	 * {@link ServerConfigFactory#enableResponseCache(long)}
+	 */
+	public ResourceResponseCache getResponseCache() {
+		return responseCache;
+	}
+	
+	/**
+	 * @return <code>null</code> if request coalescing is not enabled, see
+	 * {@link ServerConfigFactory#enableRequestCoalescing()}
+	 */
+	public InFlightRequests getInFlightRequests() {
+		return inFlightRequests;
+	}
+	
+	/**
+	 * @return <code>null</code> if no resource is limited, see
+	 * {@link ServerConfigFactory#limitResource(String, AdmissionLimit)}
+	 */
+	public AdmissionController getAdmissionController() {
+		return admission;
+	}
+	
+	/**
+	 * @return the memory mapped files of {@link FileRegion} results
+	 */
+	public MappedFileCache getFileCache() {
+		return fileCache;
+	}
+	
+	/**
+	 * @return requests received and not yet completed
+	 */
+	public int getInFlight() {
+		return drainHandler.getInFlight();
+	}
+	
+	/**
+	 * @return whether the server takes new requests, see {@link ServerConfigFactory#enableReadiness()}
+	 */
+	public boolean isReady() {
+		return drainHandler.isReady();
+	}
+	
 	public ServletContextHandler getContext() {
 		return context;
 	}
@@ -260,79 +1073,112 @@ public class JettyRestServer extends Server implements IEmbeddedRestServer {
 			pingTest(pingTestUrl);
 		}
 		
+		Thread drainOnShutdown = config.drainOnShutdown
+		                         ? new Thread(this::drainAndStop, "jetty-rest-drain")
+		                         : null;
 		start();
 		try {
+			if(drainOnShutdown != null) {
+				Runtime.getRuntime().addShutdownHook(drainOnShutdown);
+				// the drain logs its progress, the log sink closes after it or after the time it may take
+				Log.holdOnShutdown(config.readinessDelay + config.drainTimeout + SHUTDOWN_LOG_MARGIN_MILLIS);
+			}
 			join();
 		} finally {
+			if(drainOnShutdown != null) {
+				try {
+					Runtime.getRuntime().removeShutdownHook(drainOnShutdown);
+					Log.releaseOnShutdown();
+				} catch (IllegalStateException ignored) {
+					// the jvm is shutting down, the hook drains and releases the log
+				}
+			}
 			destroy(); /* 'Gracefull' shutdown after exception*/
 		}
 	}
 	
-	private static void validateServicePathAnnotationOrDie(Class<IRestService> service) {
-		if(CHECK_PATH_ON_SERVICE_TYPE && !service.isAnnotationPresent(Path.class)) {
-			throw new IllegalArgumentException(format("Your rest service class '%s' must have a %s-Annotation!",
-			                                          service.getCanonicalName(),
-			                                          Path.class.getCanonicalName()));
+	/**
+	 * Stops taking new requests and waits for the ones in flight, stop the server afterwards:
+	 * <ol>
+	 * <li>the readiness turns <code>503</code>, new requests are still served for the readiness delay, until the load
+	 * balancers noticed</li>
+	 * <li>the connectors stop accepting, open http/1 connections are closed after their current response, http/2
+	 * sessions get a <code>GOAWAY</code></li>
+	 * <li>the requests in flight get the drain timeout to complete, their count is logged each second</li>
+	 * </ol>
+	 * See {@link ServerConfigFactory#enableGracefulShutdown(long, long)} for the delays.
+	 *
+	 * @return <code>false</code> if requests were still in flight after the timeout
+	 */
+	@Override
+	public boolean drain() throws InterruptedException {
+		drainHandler.markNotReady();
+		LOG.info("not ready, %d requests in flight, accepting for %d ms", getInFlight(), config.readinessDelay);
+		Thread.sleep(config.readinessDelay);
+		
+		drainHandler.startDraining();
+		for (Connector connector : getConnectors()) {
+			if(connector instanceof NetworkConnector) {
+				((NetworkConnector) connector).shutdown();
+			}
+		}
+		goAwayHttp2Sessions();
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.drainTimeout);
+		int  inFlight = getInFlight();
+		while (inFlight > 0 && System.nanoTime() < deadline) {
+			LOG.info("draining, %d requests in flight, %d connections open", inFlight, openConnections());
+			long wait = Math.min(1000, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+			for (long waited = 0; waited < wait && getInFlight() > 0; waited += 10) {
+				Thread.sleep(10);
+			}
+			inFlight = getInFlight();
 		}
+		if(inFlight > 0) {
+			LOG.warn("drain timed out after %d ms, %d requests in flight are cut off", config.drainTimeout, inFlight);
+			return false;
+		}
+		LOG.info("drained, no requests in flight");
+		return true;
 	}
 	
-	private static Collection<Map.Entry<String, Method>> warnNoMethods(Class<IRestService> service) {
-		boolean                               ok             = false;
-		Collection<Map.Entry<String, Method>> foundResources = new ArrayList<>();
-		for (Method method : service.getDeclaredMethods()) {
-			if(method.isAnnotationPresent(Path.class)) {
-				if(!ok) {
-					ok = true;
-				}
-				
-				boolean warn = false;
-				
-				boolean getOK    = method.isAnnotationPresent(GET.class);
-				boolean putOK    = method.isAnnotationPresent(PUT.class);
-				boolean postOK   = method.isAnnotationPresent(POST.class);
-				boolean deleteOK = method.isAnnotationPresent(DELETE.class);
-				if(!getOK && !putOK && !postOK && !deleteOK) {
-					warn = true;
-					if(WARNINGS_ALLOWED) {
-						System.err.println(format("Your rest method resource must have at least one of these annotations (GET,PUT,POST or DELETE)! in %s method '%s'",
-						                          service.getCanonicalName(),
-						                          method.getName()));
-					}
-				}
-				
-				if(!method.isAnnotationPresent(Produces.class) && !method.getReturnType().equals(Void.TYPE)) {
-					warn = true;
-					if(WARNINGS_ALLOWED) {
-						System.err.println(format("Your rest method resource returns a %s value. Your method must have a %s-annotation! in %s method '%s'",
-						                          method.getReturnType().getCanonicalName(),
-						                          Produces.class.getCanonicalName(),
-						                          service.getCanonicalName(),
-						                          method.getName()));
-					}
-				}
-				
-				if(!warn && DEBUG_OK_ALLOWED) {
-					String url = format("http://%s:%s%s%s", "%s", "%d",
-					                    service.getAnnotation(Path.class).value(),
-					                    method.getAnnotation(Path.class).value());
-					foundResources.add(new AbstractMap.SimpleEntry<>(url, method));
-					System.out.println(format("OK - Rest resource accessible %s method '%s' using http://[host:port]/%s%s",
-					                          service.getCanonicalName(), method.getName(),
-					                          service.getAnnotation(Path.class).value(),
-					                          method.getAnnotation(Path.class).value()));
+	/**
+	 * Jetty's connector shutdown does not tell http/2 clients, they would keep sending new streams on their session.
+	 * A <code>GOAWAY</code> lets the streams in flight complete and makes the client open a new connection for the next
+	 * ones.
+	 */
+	private void goAwayHttp2Sessions() {
+		for (Connector connector : getConnectors()) {
+			AbstractHTTP2ServerConnectionFactory http2 = connector.getConnectionFactory(AbstractHTTP2ServerConnectionFactory.class);
+			AbstractHTTP2ServerConnectionFactory.HTTP2SessionContainer sessions = http2 == null
+			                                                                      ? null
+			                                                                      : http2.getBean(AbstractHTTP2ServerConnectionFactory.HTTP2SessionContainer.class);
+			if(sessions != null) {
+				for (Session session : sessions.getSessions()) {
+					session.close(ErrorCode.NO_ERROR.code, "draining", Callback.NOOP);
 				}
 			}
 		}
-		
-		if(!ok) {
-			if(DEBUG_OK_ALLOWED) {
-				System.err.println(format("Your rest resource does not contain a compatible public method haven a %s-annotation! in %s",
-				                          Path.class.getCanonicalName(),
-				                          service.getCanonicalName()));
-			}
+	}
+	
+	private int openConnections() {
+		int open = 0;
+		for (Connector connector : getConnectors()) {
+			open += connector.getConnectedEndPoints().size();
+		}
+		return open;
+	}
+	
+	private void drainAndStop() {
+		try {
+			drain();
+			stop();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (Exception e) {
+			LOG.error("stopping after the drain failed", e);
+		} finally {
+			Log.releaseOnShutdown();
 		}
-		
-		return foundResources;
 	}
 	
 	private void pingTest(final String pingTestUrl) {
@@ -347,9 +1193,9 @@ public class JettyRestServer extends Server implements IEmbeddedRestServer {
 				boolean ping   = RestRequest.StringConverter.toBoolean(result);
 				
 				if(!ping) {
-					System.err.println("[FAIL] - PING was not successful!");
+					LOG.error("PING was not successful!");
 				} else {
-					System.out.println("[OK] - PING was successful!");
+					LOG.info("PING was successful!");
 				}
 			}
 		});
@@ -361,6 +1207,22 @@ public class JettyRestServer extends Server implements IEmbeddedRestServer {
 		protected ClassUtils() {
 		}
 		
+		public static ClassLoader getClassLoader() {
+			return org.springframework.util.ClassUtils.getDefaultClassLoader();
+		}
+		
+		/**
+		 * @param className binary name, primitive types included
+		 */
+		@SuppressWarnings("unchecked")
+		public static <T> Class<T> loadClass(String className) throws ClassNotFoundException {
+			return (Class<T>) org.springframework.util.ClassUtils.forName(className, getClassLoader());
+		}
+		
+		public static Collection<String> findClassNamesOfType(Class<?> implType, String packageName) {
+			return new ComponentClassScanner().getComponentClassNames(packageName, implType);
+		}
+		
 		public static <T> Collection<Class<T>> findClassesOfType(Class<T> implType, String packageName) {
 			try {
 				return new ComponentClassScanner().getComponentClasses(packageName, implType);
@@ -375,15 +1237,25 @@ public class JettyRestServer extends Server implements IEmbeddedRestServer {
 				super(false);
 			}
 			
-			@SuppressWarnings("unchecked")
 			public final <T> Collection<Class<T>> getComponentClasses(String basePackage, Class<T> implType) throws ClassNotFoundException {
 				List<Class<T>> classList = new ArrayList<>();
+				for (String className : getComponentClassNames(basePackage, implType)) {
+					classList.add(loadClass(className));
+				}
+				return classList;
+			}
+			
+			/**
+			 * Reads the class files without loading the classes
+			 */
+			public final Collection<String> getComponentClassNames(String basePackage, Class<?> implType) {
+				List<String> classNames = new ArrayList<>();
 				addIncludeFilter(new AssignableTypeFilter(implType));
 				Collection<BeanDefinition> definitions = findCandidateComponents(basePackage);
 				for (BeanDefinition candidate : definitions) {
-					classList.add((Class<T>) Class.forName(candidate.getBeanClassName()));
+					classNames.add(candidate.getBeanClassName());
 				}
-				return classList;
+				return classNames;
 			}
 		}
 		
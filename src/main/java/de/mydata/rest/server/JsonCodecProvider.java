@@ -0,0 +1,112 @@
+package de.mydata.rest.server;
+
+import de.mydata.http.JsonCodecRegistry;
+import de.mydata.http.WireFormat;
+import de.mydata.rest.server.file.FileRegion;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * Json (de)serialization of resource parameters and results with the codecs of {@link JsonCodecRegistry}, the
+ * same ones {@link de.mydata.rest.client.RestConnection} uses. Registered by {@link JettyRestServer}.
+ * <p>
+ * The binary {@link WireFormat}s smile and cbor are handled the same way, for methods listing them in
+ * <code>@Produces</code> or <code>@Consumes</code>; jersey picks the format by the <code>Accept</code> header.
+ * <p>
+ * Results of type {@link java.util.stream.Stream} or {@link java.util.Iterator} are streamed, as json array or, for
+ * <code>application/x-ndjson</code>, newline delimited, see {@link JsonStreamWriter}. Other results are written as
+ * one line for newline delimited json, the elements of collections as lines.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+@Provider
+@Produces({MediaType.APPLICATION_JSON, "text/json", "application/*+json", JsonStreamWriter.NDJSON, WireFormat.SMILE_TYPE, WireFormat.CBOR_TYPE})
+@Consumes({MediaType.APPLICATION_JSON, "text/json", "application/*+json", WireFormat.SMILE_TYPE, WireFormat.CBOR_TYPE})
+public class JsonCodecProvider implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
+
+	@Override
+	public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+		WireFormat format = WireFormat.of(mediaType);
+		return format != null && !isNdjson(mediaType) && !isRaw(type);
+	}
+
+	@Override
+	public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+	                       MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException, WebApplicationException {
+		return JsonCodecRegistry.getInstance(WireFormat.of(mediaType)).readerFor(genericType).readValue(entityStream);
+	}
+
+	@Override
+	public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+		WireFormat format = WireFormat.of(mediaType);
+		return format != null && !isRaw(type);
+	}
+
+	@Override
+	public long getSize(Object value, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+		return -1;
+	}
+
+	@Override
+	public void writeTo(Object value, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+	                    MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException, WebApplicationException {
+		JsonCodecRegistry codecs = JsonCodecRegistry.getInstance(WireFormat.of(mediaType));
+		boolean           lines  = isNdjson(mediaType);
+		if(value != null && JsonStreamWriter.isStream(value.getClass())) {
+			JsonStreamWriter.write(value, genericType, lines, codecs, entityStream);
+			return;
+		}
+		if(lines) {
+			writeLines(value, genericType, entityStream);
+			return;
+		}
+		// a subclass of the declared type must not be cut down to the declared properties
+		Type writeType = genericType instanceof Class && value != null && !genericType.equals(value.getClass())
+		                 ? value.getClass()
+		                 : genericType;
+		codecs.writerFor(writeType).writeValue(entityStream, value);
+	}
+
+	private static void writeLines(Object value, Type genericType, OutputStream entityStream) throws IOException {
+		if(value instanceof Iterable) {
+			JsonStreamWriter.write(((Iterable<?>) value).iterator(), genericType, true, JsonCodecRegistry.getInstance(), entityStream);
+		} else {
+			JsonCodecRegistry.getInstance().writerFor(value == null
+			                                          ? genericType
+			                                          : value.getClass()).writeValue(entityStream, value);
+			entityStream.write('\n');
+		}
+	}
+
+	private static boolean isNdjson(MediaType mediaType) {
+		return mediaType != null && JsonStreamWriter.NDJSON.equalsIgnoreCase(mediaType.getType() + "/" + mediaType.getSubtype());
+	}
+
+	/**
+	 * Types jersey writes as they are, in any format.
+	 */
+	private static boolean isRaw(Class<?> type) {
+		return CharSequence.class.isAssignableFrom(type)
+		       || byte[].class.equals(type)
+		       || InputStream.class.isAssignableFrom(type)
+		       || Reader.class.isAssignableFrom(type)
+		       || File.class.isAssignableFrom(type)
+		       || FileRegion.class.isAssignableFrom(type)
+		       || StreamingOutput.class.isAssignableFrom(type);
+	}
+}
@@ -0,0 +1,234 @@
+package de.mydata.rest.server;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import de.mydata.http.JsonCodecRegistry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Writes the elements of a {@link Stream} or {@link Iterator} result one at a time, as json array or as
+ * newline delimited json. Neither the elements nor the body are held in memory: the bytes go to the response buffer
+ * of jetty, which sends a chunk whenever it is full, and writing blocks while the client does not read, so a fast
+ * producer is paced by the client. What a slow producer wrote is flushed after {@link #FLUSH_INTERVAL_MILLIS}, also
+ * while it waits for the next element, once jersey has committed the response: it holds back the first 8 KB of
+ * every body to set a Content-Length, so a result smaller than that is sent at once.
+ * <p>
+ * The stream or iterator is closed afterwards, e.g. to release a database cursor.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+final class JsonStreamWriter {
+	
+	static final String NDJSON = "application/x-ndjson";
+	
+	static final long FLUSH_INTERVAL_MILLIS = 100;
+	
+	private static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MILLIS);
+	
+	/**
+	 * Only decides when a stream is due, the blocking flushes run on {@link #FLUSHERS}
+	 */
+	private static final ScheduledExecutorService FLUSH_TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "json-stream-flush-timer");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	/**
+	 * At most one flush per stream at a time, a client not reading blocks only the flush of its own stream
+	 */
+	private static final ExecutorService FLUSHERS = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "json-stream-flush");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	private JsonStreamWriter() {
+	}
+	
+	static boolean isStream(Class<?> type) {
+		return Stream.class.isAssignableFrom(type) || Iterator.class.isAssignableFrom(type);
+	}
+	
+	/**
+	 * @param genericType the declared type, e.g. <code>Stream&lt;Item&gt;</code>
+	 * @param lines       newline delimited instead of an array, json only
+	 * @param codecs      of the wire format
+	 */
+	static void write(Object value, Type genericType, boolean lines, JsonCodecRegistry codecs, OutputStream entityStream) throws IOException {
+		Iterator<?> elements = value instanceof Stream
+		                       ? ((Stream<?>) value).iterator()
+		                       : (Iterator<?>) value;
+		Type elementType = genericType instanceof ParameterizedType
+		                   ? ((ParameterizedType) genericType).getActualTypeArguments()[0]
+		                   : Object.class;
+		try (JsonGenerator json = codecs.getMapper().getFactory().createGenerator(entityStream)) {
+			// flushing the generator hands its buffer on, jetty decides when to send
+			json.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+			if(lines) {
+				json.setRootValueSeparator(null);
+			} else {
+				json.writeStartArray();
+			}
+			Flusher flusher = Flusher.start(json, entityStream);
+			try {
+				while (elements.hasNext()) {
+					Object element = elements.next();
+					flusher.lock.lock();
+					try {
+						writerFor(codecs, elementType, element).writeValue(json, element);
+						if(lines) {
+							json.writeRaw('\n');
+						}
+						flusher.written();
+					} finally {
+						flusher.lock.unlock();
+					}
+				}
+			} finally {
+				flusher.stop();
+			}
+			if(!lines) {
+				json.writeEndArray();
+			}
+		} finally {
+			close(value);
+		}
+	}
+	
+	/**
+	 * Like {@link JsonCodecProvider}, a subclass of the declared type must not be cut down to the declared properties
+	 */
+	private static ObjectWriter writerFor(JsonCodecRegistry codecs, Type elementType, Object element) {
+		return elementType instanceof Class && element != null && !elementType.equals(element.getClass())
+		       ? codecs.writerFor(element.getClass())
+		       : codecs.writerFor(elementType);
+	}
+	
+	private static void close(Object value) throws IOException {
+		if(value instanceof Stream) {
+			((Stream<?>) value).close();
+		} else if(value instanceof AutoCloseable) {
+			try {
+				((AutoCloseable) value).close();
+			} catch (IOException | RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new IOException(e);
+			}
+		}
+	}
+	
+	/**
+	 * Flushes what was written, when an element is written or, while the producer waits for the next one, by a task the
+	 * timer starts. Writing and flushing hold the lock, so the generator is never used by both at once; the task skips
+	 * its flush if the producer is writing.
+	 */
+	private static final class Flusher implements Runnable {
+		
+		private final    JsonGenerator      json;
+		private final    OutputStream       entityStream;
+		private final    ReentrantLock      lock;
+		private final    AtomicBoolean      flushing;
+		private volatile ScheduledFuture<?> timer;
+		private volatile long               lastFlush;
+		private volatile boolean            pending;
+		private volatile boolean            stopped;
+		
+		private Flusher(JsonGenerator json, OutputStream entityStream) {
+			this.json = json;
+			this.entityStream = entityStream;
+			lock = new ReentrantLock();
+			flushing = new AtomicBoolean();
+			lastFlush = System.nanoTime();
+		}
+		
+		static Flusher start(JsonGenerator json, OutputStream entityStream) {
+			Flusher flusher = new Flusher(json, entityStream);
+			flusher.timer = FLUSH_TIMER.scheduleWithFixedDelay(flusher, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS,
+			                                                   TimeUnit.MILLISECONDS);
+			return flusher;
+		}
+		
+		/**
+		 * Called holding the lock, after an element is written.
+		 */
+		void written() throws IOException {
+			pending = true;
+			if(System.nanoTime() - lastFlush >= FLUSH_INTERVAL_NANOS) {
+				flush();
+			}
+		}
+		
+		/**
+		 * Run by the timer, never blocks.
+		 */
+		@Override
+		public void run() {
+			if(stopped || !pending || System.nanoTime() - lastFlush < FLUSH_INTERVAL_NANOS || !flushing.compareAndSet(false, true)) {
+				return;
+			}
+			try {
+				FLUSHERS.execute(this::flushIdle);
+			} catch (RejectedExecutionException e) {
+				flushing.set(false);
+			}
+		}
+		
+		private void flushIdle() {
+			try {
+				if(!lock.tryLock()) {
+					// the producer is writing and flushes itself
+					return;
+				}
+				try {
+					if(!stopped && pending) {
+						flush();
+					}
+				} catch (IOException | RuntimeException e) {
+					// the client is gone, writing the next element fails the same way
+					stopped = true;
+					timer.cancel(false);
+				} finally {
+					lock.unlock();
+				}
+			} finally {
+				flushing.set(false);
+			}
+		}
+		
+		/**
+		 * Waits for a flush in progress, the generator is written and closed afterwards.
+		 */
+		void stop() {
+			lock.lock();
+			try {
+				stopped = true;
+				timer.cancel(false);
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+		private void flush() throws IOException {
+			json.flush();
+			entityStream.flush();
+			pending = false;
+			lastFlush = System.nanoTime();
+		}
+	}
+}
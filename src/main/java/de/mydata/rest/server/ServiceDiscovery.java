@@ -0,0 +1,448 @@
+package de.mydata.rest.server;
+
+import de.mydata.log.Level;
+import de.mydata.log.Log;
+import de.mydata.log.Logger;
+import de.mydata.rest.server.JettyRestServer.ClassUtils;
+import de.mydata.rest.server.JettyRestServer.IRestService;
+import de.mydata.rest.server.cache.CachedResponse;
+import de.mydata.rest.server.cache.SingleFlight;
+import de.mydata.rest.server.index.RestServiceIndex;
+
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import static de.mydata.rest.server.JettyRestServer.CHECK_PATH_ON_SERVICE_TYPE;
+import static java.lang.String.format;
+
+/**
+ * Finds, loads and validates the {@link IRestService}s of the service packages for {@link JettyRestServer}. Packages
+ * and the classes of a package are processed in parallel on a fork join pool. Services, resources and messages come
+ * out in the order of the packages and classes, as if they were processed one after the other.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public final class ServiceDiscovery {
+	
+	private static final Logger LOG = Log.getLogger(ServiceDiscovery.class);
+	
+	private static final List<Class<? extends Annotation>> GET_ONLY_ANNOTATIONS = Arrays.asList(CachedResponse.class, SingleFlight.class);
+	
+	private final Collection<String>                    typeNames;
+	private final Collection<Map.Entry<String, Method>> resourcesFound;
+	private final Timings                               timings;
+	
+	private ServiceDiscovery(Collection<String> typeNames, Collection<Map.Entry<String, Method>> resourcesFound, Timings timings) {
+		this.typeNames = typeNames;
+		this.resourcesFound = resourcesFound;
+		this.timings = timings;
+	}
+	
+	/**
+	 * @param parallelism threads of the pool, 1 to discover on the calling thread
+	 */
+	static ServiceDiscovery discover(int parallelism, String... servicePackageNames) {
+		long    start   = System.nanoTime();
+		Timings timings = new Timings(parallelism);
+		
+		RestServiceIndex index = RestServiceIndex.load(ClassUtils.getClassLoader());
+		timings.discovery.add(System.nanoTime() - start);
+		
+		List<Report> reports;
+		if(parallelism <= 1) {
+			reports = Arrays.stream(servicePackageNames)
+			                .map(servicePackageName -> discoverPackage(servicePackageName, index, timings, false))
+			                .collect(Collectors.toList());
+		} else {
+			ClassLoader classLoader = ClassUtils.getClassLoader();
+			// workers of an own pool have the system class loader as context class loader on jdk 9+, the scanner and
+			// ClassUtils would not find the services of a fat jar or a web app
+			ForkJoinPool pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+				ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+				worker.setContextClassLoader(classLoader);
+				return worker;
+			}, null, false);
+			try {
+				// streams run on the pool they are started from
+				reports = pool.submit(() -> Arrays.stream(servicePackageNames)
+				                                  .parallel()
+				                                  .map(servicePackageName -> discoverPackage(servicePackageName, index, timings, true))
+				                                  .collect(Collectors.toList()))
+				              .get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			} catch (ExecutionException e) {
+				if(e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new IllegalStateException(e.getCause());
+			} finally {
+				pool.shutdown();
+			}
+		}
+		
+		Collection<String>                    typeNames      = new ArrayList<>();
+		Collection<Map.Entry<String, Method>> resourcesFound = new ArrayList<>();
+		for (Report report : reports) {
+			report.print();
+			typeNames.addAll(report.typeNames);
+			resourcesFound.addAll(report.resources);
+		}
+		timings.total = System.nanoTime() - start;
+		LOG.info("%d rest services found %s, %s", typeNames.size(),
+		         index == null
+		         ? "by class path scan"
+		         : "in " + RestServiceIndex.INDEX_LOCATION,
+		         timings);
+		return new ServiceDiscovery(typeNames, resourcesFound, timings);
+	}
+	
+	private static Report discoverPackage(String servicePackageName, RestServiceIndex index, Timings timings, boolean parallel) {
+		Collection<RestServiceIndex.Service> indexed = index == null
+		                                               ? Collections.emptyList()
+		                                               : index.getServices(servicePackageName);
+		if(indexed.isEmpty()) {
+			return discoverScanned(servicePackageName, Collections.emptySet(), timings, parallel);
+		}
+		long               start     = System.nanoTime();
+		Collection<String> unindexed = index.getUnindexedRoots(ClassUtils.getClassLoader(), servicePackageName);
+		timings.discovery.add(System.nanoTime() - start);
+		Report report;
+		try {
+			report = discoverIndexed(indexed, timings, parallel);
+		} catch (OutdatedIndexException e) {
+			Report outdated = new Report();
+			outdated.warn(format("%s is outdated (%s), scanning the class path", RestServiceIndex.INDEX_LOCATION, e.getCause()));
+			return join(Arrays.asList(outdated, discoverScanned(servicePackageName, Collections.emptySet(), timings, parallel)));
+		}
+		if(unindexed.isEmpty()) {
+			return report;
+		}
+		// e.g. a jar compiled without the processor, or a package split across jars
+		Report partial = new Report();
+		partial.info(format("%s has no %s in %s, scanning the class path for the services not indexed",
+		                    servicePackageName, RestServiceIndex.INDEX_LOCATION, unindexed));
+		Set<String> indexedNames = indexed.stream()
+		                                  .map(RestServiceIndex.Service::getClassName)
+		                                  .collect(Collectors.toSet());
+		return join(Arrays.asList(report, partial, discoverScanned(servicePackageName, indexedNames, timings, parallel)));
+	}
+	
+	/**
+	 * @param skipped names of the classes found otherwise
+	 */
+	private static Report discoverScanned(String servicePackageName, Set<String> skipped, Timings timings, boolean parallel) {
+		long               start      = System.nanoTime();
+		Collection<String> classNames = ClassUtils.findClassNamesOfType(IRestService.class, servicePackageName);
+		classNames.removeIf(skipped::contains);
+		timings.discovery.add(System.nanoTime() - start);
+		
+		return join((parallel
+		             ? classNames.parallelStream()
+		             : classNames.stream()).map(className -> discoverScannedService(className, timings))
+		                                   .collect(Collectors.toList()));
+	}
+	
+	private static Report discoverScannedService(String className, Timings timings) {
+		Report              report = new Report();
+		Class<IRestService> service;
+		try {
+			service = timings.load(className);
+		} catch (ClassNotFoundException e) {
+			throw new RuntimeException(e);
+		}
+		if(isDeprecated(service, report)) {
+			return report;
+		}
+		long start = System.nanoTime();
+		validateServicePathAnnotationOrDie(service);
+		report.resources.addAll(warnNoMethods(service, report));
+		report.typeNames.add(service.getCanonicalName());
+		timings.validation.add(System.nanoTime() - start);
+		return report;
+	}
+	
+	/**
+	 * Registers the services of the index, the methods were checked when the index was written.
+	 *
+	 * @throws OutdatedIndexException if a class or method of the index does not exist, scan the package then
+	 */
+	private static Report discoverIndexed(Collection<RestServiceIndex.Service> indexed, Timings timings, boolean parallel) {
+		return join((parallel
+		             ? indexed.parallelStream()
+		             : indexed.stream()).map(entry -> discoverIndexedService(entry, timings))
+		                                .collect(Collectors.toList()));
+	}
+	
+	private static Report discoverIndexedService(RestServiceIndex.Service entry, Timings timings) {
+		Report              report = new Report();
+		Class<IRestService> service;
+		try {
+			service = timings.load(entry.getClassName());
+		} catch (ClassNotFoundException e) {
+			throw new OutdatedIndexException(e);
+		}
+		if(isDeprecated(service, report)) {
+			return report;
+		}
+		long start = System.nanoTime();
+		validateServicePathAnnotationOrDie(service);
+		for (Map.Entry<String, Method> resource : indexedResources(service, entry)) {
+			if(LOG.isInfoEnabled()) {
+				report.info(format("Rest resource accessible %s method '%s' using http://[host:port]/%s%s",
+				                   service.getCanonicalName(), resource.getValue().getName(),
+				                   service.getAnnotation(Path.class).value(),
+				                   resource.getValue().getAnnotation(Path.class).value()));
+			}
+			report.resources.add(resource);
+		}
+		report.typeNames.add(service.getCanonicalName());
+		timings.validation.add(System.nanoTime() - start);
+		return report;
+	}
+	
+	private static Collection<Map.Entry<String, Method>> indexedResources(Class<IRestService> service, RestServiceIndex.Service entry) {
+		Collection<Map.Entry<String, Method>> foundResources = new ArrayList<>();
+		if(entry.getPath() == null) {
+			return foundResources;
+		}
+		try {
+			for (RestServiceIndex.Resource resource : entry.getResources()) {
+				String[]   names          = resource.getParameterTypes();
+				Class<?>[] parameterTypes = new Class<?>[names.length];
+				for (int i = 0; i < names.length; i++) {
+					parameterTypes[i] = ClassUtils.loadClass(names[i]);
+				}
+				Method method = service.getDeclaredMethod(resource.getMethodName(), parameterTypes);
+				String url    = format("http://%s:%s%s%s", "%s", "%d", entry.getPath(), resource.getPath());
+				foundResources.add(new AbstractMap.SimpleEntry<>(url, method));
+			}
+		} catch (ClassNotFoundException | NoSuchMethodException e) {
+			throw new OutdatedIndexException(e);
+		}
+		return foundResources;
+	}
+	
+	private static boolean isDeprecated(Class<IRestService> service, Report report) {
+		if(service.isAnnotationPresent(Deprecated.class)) {
+			report.warn(format("Service '%s' skipped cause of %s-annotation", service.getCanonicalName(), Deprecated.class.getCanonicalName()));
+			return true;
+		}
+		return false;
+	}
+	
+	private static void validateServicePathAnnotationOrDie(Class<IRestService> service) {
+		if(CHECK_PATH_ON_SERVICE_TYPE && !service.isAnnotationPresent(Path.class)) {
+			throw new IllegalArgumentException(format("Your rest service class '%s' must have a %s-Annotation!",
+			                                          service.getCanonicalName(),
+			                                          Path.class.getCanonicalName()));
+		}
+	}
+	
+	private static Collection<Map.Entry<String, Method>> warnNoMethods(Class<IRestService> service, Report report) {
+		boolean                               ok             = false;
+		Collection<Map.Entry<String, Method>> foundResources = new ArrayList<>();
+		for (Method method : service.getDeclaredMethods()) {
+			if(method.isAnnotationPresent(Path.class)) {
+				if(!ok) {
+					ok = true;
+				}
+				
+				boolean warn = false;
+				
+				boolean getOK    = method.isAnnotationPresent(GET.class);
+				boolean putOK    = method.isAnnotationPresent(PUT.class);
+				boolean postOK   = method.isAnnotationPresent(POST.class);
+				boolean deleteOK = method.isAnnotationPresent(DELETE.class);
+				if(!getOK && !putOK && !postOK && !deleteOK) {
+					warn = true;
+					if(LOG.isWarnEnabled()) {
+						report.warn(format("Your rest method resource must have at least one of these annotations (GET,PUT,POST or DELETE)! in %s method '%s'",
+						                   service.getCanonicalName(),
+						                   method.getName()));
+					}
+				}
+				
+				for (Class<? extends Annotation> getOnly : GET_ONLY_ANNOTATIONS) {
+					if(method.isAnnotationPresent(getOnly) && !getOK && LOG.isWarnEnabled()) {
+						report.warn(format("Only GET requests are cached or coalesced, %s is ignored! in %s method '%s'",
+						                   getOnly.getCanonicalName(),
+						                   service.getCanonicalName(),
+						                   method.getName()));
+					}
+				}
+				
+				if(!method.isAnnotationPresent(Produces.class) && !method.getReturnType().equals(Void.TYPE)) {
+					warn = true;
+					if(LOG.isWarnEnabled()) {
+						report.warn(format("Your rest method resource returns a %s value. Your method must have a %s-annotation! in %s method '%s'",
+						                   method.getReturnType().getCanonicalName(),
+						                   Produces.class.getCanonicalName(),
+						                   service.getCanonicalName(),
+						                   method.getName()));
+					}
+				}
+				
+				if(!warn) {
+					String url = format("http://%s:%s%s%s", "%s", "%d",
+					                    service.getAnnotation(Path.class).value(),
+					                    method.getAnnotation(Path.class).value());
+					foundResources.add(new AbstractMap.SimpleEntry<>(url, method));
+					if(LOG.isInfoEnabled()) {
+						report.info(format("Rest resource accessible %s method '%s' using http://[host:port]/%s%s",
+						                   service.getCanonicalName(), method.getName(),
+						                   service.getAnnotation(Path.class).value(),
+						                   method.getAnnotation(Path.class).value()));
+					}
+				}
+			}
+		}
+		
+		if(!ok) {
+			if(LOG.isWarnEnabled()) {
+				report.warn(format("Your rest resource does not contain a compatible public method haven a %s-annotation! in %s",
+				                   Path.class.getCanonicalName(),
+				                   service.getCanonicalName()));
+			}
+		}
+		
+		return foundResources;
+	}
+	
+	private static Report join(List<Report> reports) {
+		Report joined = new Report();
+		for (Report report : reports) {
+			joined.messages.addAll(report.messages);
+			joined.typeNames.addAll(report.typeNames);
+			joined.resources.addAll(report.resources);
+		}
+		return joined;
+	}
+	
+	public Collection<String> getTypeNames() {
+		return typeNames;
+	}
+	
+	public Collection<Map.Entry<String, Method>> getResourcesFound() {
+		return resourcesFound;
+	}
+	
+	public Timings getTimings() {
+		return timings;
+	}
+	
+	/**
+	 * Time spent per phase. The phases are summed over all threads, so with more than one thread they may add up to
+	 * more than {@link #getTotalMillis()}.
+	 */
+	public static final class Timings {
+		
+		private final int       parallelism;
+		private final LongAdder discovery;
+		private final LongAdder loading;
+		private final LongAdder validation;
+		private volatile long   total;
+		
+		private Timings(int parallelism) {
+			this.parallelism = parallelism;
+			discovery = new LongAdder();
+			loading = new LongAdder();
+			validation = new LongAdder();
+		}
+		
+		private Class<IRestService> load(String className) throws ClassNotFoundException {
+			long start = System.nanoTime();
+			try {
+				return ClassUtils.loadClass(className);
+			} finally {
+				loading.add(System.nanoTime() - start);
+			}
+		}
+		
+		public int getParallelism() {
+			return parallelism;
+		}
+		
+		/**
+		 * @return reading the index and scanning the class path
+		 */
+		public long getDiscoveryMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(discovery.sum());
+		}
+		
+		public long getLoadingMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(loading.sum());
+		}
+		
+		/**
+		 * @return checking the annotations of the services and their methods
+		 */
+		public long getValidationMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(validation.sum());
+		}
+		
+		public long getTotalMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(total);
+		}
+		
+		@Override
+		public String toString() {
+			return format("[total: %d ms; discovery: %d ms; loading: %d ms; validation: %d ms; threads: %d]",
+			              getTotalMillis(), getDiscoveryMillis(), getLoadingMillis(), getValidationMillis(), parallelism);
+		}
+	}
+	
+	/**
+	 * Messages of a package or service, printed in order after all packages are done
+	 */
+	private static final class Report {
+		
+		private final List<Map.Entry<Level, String>>  messages  = new ArrayList<>();
+		private final List<String>                    typeNames = new ArrayList<>();
+		private final List<Map.Entry<String, Method>> resources = new ArrayList<>();
+		
+		private void info(String message) {
+			messages.add(new AbstractMap.SimpleEntry<>(Level.INFO, message));
+		}
+		
+		private void warn(String message) {
+			messages.add(new AbstractMap.SimpleEntry<>(Level.WARN, message));
+		}
+		
+		private void print() {
+			for (Map.Entry<Level, String> message : messages) {
+				LOG.log(message.getKey(), message.getValue());
+			}
+		}
+	}
+	
+	private static final class OutdatedIndexException extends RuntimeException {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private OutdatedIndexException(ReflectiveOperationException cause) {
+			super(cause);
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package de.mydata.rest.server.admission;
+
+import javax.ws.rs.Path;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.lang.String.format;
+
+/**
+ * The {@link AdmissionLimit}s of the resources of a {@link de.mydata.rest.server.JettyRestServer}, by the keys of
+ * {@link de.mydata.rest.server.JettyRestServer#getResourcesFound()}. Each limited method gets its own
+ * {@link ResourceLimiter}, applied by {@link AdmissionFilter}, so an overloaded method is refused quickly instead of
+ * taking the threads and the queue of the others.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public final class AdmissionController {
+	
+	/**
+	 * Servlet context attribute {@link AdmissionFeature} finds the controller of its server by
+	 */
+	public static final String CONTEXT_ATTRIBUTE = AdmissionController.class.getName();
+	
+	private final Map<String, AdmissionLimit>          limits;
+	private final ConcurrentMap<String, ResourceLimiter> limiters;
+	
+	/**
+	 * @param limits by resource key
+	 */
+	public AdmissionController(Map<String, AdmissionLimit> limits) {
+		this.limits = new LinkedHashMap<>(limits);
+		limiters = new ConcurrentHashMap<>();
+	}
+	
+	/**
+	 * The key a resource is found by, like the one of {@link de.mydata.rest.server.ServiceDiscovery}.
+	 *
+	 * @param service the class annotated with the path of the service
+	 */
+	public static String keyOf(Class<?> service, Method method) {
+		Path servicePath = service.getAnnotation(Path.class);
+		Path methodPath  = method.getAnnotation(Path.class);
+		return format("http://%s:%s%s%s", "%s", "%d",
+		              servicePath == null
+		              ? ""
+		              : servicePath.value(),
+		              methodPath == null
+		              ? ""
+		              : methodPath.value());
+	}
+	
+	/**
+	 * @return <code>null</code> if the method is not limited
+	 */
+	ResourceLimiter limiterFor(Class<?> service, Method method) {
+		String         key   = keyOf(service, method);
+		AdmissionLimit limit = limits.get(key);
+		return limit == null
+		       ? null
+		       : limiters.computeIfAbsent(key, resource -> new ResourceLimiter(resource, limit));
+	}
+	
+	/**
+	 * @param resourcesFound see {@link de.mydata.rest.server.JettyRestServer#getResourcesFound()}
+	 * @return the keys of limits no resource has
+	 */
+	public Collection<String> unknownResources(Collection<Map.Entry<String, Method>> resourcesFound) {
+		Collection<String> unknown = new ArrayList<>(limits.keySet());
+		for (Map.Entry<String, Method> resource : resourcesFound) {
+			unknown.remove(resource.getKey());
+		}
+		return unknown;
+	}
+	
+	public Map<String, AdmissionLimit> getLimits() {
+		return limits;
+	}
+	
+	/**
+	 * @return the limiters of the limited methods jersey has bound so far
+	 */
+	public List<ResourceLimiter> getLimiters() {
+		return new ArrayList<>(limiters.values());
+	}
+	
+	public long getAdmitted() {
+		return limiters.values().stream().mapToLong(ResourceLimiter::getAdmitted).sum();
+	}
+	
+	public long getShed() {
+		return limiters.values().stream().mapToLong(ResourceLimiter::getShed).sum();
+	}
+	
+	@Override
+	public String toString() {
+		return "admitted " + getAdmitted() + ", shed " + getShed() + " of " + limits.size() + " limited resources";
+	}
+}
@@ -0,0 +1,43 @@
+package de.mydata.rest.server.admission;
+
+import de.mydata.rest.server.metrics.RestMetrics;
+
+import javax.servlet.ServletContext;
+import javax.ws.rs.container.DynamicFeature;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.FeatureContext;
+import java.lang.reflect.Method;
+
+/**
+ * Binds an {@link AdmissionFilter} to each method with an {@link AdmissionLimit}. Registered by
+ * {@link de.mydata.rest.server.JettyRestServer} with {@link AdmissionListener} when resources are limited, other
+ * methods pay nothing.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public class AdmissionFeature implements DynamicFeature {
+	
+	@Context
+	private ServletContext servletContext;
+	
+	@Override
+	public void configure(ResourceInfo resourceInfo, FeatureContext context) {
+		Method method = resourceInfo.getResourceMethod();
+		if(method == null) {
+			return;
+		}
+		AdmissionController admission = (AdmissionController) servletContext.getAttribute(AdmissionController.CONTEXT_ATTRIBUTE);
+		ResourceLimiter limiter = admission == null
+		                          ? null
+		                          : admission.limiterFor(resourceInfo.getResourceClass(), method);
+		if(limiter != null) {
+			RestMetrics metrics = (RestMetrics) servletContext.getAttribute(RestMetrics.CONTEXT_ATTRIBUTE);
+			context.register(new AdmissionFilter(limiter,
+			                                     metrics == null
+			                                     ? null
+			                                     : metrics.forMethod(method)),
+			                 AdmissionFilter.PRIORITY);
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package de.mydata.rest.server.admission;
+
+import de.mydata.rest.server.metrics.ResourceMetrics;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * Admits the requests of one limited method by its {@link ResourceLimiter}, bound to the method by
+ * {@link AdmissionFeature}. Refused requests are answered at once, without a queue: <code>429</code> beyond the rate,
+ * <code>503</code> beyond the concurrency, both with <code>Retry-After</code>. {@link AdmissionListener} releases the
+ * admitted ones when they finished.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+final class AdmissionFilter implements ContainerRequestFilter {
+	
+	/**
+	 * Late among the request filters, after authentication and the response cache, so cache hits are not limited,
+	 * before {@link de.mydata.rest.server.cache.SingleFlight} waiters take a thread
+	 */
+	static final int PRIORITY = Integer.MAX_VALUE - 1;
+	
+	static final String LIMITER_PROPERTY = AdmissionFilter.class.getName() + ".limiter";
+	static final String START_PROPERTY   = AdmissionFilter.class.getName() + ".start";
+	
+	private static final int TOO_MANY_REQUESTS = 429;
+	
+	private final ResourceLimiter limiter;
+	private final ResourceMetrics metrics;
+	
+	/**
+	 * @param metrics <code>null</code> if metrics are not enabled
+	 */
+	AdmissionFilter(ResourceLimiter limiter, ResourceMetrics metrics) {
+		this.limiter = limiter;
+		this.metrics = metrics;
+	}
+	
+	@Override
+	public void filter(ContainerRequestContext request) {
+		long                      now       = System.nanoTime();
+		ResourceLimiter.Rejection rejection = limiter.tryAcquire(now);
+		if(rejection == null) {
+			request.setProperty(LIMITER_PROPERTY, limiter);
+			request.setProperty(START_PROPERTY, now);
+			return;
+		}
+		if(metrics != null) {
+			metrics.shed();
+		}
+		// jersey sends an error status without entity as error page, which loses the header
+		request.abortWith(Response.status(rejection.isRateLimited()
+		                                  ? TOO_MANY_REQUESTS
+		                                  : Response.Status.SERVICE_UNAVAILABLE.getStatusCode())
+		                          .header(HttpHeaders.RETRY_AFTER, rejection.getRetryAfterSeconds())
+		                          .type(MediaType.TEXT_PLAIN_TYPE)
+		                          .entity(rejection.isRateLimited()
+		                                  ? "rate limit exceeded"
+		                                  : "overloaded")
+		                          .build());
+	}
+}
@@ -0,0 +1,155 @@
+package de.mydata.rest.server.admission;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The limits of one resource method, see
+ * {@link de.mydata.rest.server.JettyRestServer.ServerConfigFactory#limitResource(String, AdmissionLimit)}. Each limit
+ * is optional, a method may combine all of them.
+ * <ul>
+ * <li>concurrency: requests running the method at once, a bulkhead; more are refused with <code>503</code></li>
+ * <li>rate: requests per second with a burst, a token bucket; more are refused with <code>429</code></li>
+ * <li>adaptive concurrency: the concurrency limit shrinks while the method is slower than a target latency or fails,
+ * and grows back one by one while it is fast, additive increase, multiplicative decrease</li>
+ * </ul>
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public final class AdmissionLimit {
+	
+	private final int    maxConcurrency;
+	private final int    minConcurrency;
+	private final long   targetLatencyNanos;
+	private final double permitsPerSecond;
+	private final int    burst;
+	
+	private AdmissionLimit(LimitConfigFactory config) {
+		maxConcurrency = config.maxConcurrency;
+		minConcurrency = config.minConcurrency;
+		targetLatencyNanos = config.targetLatencyNanos;
+		permitsPerSecond = config.permitsPerSecond;
+		burst = config.burst;
+	}
+	
+	public static LimitConfigFactory configure() {
+		return new LimitConfigFactory();
+	}
+	
+	/**
+	 * @return 0 if the concurrency is not limited
+	 */
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+	
+	/**
+	 * @return lower bound of the adaptive limit, 0 if the limit is fixed
+	 */
+	public int getMinConcurrency() {
+		return minConcurrency;
+	}
+	
+	public boolean isAdaptive() {
+		return targetLatencyNanos > 0;
+	}
+	
+	public long getTargetLatencyNanos() {
+		return targetLatencyNanos;
+	}
+	
+	/**
+	 * @return 0 if the rate is not limited
+	 */
+	public double getPermitsPerSecond() {
+		return permitsPerSecond;
+	}
+	
+	public int getBurst() {
+		return burst;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		if(maxConcurrency > 0) {
+			text.append("concurrency ");
+			if(isAdaptive()) {
+				text.append(minConcurrency).append("..");
+			}
+			text.append(maxConcurrency);
+		}
+		if(permitsPerSecond > 0) {
+			text.append(text.length() == 0
+			            ? ""
+			            : ", ").append(permitsPerSecond).append("/s, burst ").append(burst);
+		}
+		return text.toString();
+	}
+	
+	public static final class LimitConfigFactory {
+		
+		private int    maxConcurrency;
+		private int    minConcurrency;
+		private long   targetLatencyNanos;
+		private double permitsPerSecond;
+		private int    burst;
+		
+		private LimitConfigFactory() {
+			maxConcurrency = 0;
+			minConcurrency = 0;
+			targetLatencyNanos = 0;
+			permitsPerSecond = 0;
+			burst = 1;
+		}
+		
+		/**
+		 * @param maxConcurrency requests running the method at once
+		 */
+		public LimitConfigFactory setMaxConcurrency(int maxConcurrency) {
+			if(maxConcurrency < 1) {
+				throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+			}
+			this.maxConcurrency = maxConcurrency;
+			return this;
+		}
+		
+		/**
+		 * @param permitsPerSecond requests admitted per second on average
+		 * @param burst            requests admitted at once after an idle period
+		 */
+		public LimitConfigFactory setRate(double permitsPerSecond, int burst) {
+			if(!(permitsPerSecond > 0) || burst < 1) {
+				throw new IllegalArgumentException("rate and burst must be positive: " + permitsPerSecond + ", " + burst);
+			}
+			this.permitsPerSecond = permitsPerSecond;
+			this.burst = burst;
+			return this;
+		}
+		
+		/**
+		 * Adapts the concurrency limit between the bounds, starting at the maximum of
+		 * {@link #setMaxConcurrency(int)}.
+		 *
+		 * @param minConcurrency the limit never shrinks below
+		 * @param targetLatency  requests finishing slower, or with a <code>5xx</code> status, shrink the limit
+		 */
+		public LimitConfigFactory enableAdaptiveConcurrency(int minConcurrency, long targetLatency, TimeUnit unit) {
+			if(minConcurrency < 1 || targetLatency < 1) {
+				throw new IllegalArgumentException("minConcurrency and targetLatency must be positive: " + minConcurrency + ", " + targetLatency);
+			}
+			this.minConcurrency = minConcurrency;
+			this.targetLatencyNanos = unit.toNanos(targetLatency);
+			return this;
+		}
+		
+		public AdmissionLimit commit() {
+			if(targetLatencyNanos > 0 && maxConcurrency < minConcurrency) {
+				throw new IllegalArgumentException("adaptive concurrency needs a maxConcurrency of at least " + minConcurrency);
+			}
+			if(maxConcurrency == 0 && permitsPerSecond == 0) {
+				throw new IllegalArgumentException("neither concurrency nor rate is limited");
+			}
+			return new AdmissionLimit(this);
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package de.mydata.rest.server.admission;
+
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ContainerResponse;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import javax.servlet.ServletContext;
+import javax.ws.rs.core.Context;
+
+/**
+ * Releases the requests {@link AdmissionFilter} admitted once they finished, after the body is written and for
+ * exceptions no mapper handles too, so a failing method does not keep its permits.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public class AdmissionListener implements ApplicationEventListener, RequestEventListener {
+	
+	@Context
+	private ServletContext servletContext;
+	
+	private volatile AdmissionController admission;
+	
+	@Override
+	public void onEvent(ApplicationEvent event) {
+		if(event.getType() == ApplicationEvent.Type.INITIALIZATION_FINISHED) {
+			admission = (AdmissionController) servletContext.getAttribute(AdmissionController.CONTEXT_ATTRIBUTE);
+		}
+	}
+	
+	/**
+	 * @return this, the listener keeps no state per request
+	 */
+	@Override
+	public RequestEventListener onRequest(RequestEvent requestEvent) {
+		return admission == null
+		       ? null
+		       : this;
+	}
+	
+	@Override
+	public void onEvent(RequestEvent event) {
+		if(event.getType() == RequestEvent.Type.FINISHED) {
+			ContainerRequest request = event.getContainerRequest();
+			Object           limiter = request.getProperty(AdmissionFilter.LIMITER_PROPERTY);
+			if(limiter != null) {
+				request.removeProperty(AdmissionFilter.LIMITER_PROPERTY);
+				ContainerResponse response = event.getContainerResponse();
+				boolean           failed   = !event.isSuccess() || response == null || response.getStatus() >= 500;
+				long              start    = (Long) request.getProperty(AdmissionFilter.START_PROPERTY);
+				((ResourceLimiter) limiter).release(System.nanoTime() - start, failed);
+			}
+		}
+	}
+}
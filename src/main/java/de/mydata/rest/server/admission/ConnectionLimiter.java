@@ -0,0 +1,31 @@
+package de.mydata.rest.server.admission;
+
+import org.eclipse.jetty.io.Connection;
+import org.eclipse.jetty.server.ConnectionLimit;
+import org.eclipse.jetty.server.Server;
+
+/**
+ * {@link ConnectionLimit} that shortens the idle timeout of every connection open at the limit. Jetty only shortens
+ * it for the connections completely open when the limit is reached, not for the ones still being accepted, so idle
+ * keep-alive connections could hold the limit for the whole idle timeout of the connector.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public class ConnectionLimiter extends ConnectionLimit {
+	
+	/**
+	 * @param idleTimeout of the connections at the limit, not positive to keep the one of the connector
+	 */
+	public ConnectionLimiter(int maxConnections, long idleTimeout, Server server) {
+		super(maxConnections, server);
+		setIdleTimeout(idleTimeout);
+	}
+	
+	@Override
+	public synchronized void onOpened(Connection connection) {
+		super.onOpened(connection);
+		if(getConnections() >= getMaxConnections()) {
+			limit();
+		}
+	}
+}
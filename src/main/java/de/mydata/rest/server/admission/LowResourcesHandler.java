@@ -0,0 +1,41 @@
+package de.mydata.rest.server.admission;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.server.LowResourceMonitor;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Answers requests with <code>503</code> and <code>Retry-After</code> while the {@link LowResourceMonitor} reports
+ * low resources, e.g. the thread pool is exhausted, instead of queueing them behind the ones already running.
+ * Connections beyond {@link org.eclipse.jetty.server.ConnectionLimit} are not accepted at all, so there is no
+ * request to answer for them.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public class LowResourcesHandler extends HandlerWrapper {
+	
+	private final LowResourceMonitor monitor;
+	private final String             retryAfterSeconds;
+	
+	public LowResourcesHandler(LowResourceMonitor monitor) {
+		this.monitor = monitor;
+		this.retryAfterSeconds = String.valueOf(Math.max(1, (monitor.getPeriod() + 999) / 1000));
+	}
+	
+	@Override
+	public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+		if(monitor.isLowOnResources()) {
+			baseRequest.setHandled(true);
+			response.setHeader(HttpHeader.RETRY_AFTER.asString(), retryAfterSeconds);
+			response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "low on resources");
+			return;
+		}
+		super.handle(target, baseRequest, request, response);
+	}
+}
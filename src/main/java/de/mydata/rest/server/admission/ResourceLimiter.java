@@ -0,0 +1,195 @@
+package de.mydata.rest.server.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admits the requests of one resource method within its {@link AdmissionLimit}. Admitting and releasing take no
+ * lock, the counters are compared and swapped.
+ * <p>
+ * The rate is a token bucket kept as the time the bucket is full again, the generic cell rate algorithm: each request
+ * moves it one interval ahead, and a request is refused while it is further ahead than the burst allows.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public final class ResourceLimiter {
+	
+	/**
+	 * Fraction the adaptive limit keeps on a slow or failed request
+	 */
+	private static final double DECREASE = 0.9;
+	
+	private final String         resource;
+	private final AdmissionLimit limit;
+	private final long           intervalNanos;
+	private final long           toleranceNanos;
+	private final AtomicInteger  concurrencyLimit;
+	private final AtomicInteger  inFlight;
+	private final AtomicInteger  fastSinceIncrease;
+	private final AtomicLong     lastDecrease;
+	private final AtomicLong     full;
+	private final LongAdder      admitted;
+	private final LongAdder      overloaded;
+	private final LongAdder      rateLimited;
+	
+	ResourceLimiter(String resource, AdmissionLimit limit) {
+		this.resource = resource;
+		this.limit = limit;
+		intervalNanos = limit.getPermitsPerSecond() > 0
+		                ? (long) (TimeUnit.SECONDS.toNanos(1) / limit.getPermitsPerSecond())
+		                : 0;
+		toleranceNanos = intervalNanos * (limit.getBurst() - 1);
+		concurrencyLimit = new AtomicInteger(limit.getMaxConcurrency() > 0
+		                                     ? limit.getMaxConcurrency()
+		                                     : Integer.MAX_VALUE);
+		inFlight = new AtomicInteger();
+		fastSinceIncrease = new AtomicInteger();
+		lastDecrease = new AtomicLong(System.nanoTime());
+		full = new AtomicLong(System.nanoTime());
+		admitted = new LongAdder();
+		overloaded = new LongAdder();
+		rateLimited = new LongAdder();
+	}
+	
+	/**
+	 * @return <code>null</code> if the request is admitted, it must be {@link #release(long, boolean) released} then
+	 */
+	Rejection tryAcquire(long now) {
+		int running;
+		do {
+			running = inFlight.get();
+			if(running >= concurrencyLimit.get()) {
+				overloaded.increment();
+				return new Rejection(false, limit.isAdaptive()
+				                            ? limit.getTargetLatencyNanos()
+				                            : 0);
+			}
+		} while (!inFlight.compareAndSet(running, running + 1));
+		
+		if(intervalNanos > 0) {
+			long current;
+			long next;
+			do {
+				current = full.get();
+				next = Math.max(current, now);
+				if(next - now > toleranceNanos) {
+					inFlight.decrementAndGet();
+					rateLimited.increment();
+					return new Rejection(true, next - now - toleranceNanos);
+				}
+			} while (!full.compareAndSet(current, next + intervalNanos));
+		}
+		admitted.increment();
+		return null;
+	}
+	
+	/**
+	 * @param nanos  the request took
+	 * @param failed the method threw or the response status is 5xx
+	 */
+	void release(long nanos, boolean failed) {
+		inFlight.decrementAndGet();
+		if(limit.isAdaptive()) {
+			adapt(nanos, failed);
+		}
+	}
+	
+	private void adapt(long nanos, boolean failed) {
+		int current = concurrencyLimit.get();
+		if(failed || nanos > limit.getTargetLatencyNanos()) {
+			long now  = System.nanoTime();
+			long last = lastDecrease.get();
+			// the requests running during one slow period shrink the limit once, not each on its own
+			if(now - last > limit.getTargetLatencyNanos() && lastDecrease.compareAndSet(last, now)) {
+				concurrencyLimit.compareAndSet(current, Math.max(limit.getMinConcurrency(), (int) (current * DECREASE)));
+				fastSinceIncrease.set(0);
+			}
+		} else if(current < limit.getMaxConcurrency() && fastSinceIncrease.incrementAndGet() >= current) {
+			// one more after a limit full of fast requests
+			fastSinceIncrease.set(0);
+			concurrencyLimit.compareAndSet(current, current + 1);
+		}
+	}
+	
+	/**
+	 * @return the key of the resource, see {@link de.mydata.rest.server.JettyRestServer#getResourcesFound()}
+	 */
+	public String getResource() {
+		return resource;
+	}
+	
+	public AdmissionLimit getLimit() {
+		return limit;
+	}
+	
+	/**
+	 * @return the current concurrency limit, {@link Integer#MAX_VALUE} if it is not limited
+	 */
+	public int getConcurrencyLimit() {
+		return concurrencyLimit.get();
+	}
+	
+	public int getInFlight() {
+		return inFlight.get();
+	}
+	
+	public long getAdmitted() {
+		return admitted.sum();
+	}
+	
+	/**
+	 * @return requests refused by either limit
+	 */
+	public long getShed() {
+		return overloaded.sum() + rateLimited.sum();
+	}
+	
+	/**
+	 * @return requests refused by the concurrency limit
+	 */
+	public long getOverloaded() {
+		return overloaded.sum();
+	}
+	
+	/**
+	 * @return requests refused by the rate limit
+	 */
+	public long getRateLimited() {
+		return rateLimited.sum();
+	}
+	
+	@Override
+	public String toString() {
+		return resource + " (" + limit + "): admitted " + getAdmitted() + ", shed " + getShed() + ", in flight " + getInFlight();
+	}
+	
+	/**
+	 * Why a request was refused and when to retry
+	 */
+	static final class Rejection {
+		
+		private final boolean rateLimited;
+		private final long    retryAfterNanos;
+		
+		private Rejection(boolean rateLimited, long retryAfterNanos) {
+			this.rateLimited = rateLimited;
+			this.retryAfterNanos = retryAfterNanos;
+		}
+		
+		/**
+		 * @return <code>true</code> for the rate limit, <code>false</code> for the concurrency limit
+		 */
+		boolean isRateLimited() {
+			return rateLimited;
+		}
+		
+		/**
+		 * @return whole seconds for the <code>Retry-After</code> header, at least one
+		 */
+		long getRetryAfterSeconds() {
+			return Math.max(1, (retryAfterNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+		}
+	}
+}
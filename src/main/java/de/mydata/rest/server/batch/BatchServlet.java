@@ -0,0 +1,317 @@
+package de.mydata.rest.server.batch;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.mydata.http.JsonCodecRegistry;
+import de.mydata.log.Log;
+import de.mydata.log.Logger;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.servlet.ServletMapping;
+
+import javax.servlet.Servlet;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs many requests sent in one body against the rest services of the server, registered by
+ * {@link de.mydata.rest.server.JettyRestServer} when batching is enabled. The body is a json array of requests:
+ * <pre>
+ * [{"id": "a", "method": "GET", "path": "/items/42?expand=true", "headers": {"Accept": "application/json"}},
+ *  {"id": "b", "method": "PUT", "path": "/items/43", "body": {"name": "x"}}]
+ * </pre>
+ * <code>method</code> defaults to <code>GET</code>, <code>id</code> to the index of the request. A json body is
+ * passed as is, a string body as text. Headers of the batch request, e.g. <code>Authorization</code>, apply to all
+ * requests, unless they set them themselves; content and negotiation headers do not.
+ * <p>
+ * The requests are dispatched to jersey in parallel, by the thread of the batch and helpers on the executor. The
+ * answers are streamed back as json array in the order they complete, each with its own status:
+ * <pre>
+ * [{"id": "b", "status": 204, "headers": {}},
+ *  {"id": "a", "status": 200, "headers": {"Content-Type": "application/json"}, "body": {"id": 42}}]
+ * </pre>
+ * A json body is answered as is, a text body as string. Other bodies, e.g. smile or files, are answered base64
+ * encoded, marked by <code>"encoding": "base64"</code>.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public class BatchServlet extends HttpServlet {
+	
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * Marks an answer whose body is base64 encoded.
+	 */
+	public static final String ENCODING        = "encoding";
+	public static final String ENCODING_BASE64 = "base64";
+	
+	private static final Logger LOG = Log.getLogger(BatchServlet.class);
+	
+	private static final Set<String> NOT_INHERITED = new HashSet<>(Arrays.asList("content-type", "content-length", "content-encoding",
+	                                                                             "transfer-encoding", "accept", "accept-encoding", "expect",
+	                                                                             "if-none-match", "if-modified-since", "if-match",
+	                                                                             "if-unmodified-since"));
+	
+	private static final Set<String> NOT_ANSWERED = new HashSet<>(Arrays.asList("content-length", "transfer-encoding"));
+	
+	private final transient ServletHolder jersey;
+	private final           String        path;
+	private final transient Executor      executor;
+	private final           int           maxRequests;
+	private final           int           parallelism;
+	private                 String        jerseyPath;
+	
+	/**
+	 * @param jersey      the servlet of the rest services
+	 * @param path        of this servlet, requests to it are refused
+	 * @param executor    runs the helpers dispatching in parallel
+	 * @param maxRequests per batch, larger ones are refused with 413
+	 * @param parallelism requests of a batch dispatched at once
+	 */
+	public BatchServlet(ServletHolder jersey, String path, Executor executor, int maxRequests, int parallelism) {
+		this.jersey = jersey;
+		this.path = path;
+		this.executor = executor;
+		this.maxRequests = maxRequests;
+		this.parallelism = parallelism;
+	}
+	
+	/**
+	 * Finds the servlet path of jersey, the paths of the requests are relative to it.
+	 */
+	@Override
+	public void init() throws ServletException {
+		jerseyPath = "";
+		for (ServletMapping mapping : jersey.getServletHandler().getServletMappings()) {
+			if(mapping.getServletName().equals(jersey.getName())) {
+				String spec = mapping.getPathSpecs()[0];
+				jerseyPath = spec.endsWith("/*")
+				             ? spec.substring(0, spec.length() - 2)
+				             : spec;
+				break;
+			}
+		}
+	}
+	
+	@Override
+	protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
+		ObjectMapper mapper = JsonCodecRegistry.getInstance().getMapper();
+		JsonNode     requests;
+		try {
+			requests = mapper.readTree(req.getInputStream());
+		} catch (JsonProcessingException e) {
+			resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "invalid json: " + e.getOriginalMessage());
+			return;
+		}
+		if(requests == null || !requests.isArray()) {
+			resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "a json array of requests expected");
+			return;
+		}
+		if(requests.size() > maxRequests) {
+			resp.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "at most " + maxRequests + " requests per batch");
+			return;
+		}
+		
+		Batch batch = new Batch(req, requests, jersey.getServlet());
+		resp.setStatus(HttpServletResponse.SC_OK);
+		resp.setContentType("application/json");
+		try (JsonGenerator json = mapper.getFactory().createGenerator(resp.getOutputStream())) {
+			batch.json = json;
+			json.writeStartArray();
+			int helpers = Math.min(parallelism, requests.size()) - 1;
+			for (int i = 0; i < helpers; i++) {
+				try {
+					executor.execute(batch::work);
+				} catch (RejectedExecutionException e) {
+					// the thread of the batch does the rest
+					break;
+				}
+			}
+			batch.work();
+			batch.await();
+			json.writeEndArray();
+		}
+	}
+	
+	private final class Batch {
+		
+		private final HttpServletRequest request;
+		private final JsonNode           requests;
+		private final Servlet            servlet;
+		private final AtomicInteger      next;
+		private final CountDownLatch     done;
+		private       JsonGenerator      json;
+		private       boolean            broken;
+		
+		private Batch(HttpServletRequest request, JsonNode requests, Servlet servlet) {
+			this.request = request;
+			this.requests = requests;
+			this.servlet = servlet;
+			next = new AtomicInteger();
+			done = new CountDownLatch(requests.size());
+		}
+		
+		/**
+		 * Dispatches requests until none is left, run by the thread of the batch and the helpers.
+		 */
+		private void work() {
+			int index;
+			while ((index = next.getAndIncrement()) < requests.size()) {
+				try {
+					JsonNode    node     = requests.get(index);
+					SubResponse response = dispatch(node);
+					write(node.has("id")
+					      ? node.get("id")
+					      : null, index, response);
+				} finally {
+					done.countDown();
+				}
+			}
+		}
+		
+		private void await() throws IOException {
+			try {
+				done.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("interrupted while waiting for the batch", e);
+			}
+		}
+		
+		private SubResponse dispatch(JsonNode node) {
+			SubResponse response = new SubResponse();
+			String      target   = node.path("path").asText("");
+			String      uri      = jerseyPath + target;
+			if(!target.startsWith("/") || uri.equals(path) || uri.startsWith(path + "?")) {
+				response.sendError(HttpServletResponse.SC_BAD_REQUEST, "invalid path '" + target + "'");
+				return response;
+			}
+			Map<String, String> headers = inheritedHeaders();
+			Iterator<Map.Entry<String, JsonNode>> fields = node.path("headers").fields();
+			while (fields.hasNext()) {
+				Map.Entry<String, JsonNode> header = fields.next();
+				headers.put(header.getKey(), header.getValue().asText());
+			}
+			JsonNode body = node.get("body");
+			byte[] content = new byte[0];
+			if(body != null && !body.isNull()) {
+				if(body.isTextual()) {
+					content = body.asText().getBytes(StandardCharsets.UTF_8);
+					headers.putIfAbsent("Content-Type", "text/plain");
+				} else {
+					content = body.toString().getBytes(StandardCharsets.UTF_8);
+					headers.putIfAbsent("Content-Type", "application/json");
+				}
+			}
+			SubRequest subRequest = new SubRequest(request, jerseyPath, node.path("method").asText("GET").toUpperCase(Locale.ROOT), target, headers, content);
+			try {
+				servlet.service(subRequest, response);
+			} catch (ServletException | IOException | RuntimeException e) {
+				LOG.warn("batch request %s %s failed: %s", subRequest.getMethod(), target, e);
+				response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, String.valueOf(e.getCause() == null
+				                                                                                 ? e
+				                                                                                 : e.getCause()));
+			}
+			return response;
+		}
+		
+		private Map<String, String> inheritedHeaders() {
+			Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+			Enumeration<String> names   = request.getHeaderNames();
+			while (names.hasMoreElements()) {
+				String name = names.nextElement();
+				if(!NOT_INHERITED.contains(name.toLowerCase(Locale.ROOT))) {
+					headers.put(name, request.getHeader(name));
+				}
+			}
+			return headers;
+		}
+		
+		private void write(JsonNode id, int index, SubResponse response) {
+			byte[] body = response.getBody();
+			synchronized (this) {
+				if(broken) {
+					return;
+				}
+				try {
+					json.writeStartObject();
+					if(id == null) {
+						json.writeNumberField("id", index);
+					} else {
+						json.writeFieldName("id");
+						json.writeTree(id);
+					}
+					json.writeNumberField("status", response.getStatus());
+					json.writeObjectFieldStart("headers");
+					for (Map.Entry<String, List<String>> header : response.getHeaderMap().entrySet()) {
+						if(!NOT_ANSWERED.contains(header.getKey().toLowerCase(Locale.ROOT))) {
+							json.writeStringField(header.getKey(), String.join(", ", header.getValue()));
+						}
+					}
+					json.writeEndObject();
+					if(body.length > 0) {
+						json.writeFieldName("body");
+						String contentType = response.getContentType();
+						if(isJson(contentType)) {
+							json.writeRawValue(new String(body, StandardCharsets.UTF_8));
+						} else if(isText(contentType)) {
+							json.writeString(new String(body, StandardCharsets.UTF_8));
+						} else {
+							json.writeBinary(body);
+							json.writeStringField(ENCODING, ENCODING_BASE64);
+						}
+					}
+					json.writeEndObject();
+					json.flush();
+				} catch (IOException e) {
+					// the client is gone, the other requests still complete
+					broken = true;
+				}
+			}
+		}
+	}
+	
+	private static boolean isJson(String contentType) {
+		String type = mediaType(contentType);
+		return type.equals("application/json") || type.endsWith("+json");
+	}
+	
+	/**
+	 * Sub responses write text as utf-8, see {@link SubResponse#getCharacterEncoding()}. Without a content type, the
+	 * body is an error message of jetty or jersey.
+	 */
+	private static boolean isText(String contentType) {
+		String type = mediaType(contentType);
+		return type.isEmpty() || type.startsWith("text/") || type.equals("application/xml") || type.endsWith("+xml")
+		       || type.equals("application/x-www-form-urlencoded") || type.equals("application/javascript");
+	}
+	
+	private static String mediaType(String contentType) {
+		if(contentType == null) {
+			return "";
+		}
+		String type = contentType.toLowerCase(Locale.ROOT);
+		int    end  = type.indexOf(';');
+		return end < 0
+		       ? type.trim()
+		       : type.substring(0, end).trim();
+	}
+}
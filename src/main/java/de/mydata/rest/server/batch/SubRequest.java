@@ -0,0 +1,239 @@
+package de.mydata.rest.server.batch;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One request of a batch. Method, uri, headers, body and attributes are its own, context path, connection, security and
+ * session are the ones of the batch request. Sub requests run in parallel, so nothing is written to the batch request.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+final class SubRequest extends HttpServletRequestWrapper {
+	
+	private final String              servletPath;
+	private final String              method;
+	private final String              path;
+	private final String              query;
+	private final Map<String, String> headers;
+	private final byte[]              body;
+	private final Map<String, Object> attributes;
+	
+	/**
+	 * @param servletPath  of the servlet the request is dispatched to, <code>""</code> if it is mapped to <code>/*</code>
+	 * @param pathAndQuery e.g. <code>/items/42?expand=true</code>, relative to the servlet path
+	 */
+	SubRequest(HttpServletRequest batch, String servletPath, String method, String pathAndQuery, Map<String, String> headers, byte[] body) {
+		super(batch);
+		int queryStart = pathAndQuery.indexOf('?');
+		this.servletPath = servletPath;
+		this.method = method;
+		this.path = queryStart < 0
+		            ? pathAndQuery
+		            : pathAndQuery.substring(0, queryStart);
+		this.query = queryStart < 0
+		             ? null
+		             : pathAndQuery.substring(queryStart + 1);
+		this.headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		this.headers.putAll(headers);
+		this.body = body;
+		this.attributes = new ConcurrentHashMap<>();
+	}
+	
+	String getPath() {
+		return path;
+	}
+	
+	@Override
+	public String getMethod() {
+		return method;
+	}
+	
+	@Override
+	public String getServletPath() {
+		return servletPath;
+	}
+	
+	@Override
+	public String getPathInfo() {
+		return path;
+	}
+	
+	@Override
+	public String getRequestURI() {
+		return getContextPath() + servletPath + path;
+	}
+	
+	@Override
+	public StringBuffer getRequestURL() {
+		StringBuffer url = new StringBuffer(64);
+		url.append(getScheme()).append("://").append(getServerName()).append(':').append(getServerPort()).append(getRequestURI());
+		return url;
+	}
+	
+	@Override
+	public String getQueryString() {
+		return query;
+	}
+	
+	@Override
+	public String getHeader(String name) {
+		return headers.get(name);
+	}
+	
+	@Override
+	public Enumeration<String> getHeaders(String name) {
+		String value = headers.get(name);
+		return value == null
+		       ? Collections.emptyEnumeration()
+		       : Collections.enumeration(Collections.singletonList(value));
+	}
+	
+	@Override
+	public Enumeration<String> getHeaderNames() {
+		return Collections.enumeration(headers.keySet());
+	}
+	
+	@Override
+	public int getIntHeader(String name) {
+		String value = headers.get(name);
+		return value == null
+		       ? -1
+		       : Integer.parseInt(value);
+	}
+	
+	@Override
+	public String getContentType() {
+		return headers.get("Content-Type");
+	}
+	
+	@Override
+	public int getContentLength() {
+		return body.length;
+	}
+	
+	@Override
+	public long getContentLengthLong() {
+		return body.length;
+	}
+	
+	@Override
+	public String getCharacterEncoding() {
+		return StandardCharsets.UTF_8.name();
+	}
+	
+	@Override
+	public ServletInputStream getInputStream() {
+		ByteArrayInputStream in = new ByteArrayInputStream(body);
+		return new ServletInputStream() {
+			@Override
+			public boolean isFinished() {
+				return in.available() == 0;
+			}
+			
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+			
+			@Override
+			public void setReadListener(ReadListener readListener) {
+				throw new IllegalStateException("sub requests of a batch are read blocking");
+			}
+			
+			@Override
+			public int read() {
+				return in.read();
+			}
+			
+			@Override
+			public int read(byte[] buffer, int offset, int length) {
+				return in.read(buffer, offset, length);
+			}
+		};
+	}
+	
+	@Override
+	public BufferedReader getReader() {
+		return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8));
+	}
+	
+	@Override
+	public String getParameter(String name) {
+		return null;
+	}
+	
+	@Override
+	public Map<String, String[]> getParameterMap() {
+		return new HashMap<>();
+	}
+	
+	@Override
+	public Enumeration<String> getParameterNames() {
+		return Collections.emptyEnumeration();
+	}
+	
+	@Override
+	public String[] getParameterValues(String name) {
+		return null;
+	}
+	
+	@Override
+	public Object getAttribute(String name) {
+		return attributes.get(name);
+	}
+	
+	@Override
+	public Enumeration<String> getAttributeNames() {
+		return Collections.enumeration(attributes.keySet());
+	}
+	
+	@Override
+	public void setAttribute(String name, Object value) {
+		if(value == null) {
+			attributes.remove(name);
+		} else {
+			attributes.put(name, value);
+		}
+	}
+	
+	@Override
+	public void removeAttribute(String name) {
+		attributes.remove(name);
+	}
+	
+	@Override
+	public boolean isAsyncSupported() {
+		return false;
+	}
+	
+	@Override
+	public boolean isAsyncStarted() {
+		return false;
+	}
+	
+	@Override
+	public AsyncContext startAsync() {
+		throw new IllegalStateException("sub requests of a batch are synchronous");
+	}
+	
+	@Override
+	public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) {
+		throw new IllegalStateException("sub requests of a batch are synchronous");
+	}
+}
@@ -0,0 +1,292 @@
+package de.mydata.rest.server.batch;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+/**
+ * Buffers status, headers and body of one request of a batch, written into the batch response when complete.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+final class SubResponse implements HttpServletResponse {
+	
+	private final Map<String, List<String>> headers;
+	private final ByteArrayOutputStream     body;
+	private       int                       status;
+	private       boolean                   committed;
+	private       PrintWriter               writer;
+	private       Locale                    locale;
+	
+	SubResponse() {
+		headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		body = new ByteArrayOutputStream(1024);
+		status = SC_OK;
+		locale = Locale.getDefault();
+	}
+	
+	Map<String, List<String>> getHeaderMap() {
+		return headers;
+	}
+	
+	byte[] getBody() {
+		if(writer != null) {
+			writer.flush();
+		}
+		return body.toByteArray();
+	}
+	
+	@Override
+	public void addCookie(Cookie cookie) {
+		addHeader("Set-Cookie", cookie.getName() + "=" + cookie.getValue());
+	}
+	
+	@Override
+	public boolean containsHeader(String name) {
+		return headers.containsKey(name);
+	}
+	
+	@Override
+	public String encodeURL(String url) {
+		return url;
+	}
+	
+	@Override
+	public String encodeRedirectURL(String url) {
+		return url;
+	}
+	
+	@Override
+	@Deprecated
+	public String encodeUrl(String url) {
+		return url;
+	}
+	
+	@Override
+	@Deprecated
+	public String encodeRedirectUrl(String url) {
+		return url;
+	}
+	
+	@Override
+	public void sendError(int status, String message) {
+		this.status = status;
+		body.reset();
+		if(message != null) {
+			setContentType("text/plain");
+			byte[] text = message.getBytes(StandardCharsets.UTF_8);
+			body.write(text, 0, text.length);
+		}
+		committed = true;
+	}
+	
+	@Override
+	public void sendError(int status) {
+		sendError(status, null);
+	}
+	
+	@Override
+	public void sendRedirect(String location) {
+		status = SC_FOUND;
+		setHeader("Location", location);
+		committed = true;
+	}
+	
+	@Override
+	public void setDateHeader(String name, long date) {
+		setHeader(name, formatDate(date));
+	}
+	
+	@Override
+	public void addDateHeader(String name, long date) {
+		addHeader(name, formatDate(date));
+	}
+	
+	private static String formatDate(long date) {
+		SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("GMT"));
+		return format.format(new Date(date));
+	}
+	
+	@Override
+	public void setHeader(String name, String value) {
+		if(value == null) {
+			headers.remove(name);
+		} else {
+			List<String> values = new ArrayList<>(1);
+			values.add(value);
+			headers.put(name, values);
+		}
+	}
+	
+	@Override
+	public void addHeader(String name, String value) {
+		if(value != null) {
+			headers.computeIfAbsent(name, key -> new ArrayList<>(1)).add(value);
+		}
+	}
+	
+	@Override
+	public void setIntHeader(String name, int value) {
+		setHeader(name, String.valueOf(value));
+	}
+	
+	@Override
+	public void addIntHeader(String name, int value) {
+		addHeader(name, String.valueOf(value));
+	}
+	
+	@Override
+	public void setStatus(int status) {
+		this.status = status;
+	}
+	
+	@Override
+	@Deprecated
+	public void setStatus(int status, String message) {
+		this.status = status;
+	}
+	
+	@Override
+	public int getStatus() {
+		return status;
+	}
+	
+	@Override
+	public String getHeader(String name) {
+		List<String> values = headers.get(name);
+		return values == null
+		       ? null
+		       : values.get(0);
+	}
+	
+	@Override
+	public Collection<String> getHeaders(String name) {
+		List<String> values = headers.get(name);
+		return values == null
+		       ? Collections.emptyList()
+		       : new ArrayList<>(values);
+	}
+	
+	@Override
+	public Collection<String> getHeaderNames() {
+		return new ArrayList<>(headers.keySet());
+	}
+	
+	@Override
+	public String getCharacterEncoding() {
+		return StandardCharsets.UTF_8.name();
+	}
+	
+	@Override
+	public String getContentType() {
+		return getHeader("Content-Type");
+	}
+	
+	@Override
+	public ServletOutputStream getOutputStream() {
+		return new ServletOutputStream() {
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+			
+			@Override
+			public void setWriteListener(WriteListener writeListener) {
+				throw new IllegalStateException("sub responses of a batch are written blocking");
+			}
+			
+			@Override
+			public void write(int b) {
+				body.write(b);
+			}
+			
+			@Override
+			public void write(byte[] buffer, int offset, int length) {
+				body.write(buffer, offset, length);
+			}
+		};
+	}
+	
+	@Override
+	public PrintWriter getWriter() {
+		if(writer == null) {
+			writer = new PrintWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8));
+		}
+		return writer;
+	}
+	
+	@Override
+	public void setCharacterEncoding(String charset) {
+		// bodies are passed on as utf-8
+	}
+	
+	@Override
+	public void setContentLength(int length) {
+	}
+	
+	@Override
+	public void setContentLengthLong(long length) {
+	}
+	
+	@Override
+	public void setContentType(String type) {
+		setHeader("Content-Type", type);
+	}
+	
+	@Override
+	public void setBufferSize(int size) {
+	}
+	
+	@Override
+	public int getBufferSize() {
+		return Integer.MAX_VALUE;
+	}
+	
+	@Override
+	public void flushBuffer() {
+		committed = true;
+	}
+	
+	@Override
+	public void resetBuffer() {
+		body.reset();
+	}
+	
+	@Override
+	public boolean isCommitted() {
+		return committed;
+	}
+	
+	@Override
+	public void reset() {
+		headers.clear();
+		body.reset();
+		status = SC_OK;
+	}
+	
+	@Override
+	public void setLocale(Locale locale) {
+		this.locale = locale;
+	}
+	
+	@Override
+	public Locale getLocale() {
+		return locale;
+	}
+}
@@ -0,0 +1,33 @@
+package de.mydata.rest.server.cache;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the serialized responses of a <code>GET</code> resource method from the {@link ResourceResponseCache} of
+ * the server, keyed by path, query and <code>Accept</code> header. Cached responses carry a strong
+ * <code>ETag</code>, a matching <code>If-None-Match</code> is answered with <code>304</code>. Neither invokes the
+ * method nor serializes again.
+ * <p>
+ * Only takes effect if the server enabled the cache, see
+ * {@link de.mydata.rest.server.JettyRestServer.ServerConfigFactory#enableResponseCache(long)}. Use it for methods
+ * whose answer depends on the request uri only, not on cookies, sessions or other headers.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CachedResponse {
+	
+	/**
+	 * @return how long a response is served from the cache
+	 */
+	long ttl() default 60;
+	
+	TimeUnit unit() default TimeUnit.SECONDS;
+}
@@ -0,0 +1,178 @@
+package de.mydata.rest.server.cache;
+
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The requests of the {@link SingleFlight} resources of a {@link de.mydata.rest.server.JettyRestServer} which
+ * currently invoke their method, with the requests waiting for them. Filled and served by {@link SingleFlightFilter}.
+ * <p>
+ * Waiting requests block their thread, for the timeout of the method at most.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public final class InFlightRequests {
+	
+	/**
+	 * Servlet context attribute {@link SingleFlightFeature} finds the flights of its server by
+	 */
+	public static final String CONTEXT_ATTRIBUTE = InFlightRequests.class.getName();
+	
+	private final ConcurrentMap<String, Flight> flights;
+	private final LongAdder                     invocations;
+	private final LongAdder                     coalesced;
+	private final LongAdder                     timeouts;
+	private final LongAdder                     failures;
+	
+	public InFlightRequests() {
+		flights = new ConcurrentHashMap<>();
+		invocations = new LongAdder();
+		coalesced = new LongAdder();
+		timeouts = new LongAdder();
+		failures = new LongAdder();
+	}
+	
+	/**
+	 * @return the flight of the same key, <code>null</code> if the caller leads the new flight
+	 */
+	Flight join(Flight flight) {
+		Flight current = flights.putIfAbsent(flight.key, flight);
+		if(current == null) {
+			invocations.increment();
+		}
+		return current;
+	}
+	
+	/**
+	 * Ends the flight, its waiters get the response, requests arriving afterwards start a new one.
+	 *
+	 * @param response <code>null</code> if the method failed, the waiters invoke it themselves then
+	 */
+	void land(Flight flight, SharedResponse response) {
+		flights.remove(flight.key, flight);
+		flight.response.complete(response);
+	}
+	
+	/**
+	 * @return the response of the flight, <code>null</code> if it failed or timed out, the caller invokes the method
+	 * then
+	 */
+	SharedResponse await(Flight flight, long timeoutNanos) {
+		try {
+			SharedResponse response = flight.response.get(timeoutNanos, TimeUnit.NANOSECONDS);
+			if(response == null) {
+				failures.increment();
+			} else {
+				coalesced.increment();
+			}
+			return response;
+		} catch (TimeoutException e) {
+			timeouts.increment();
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			// never completed exceptionally
+			return null;
+		}
+	}
+	
+	/**
+	 * @return requests which invoked their method, leading a flight
+	 */
+	public long getInvocations() {
+		return invocations.sum();
+	}
+	
+	/**
+	 * @return requests answered with the response of a flight, without invoking the method
+	 */
+	public long getCoalesced() {
+		return coalesced.sum();
+	}
+	
+	/**
+	 * @return waiting requests which gave up and invoked the method themselves
+	 */
+	public long getTimeouts() {
+		return timeouts.sum();
+	}
+	
+	/**
+	 * @return waiting requests which invoked the method themselves, as the flight failed
+	 */
+	public long getFailures() {
+		return failures.sum();
+	}
+	
+	/**
+	 * @return flights currently in the air
+	 */
+	public int getInFlight() {
+		return flights.size();
+	}
+	
+	/**
+	 * @return share of the requests answered without invoking the method
+	 */
+	public double getCoalescingRatio() {
+		long coalesced = getCoalesced();
+		long total     = coalesced + getInvocations() + getTimeouts() + getFailures();
+		return total == 0
+		       ? 0
+		       : (double) coalesced / total;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("[in flight: %d; invocations: %d; coalesced: %d; timeouts: %d; failures: %d; ratio: %.3f]",
+		                     getInFlight(), getInvocations(), getCoalesced(), getTimeouts(), getFailures(), getCoalescingRatio());
+	}
+	
+	static final class Flight {
+		
+		private final String                            key;
+		private final CompletableFuture<SharedResponse> response;
+		
+		Flight(String key) {
+			this.key = key;
+			response = new CompletableFuture<>();
+		}
+	}
+	
+	/**
+	 * Status, headers and serialized body of the leading request, one copy serves all waiters
+	 */
+	static final class SharedResponse {
+		
+		private final int                            status;
+		private final MultivaluedMap<String, Object> headers;
+		private final byte[]                         content;
+		
+		SharedResponse(int status, MultivaluedMap<String, Object> headers, byte[] content) {
+			this.status = status;
+			this.headers = headers;
+			this.content = content;
+		}
+		
+		SharedResponse withContent(byte[] content) {
+			return new SharedResponse(status, headers, content);
+		}
+		
+		MultivaluedMap<String, Object> getHeaders() {
+			return headers;
+		}
+		
+		Response toResponse() {
+			return ResponseCacheFilter.response(status, headers, content);
+		}
+	}
+}
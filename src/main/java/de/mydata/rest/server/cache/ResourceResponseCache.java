@@ -0,0 +1,189 @@
+package de.mydata.rest.server.cache;
+
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of serialized responses of the {@link CachedResponse} resources of a
+ * {@link de.mydata.rest.server.JettyRestServer}. Filled and served by {@link ResponseCacheFilter}.
+ * <p>
+ * Entries expire after the ttl of their resource method. The least recently used entries are evicted when the
+ * bodies exceed the max size.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public final class ResourceResponseCache {
+	
+	/**
+	 * Servlet context attribute {@link ResponseCacheFeature} finds the cache of its server by
+	 */
+	public static final String CONTEXT_ATTRIBUTE = ResourceResponseCache.class.getName();
+	
+	private final long                         maxBytes;
+	private final LinkedHashMap<String, Entry> entries;
+	private final LongAdder                    hits;
+	private final LongAdder                    misses;
+	private final LongAdder                    notModified;
+	private final LongAdder                    evictions;
+	private       long                         bytes;
+	
+	public ResourceResponseCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+		entries = new LinkedHashMap<>(64, 0.75f, true);
+		hits = new LongAdder();
+		misses = new LongAdder();
+		notModified = new LongAdder();
+		evictions = new LongAdder();
+	}
+	
+	/**
+	 * @return the entry, <code>null</code> if there is none or it expired
+	 */
+	synchronized Entry get(String key) {
+		Entry entry = entries.get(key);
+		if(entry != null && entry.expires - System.nanoTime() <= 0) {
+			entries.remove(key);
+			bytes -= entry.weight;
+			return null;
+		}
+		return entry;
+	}
+	
+	void put(String key, Entry entry) {
+		if(entry.weight > maxBytes) {
+			return;
+		}
+		synchronized (this) {
+			Entry previous = entries.put(key, entry);
+			if(previous != null) {
+				bytes -= previous.weight;
+			}
+			bytes += entry.weight;
+			evict();
+		}
+	}
+	
+	void hit() {
+		hits.increment();
+	}
+	
+	void miss() {
+		misses.increment();
+	}
+	
+	/**
+	 * A hit answered with 304, counted as hit too
+	 */
+	void notModified() {
+		hits.increment();
+		notModified.increment();
+	}
+	
+	private void evict() {
+		Iterator<Entry> eldest = entries.values().iterator();
+		while (bytes > maxBytes && eldest.hasNext()) {
+			bytes -= eldest.next().weight;
+			eldest.remove();
+			evictions.increment();
+		}
+	}
+	
+	/**
+	 * Drops the entries of the path, of all queries and media types, e.g. after the resource changed.
+	 *
+	 * @param path the raw request path, e.g. <code>/items/42</code>
+	 */
+	public synchronized void invalidate(String path) {
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (iterator.hasNext()) {
+			Entry entry = iterator.next();
+			if(entry.path.equals(path)) {
+				bytes -= entry.weight;
+				iterator.remove();
+			}
+		}
+	}
+	
+	public synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+	}
+	
+	public long getHits() {
+		return hits.sum();
+	}
+	
+	public long getMisses() {
+		return misses.sum();
+	}
+	
+	/**
+	 * @return hits answered with 304, counted as hits too
+	 */
+	public long getNotModified() {
+		return notModified.sum();
+	}
+	
+	public long getEvictions() {
+		return evictions.sum();
+	}
+	
+	public synchronized int getEntries() {
+		return entries.size();
+	}
+	
+	public synchronized long getBytes() {
+		return bytes;
+	}
+	
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+	
+	public double getHitRatio() {
+		long hits  = getHits();
+		long total = hits + getMisses();
+		return total == 0
+		       ? 0
+		       : (double) hits / total;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("[entries: %d; bytes: %d of %d; hits: %d; misses: %d; not modified: %d; evictions: %d]",
+		                     getEntries(), getBytes(), maxBytes, getHits(), getMisses(), getNotModified(), getEvictions());
+	}
+	
+	static final class Entry {
+		
+		private final String                         path;
+		private final byte[]                         content;
+		private final MultivaluedMap<String, Object> headers;
+		private final String                         etag;
+		private final long                           expires;
+		private final int                            weight;
+		
+		Entry(String key, String path, byte[] content, MultivaluedMap<String, Object> headers, String etag, long ttlNanos) {
+			this.path = path;
+			this.content = content;
+			this.headers = headers;
+			this.etag = etag;
+			this.expires = System.nanoTime() + ttlNanos;
+			this.weight = content.length + (key.length() + path.length()) * 2 + 256;
+		}
+		
+		byte[] getContent() {
+			return content;
+		}
+		
+		MultivaluedMap<String, Object> getHeaders() {
+			return headers;
+		}
+		
+		String getETag() {
+			return etag;
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package de.mydata.rest.server.cache;
+
+import de.mydata.rest.server.file.FileRegion;
+
+import javax.servlet.ServletContext;
+import javax.ws.rs.GET;
+import javax.ws.rs.container.DynamicFeature;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.FeatureContext;
+import java.lang.reflect.Method;
+
+/**
+ * Binds a {@link ResponseCacheFilter} to each <code>GET</code> method annotated with {@link CachedResponse}.
+ * Registered by {@link de.mydata.rest.server.JettyRestServer} when the response cache is enabled, other methods pay
+ * nothing.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public class ResponseCacheFeature implements DynamicFeature {
+	
+	@Context
+	private ServletContext servletContext;
+	
+	@Override
+	public void configure(ResourceInfo resourceInfo, FeatureContext context) {
+		Method method = resourceInfo.getResourceMethod();
+		if(method == null || !isCached(method)) {
+			return;
+		}
+		ResourceResponseCache cache = (ResourceResponseCache) servletContext.getAttribute(ResourceResponseCache.CONTEXT_ATTRIBUTE);
+		if(cache != null) {
+			CachedResponse cached = method.getAnnotation(CachedResponse.class);
+			context.register(new ResponseCacheFilter(cache, cached.unit().toNanos(cached.ttl())), ResponseCacheFilter.PRIORITY);
+		}
+	}
+	
+	/**
+	 * @return whether the responses of the method are cached, if the server enabled the cache; {@link FileRegion} results never are
+	 */
+	public static boolean isCached(Method method) {
+		return method.isAnnotationPresent(CachedResponse.class) && method.isAnnotationPresent(GET.class)
+		       && !FileRegion.class.isAssignableFrom(method.getReturnType());
+	}
+}
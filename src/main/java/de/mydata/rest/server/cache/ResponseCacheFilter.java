@@ -0,0 +1,215 @@
+package de.mydata.rest.server.cache;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Answers requests of one {@link CachedResponse} method from the {@link ResourceResponseCache}, bound to the method
+ * by {@link ResponseCacheFeature}.
+ * <p>
+ * On a miss the method is invoked as usual. The body is serialized into a buffer, which is stored with the headers
+ * the method set and a strong <code>ETag</code> of the body, then written. Only <code>200</code> answers are stored,
+ * none with <code>Set-Cookie</code> or <code>Cache-Control: no-store</code> or <code>private</code>.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+final class ResponseCacheFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+	
+	/**
+	 * Late among the request filters, after authentication, early among the response filters, so the stored headers
+	 * are the ones of the method, not the ones other filters add to every answer, cached or not. Only the admission
+	 * filter and the {@link SingleFlightFilter} are later, hits must neither be limited nor start a flight.
+	 */
+	static final int PRIORITY = Integer.MAX_VALUE - 2;
+	
+	private static final String KEY_PROPERTY     = ResponseCacheFilter.class.getName() + ".key";
+	private static final String HEADERS_PROPERTY = ResponseCacheFilter.class.getName() + ".headers";
+	private static final int    ETAG_BYTES       = 16;
+	
+	private final ResourceResponseCache cache;
+	private final long                  ttlNanos;
+	
+	ResponseCacheFilter(ResourceResponseCache cache, long ttlNanos) {
+		this.cache = cache;
+		this.ttlNanos = ttlNanos;
+	}
+	
+	@Override
+	public void filter(ContainerRequestContext request) {
+		if(!"GET".equals(request.getMethod())) {
+			return;
+		}
+		String                      key   = key(request);
+		ResourceResponseCache.Entry entry = cache.get(key);
+		if(entry == null) {
+			cache.miss();
+			request.setProperty(KEY_PROPERTY, key);
+		} else if(matches(request.getHeaderString(HttpHeaders.IF_NONE_MATCH), entry.getETag())) {
+			cache.notModified();
+			request.abortWith(Response.notModified()
+			                          .header(HttpHeaders.ETAG, entry.getETag())
+			                          .build());
+		} else {
+			cache.hit();
+			request.abortWith(response(Response.Status.OK.getStatusCode(), entry.getHeaders(), entry.getContent()));
+		}
+	}
+	
+	@Override
+	public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+		if(request.getProperty(KEY_PROPERTY) == null) {
+			return;
+		}
+		if(response.getStatus() != Response.Status.OK.getStatusCode() || !response.hasEntity() || !isStorable(response)) {
+			request.removeProperty(KEY_PROPERTY);
+			return;
+		}
+		request.setProperty(HEADERS_PROPERTY, headersOf(response));
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+		String key = (String) context.getProperty(KEY_PROPERTY);
+		if(key == null) {
+			context.proceed();
+			return;
+		}
+		OutputStream          out    = context.getOutputStream();
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+		context.setOutputStream(buffer);
+		context.proceed();
+		byte[] content = buffer.toByteArray();
+		
+		MultivaluedMap<String, Object> headers = (MultivaluedMap<String, Object>) context.getProperty(HEADERS_PROPERTY);
+		// a tag the method set wins, it may be cheaper for clients to compare
+		Object etag = context.getHeaders().getFirst(HttpHeaders.ETAG);
+		if(etag == null) {
+			etag = strongETag(content);
+			context.getHeaders().putSingle(HttpHeaders.ETAG, etag);
+		}
+		headers.putSingle(HttpHeaders.ETAG, etag);
+		headers.putSingle(HttpHeaders.CONTENT_TYPE, context.getMediaType());
+		cache.put(key, new ResourceResponseCache.Entry(key, path(key), content, headers, etag.toString(), ttlNanos));
+		
+		context.setOutputStream(out);
+		out.write(content);
+	}
+	
+	/**
+	 * @return the headers the method set, to be sent again
+	 */
+	static MultivaluedMap<String, Object> headersOf(ContainerResponseContext response) {
+		MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+		for (Map.Entry<String, List<Object>> header : response.getHeaders().entrySet()) {
+			if(!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(header.getKey())) {
+				headers.put(header.getKey(), new ArrayList<>(header.getValue()));
+			}
+		}
+		return headers;
+	}
+	
+	/**
+	 * @param content the serialized body, written as is
+	 */
+	static Response response(int status, MultivaluedMap<String, Object> headers, byte[] content) {
+		// copied, the stored lists must not reach filters adding to the headers
+		Response.ResponseBuilder response = Response.status(status).entity(content);
+		for (Map.Entry<String, List<Object>> header : headers.entrySet()) {
+			for (Object value : header.getValue()) {
+				response.header(header.getKey(), value);
+			}
+		}
+		return response.build();
+	}
+	
+	/**
+	 * @return path, query and accepted media types of the request
+	 */
+	static String key(ContainerRequestContext request) {
+		URI    uri    = request.getUriInfo().getRequestUri();
+		String query  = uri.getRawQuery();
+		String accept = request.getHeaderString(HttpHeaders.ACCEPT);
+		return uri.getRawPath() + (query == null
+		                           ? ""
+		                           : "?" + query) + " " + (accept == null
+		                                                   ? "*/*"
+		                                                   : accept);
+	}
+	
+	private static String path(String key) {
+		int end = key.indexOf('?');
+		return key.substring(0, end < 0
+		                        ? key.indexOf(' ')
+		                        : end);
+	}
+	
+	private static boolean isStorable(ContainerResponseContext response) {
+		if(response.getHeaders().containsKey(HttpHeaders.SET_COOKIE)) {
+			return false;
+		}
+		String cacheControl = response.getHeaderString(HttpHeaders.CACHE_CONTROL);
+		if(cacheControl != null) {
+			for (String directive : cacheControl.split(",")) {
+				String name = directive.trim().toLowerCase(Locale.ROOT);
+				if(name.equals("no-store") || name.startsWith("private")) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Weak comparison, as <code>If-None-Match</code> demands
+	 */
+	static boolean matches(String ifNoneMatch, String etag) {
+		if(ifNoneMatch == null) {
+			return false;
+		}
+		String opaque = opaque(etag);
+		for (String candidate : ifNoneMatch.split(",")) {
+			candidate = candidate.trim();
+			if(candidate.equals("*") || opaque(candidate).equals(opaque)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private static String opaque(String etag) {
+		return etag.startsWith("W/")
+		       ? etag.substring(2)
+		       : etag;
+	}
+	
+	static String strongETag(byte[] content) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+			return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, ETAG_BYTES)) + "\"";
+		} catch (NoSuchAlgorithmException e) {
+			// every java platform has to provide SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package de.mydata.rest.server.cache;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces concurrent identical requests of a <code>GET</code> resource method: while one request with the same
+ * path, query and <code>Accept</code> header invokes the method, the others wait for its response and get a copy of
+ * it, see {@link InFlightRequests}. Nothing is kept once the response is written, combine it with
+ * {@link CachedResponse} to serve it longer.
+ * <p>
+ * Only takes effect if the server enabled it, see
+ * {@link de.mydata.rest.server.JettyRestServer.ServerConfigFactory#enableRequestCoalescing()}. Use it for expensive
+ * methods whose answer depends on the request uri only, not on cookies, sessions or other headers.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SingleFlight {
+	
+	/**
+	 * @return how long a request waits for the response of the request in flight, it invokes the method itself
+	 * afterwards
+	 */
+	long timeout() default 10;
+	
+	TimeUnit unit() default TimeUnit.SECONDS;
+}
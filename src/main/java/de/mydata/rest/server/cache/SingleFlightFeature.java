@@ -0,0 +1,52 @@
+package de.mydata.rest.server.cache;
+
+import de.mydata.rest.server.file.FileRegion;
+import de.mydata.rest.server.metrics.RestMetrics;
+
+import javax.servlet.ServletContext;
+import javax.ws.rs.GET;
+import javax.ws.rs.container.DynamicFeature;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.FeatureContext;
+import java.lang.reflect.Method;
+
+/**
+ * Binds a {@link SingleFlightFilter} to each <code>GET</code> method annotated with {@link SingleFlight}. Registered
+ * by {@link de.mydata.rest.server.JettyRestServer} with {@link SingleFlightListener} when request coalescing is
+ * enabled.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public class SingleFlightFeature implements DynamicFeature {
+	
+	@Context
+	private ServletContext servletContext;
+	
+	@Override
+	public void configure(ResourceInfo resourceInfo, FeatureContext context) {
+		Method method = resourceInfo.getResourceMethod();
+		if(method == null || !isCoalesced(method)) {
+			return;
+		}
+		InFlightRequests flights = (InFlightRequests) servletContext.getAttribute(InFlightRequests.CONTEXT_ATTRIBUTE);
+		if(flights != null) {
+			RestMetrics  metrics      = (RestMetrics) servletContext.getAttribute(RestMetrics.CONTEXT_ATTRIBUTE);
+			SingleFlight singleFlight = method.getAnnotation(SingleFlight.class);
+			context.register(new SingleFlightFilter(flights,
+			                                        metrics == null
+			                                        ? null
+			                                        : metrics.forMethod(method),
+			                                        singleFlight.unit().toNanos(singleFlight.timeout())),
+			                 SingleFlightFilter.PRIORITY);
+		}
+	}
+	
+	/**
+	 * @return whether concurrent requests of the method are coalesced, if the server enabled it; {@link FileRegion} results never are
+	 */
+	public static boolean isCoalesced(Method method) {
+		return method.isAnnotationPresent(SingleFlight.class) && method.isAnnotationPresent(GET.class)
+		       && !FileRegion.class.isAssignableFrom(method.getReturnType());
+	}
+}
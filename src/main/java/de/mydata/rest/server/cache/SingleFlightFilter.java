@@ -0,0 +1,116 @@
+package de.mydata.rest.server.cache;
+
+import de.mydata.rest.server.metrics.ResourceMetrics;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Coalesces the concurrent identical requests of one {@link SingleFlight} method into {@link InFlightRequests}, bound
+ * to the method by {@link SingleFlightFeature}.
+ * <p>
+ * The first request leads the flight and invokes the method. Its body is serialized into a buffer, shared with the
+ * waiting requests, then written. Requests arriving while it is in flight wait for it and are answered with the
+ * shared status, headers and body, without invoking the method.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+final class SingleFlightFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+	
+	/**
+	 * Last of the request filters, after the cache lookup, first of the response filters, see
+	 * {@link ResponseCacheFilter#PRIORITY}
+	 */
+	static final int PRIORITY = Integer.MAX_VALUE;
+	
+	static final String FLIGHT_PROPERTY = SingleFlightFilter.class.getName() + ".flight";
+	
+	private static final String RESPONSE_PROPERTY = SingleFlightFilter.class.getName() + ".response";
+	
+	private final InFlightRequests flights;
+	private final ResourceMetrics  metrics;
+	private final long             timeoutNanos;
+	
+	/**
+	 * @param metrics <code>null</code> if metrics are not enabled
+	 */
+	SingleFlightFilter(InFlightRequests flights, ResourceMetrics metrics, long timeoutNanos) {
+		this.flights = flights;
+		this.metrics = metrics;
+		this.timeoutNanos = timeoutNanos;
+	}
+	
+	@Override
+	public void filter(ContainerRequestContext request) {
+		if(!"GET".equals(request.getMethod())) {
+			return;
+		}
+		InFlightRequests.Flight flight  = new InFlightRequests.Flight(ResponseCacheFilter.key(request));
+		InFlightRequests.Flight current = flights.join(flight);
+		if(current == null) {
+			request.setProperty(FLIGHT_PROPERTY, flight);
+			return;
+		}
+		InFlightRequests.SharedResponse response = flights.await(current, timeoutNanos);
+		if(response != null) {
+			if(metrics != null) {
+				metrics.coalesced();
+			}
+			request.abortWith(response.toResponse());
+		}
+	}
+	
+	@Override
+	public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+		InFlightRequests.Flight flight = (InFlightRequests.Flight) request.getProperty(FLIGHT_PROPERTY);
+		if(flight == null) {
+			return;
+		}
+		InFlightRequests.SharedResponse shared = new InFlightRequests.SharedResponse(response.getStatus(),
+		                                                                             ResponseCacheFilter.headersOf(response),
+		                                                                             null);
+		if(response.hasEntity()) {
+			request.setProperty(RESPONSE_PROPERTY, shared);
+		} else {
+			request.removeProperty(FLIGHT_PROPERTY);
+			flights.land(flight, shared);
+		}
+	}
+	
+	@Override
+	public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+		InFlightRequests.Flight flight = (InFlightRequests.Flight) context.getProperty(FLIGHT_PROPERTY);
+		if(flight == null) {
+			context.proceed();
+			return;
+		}
+		context.removeProperty(FLIGHT_PROPERTY);
+		OutputStream          out    = context.getOutputStream();
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+		context.setOutputStream(buffer);
+		try {
+			context.proceed();
+		} catch (IOException | RuntimeException e) {
+			flights.land(flight, null);
+			throw e;
+		}
+		byte[] content = buffer.toByteArray();
+		
+		InFlightRequests.SharedResponse shared  = ((InFlightRequests.SharedResponse) context.getProperty(RESPONSE_PROPERTY)).withContent(content);
+		MultivaluedMap<String, Object>  headers = shared.getHeaders();
+		headers.putSingle(HttpHeaders.CONTENT_TYPE, context.getMediaType());
+		flights.land(flight, shared);
+		
+		context.setOutputStream(out);
+		out.write(content);
+	}
+}
@@ -0,0 +1,51 @@
+package de.mydata.rest.server.cache;
+
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import javax.servlet.ServletContext;
+import javax.ws.rs.core.Context;
+
+/**
+ * Lands the flights of requests which finished without passing the response filters, e.g. as the method threw an
+ * exception no mapper handles. Their waiters would wait for the whole timeout otherwise.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public class SingleFlightListener implements ApplicationEventListener, RequestEventListener {
+	
+	@Context
+	private ServletContext servletContext;
+	
+	private volatile InFlightRequests flights;
+	
+	@Override
+	public void onEvent(ApplicationEvent event) {
+		if(event.getType() == ApplicationEvent.Type.INITIALIZATION_FINISHED) {
+			flights = (InFlightRequests) servletContext.getAttribute(InFlightRequests.CONTEXT_ATTRIBUTE);
+		}
+	}
+	
+	/**
+	 * @return this, the listener keeps no state per request
+	 */
+	@Override
+	public RequestEventListener onRequest(RequestEvent requestEvent) {
+		return flights == null
+		       ? null
+		       : this;
+	}
+	
+	@Override
+	public void onEvent(RequestEvent event) {
+		if(event.getType() == RequestEvent.Type.FINISHED) {
+			Object flight = event.getContainerRequest().getProperty(SingleFlightFilter.FLIGHT_PROPERTY);
+			if(flight != null) {
+				// the waiters invoke the method themselves
+				flights.land((InFlightRequests.Flight) flight, null);
+			}
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package de.mydata.rest.server.file;
+
+import org.eclipse.jetty.server.HttpOutput;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * An output stream wrapping jetty's {@link HttpOutput}, e.g. to guard it, that hands content on to it unchanged, so
+ * {@link FileRegionWriter} does not have to fall back to copying the region.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public interface ContentOutput {
+	
+	/**
+	 * @see HttpOutput#sendContent(ByteBuffer)
+	 */
+	void sendContent(ByteBuffer content) throws IOException;
+	
+	/**
+	 * @see HttpOutput#sendContent(ReadableByteChannel)
+	 */
+	void sendContent(ReadableByteChannel content) throws IOException;
+}
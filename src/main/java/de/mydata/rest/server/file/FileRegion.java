@@ -0,0 +1,101 @@
+package de.mydata.rest.server.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * A file or a part of it as result of a resource method. {@link FileRegionWriter} hands it to jetty without copying
+ * it through the heap: hot files as memory mapped buffer of the {@link MappedFileCache}, others from the file channel.
+ * <code>GET</code> requests may ask for a byte range of the region, and are answered with 304 if the file was not
+ * modified since the client's copy, see {@link FileRegionFilter}.
+ * <p>
+ * The file must not be truncated while it is served, replace it by moving a new file in place instead. Results of
+ * this type are neither cached nor coalesced, see {@link de.mydata.rest.server.cache.CachedResponse}.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public final class FileRegion {
+	
+	private final Path path;
+	private final long offset;
+	private final long length;
+	private final long fileSize;
+	private final long lastModified;
+	
+	private FileRegion(Path path, long offset, long length, long fileSize, long lastModified) {
+		this.path = path;
+		this.offset = offset;
+		this.length = length;
+		this.fileSize = fileSize;
+		this.lastModified = lastModified;
+	}
+	
+	/**
+	 * @throws NoSuchFileException if there is no regular file
+	 */
+	public static FileRegion of(Path path) throws IOException {
+		BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		if(!attributes.isRegularFile()) {
+			throw new NoSuchFileException(path.toString(), null, "no regular file");
+		}
+		return new FileRegion(path, 0, attributes.size(), attributes.size(), attributes.lastModifiedTime().toMillis());
+	}
+	
+	public static FileRegion of(File file) throws IOException {
+		return of(file.toPath());
+	}
+	
+	/**
+	 * @param offset of the first byte in the file
+	 * @param length count of bytes
+	 */
+	public static FileRegion of(Path path, long offset, long length) throws IOException {
+		return of(path).slice(offset, length);
+	}
+	
+	/**
+	 * @param offset relative to the offset of this region
+	 * @throws IllegalArgumentException if the slice exceeds this region
+	 */
+	public FileRegion slice(long offset, long length) {
+		if(offset < 0 || length < 0 || offset + length > this.length) {
+			throw new IllegalArgumentException(String.format("%d bytes at %d exceed the %d bytes of %s", length, offset, this.length, this));
+		}
+		return new FileRegion(path, this.offset + offset, length, fileSize, lastModified);
+	}
+	
+	public Path getPath() {
+		return path;
+	}
+	
+	public long getOffset() {
+		return offset;
+	}
+	
+	public long getLength() {
+		return length;
+	}
+	
+	/**
+	 * @return size of the whole file when the region was created
+	 */
+	public long getFileSize() {
+		return fileSize;
+	}
+	
+	/**
+	 * @return millis since the epoch
+	 */
+	public long getLastModified() {
+		return lastModified;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("%s[%d-%d]", path, offset, offset + length);
+	}
+}
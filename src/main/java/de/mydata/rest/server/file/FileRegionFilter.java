@@ -0,0 +1,143 @@
+package de.mydata.rest.server.file;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+
+/**
+ * Conditional and range requests of {@link FileRegion} results. A <code>200</code> answer to a <code>GET</code>
+ * request gets <code>Last-Modified</code>, unless the method set it, and <code>Accept-Ranges</code>. It is turned
+ * into
+ * <ul>
+ * <li><code>304</code> if the file was not modified since <code>If-Modified-Since</code></li>
+ * <li><code>206</code> with the requested part of the region for a single <code>Range</code> of bytes, as long as
+ * <code>If-Range</code> is absent or matches the <code>ETag</code> or modification time</li>
+ * <li><code>416</code> if the range starts beyond the region</li>
+ * </ul>
+ * Several ranges in one request are answered with the whole region. Registered by
+ * {@link de.mydata.rest.server.JettyRestServer}.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+@Provider
+public class FileRegionFilter implements ContainerResponseFilter {
+	
+	/**
+	 * Request property with the final status, {@link FileRegionWriter} sends it itself
+	 */
+	static final String STATUS_PROPERTY = FileRegionFilter.class.getName() + ".status";
+	
+	private static final String BYTES         = "bytes";
+	private static final String CONTENT_RANGE = "Content-Range";
+	private static final long[] UNSATISFIABLE = new long[0];
+	
+	@Override
+	public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+		if(!(responseContext.getEntity() instanceof FileRegion)) {
+			return;
+		}
+		if(responseContext.getStatus() == 200 && HttpMethod.GET.equals(requestContext.getMethod())) {
+			negotiate(requestContext, responseContext, (FileRegion) responseContext.getEntity());
+		}
+		requestContext.setProperty(STATUS_PROPERTY, responseContext.getStatus());
+	}
+	
+	private static void negotiate(ContainerRequestContext requestContext, ContainerResponseContext responseContext, FileRegion region) {
+		MultivaluedMap<String, Object> headers = responseContext.getHeaders();
+		headers.putSingle("Accept-Ranges", BYTES);
+		// http dates have seconds
+		Date lastModified = new Date(region.getLastModified() / 1000 * 1000);
+		if(!headers.containsKey(HttpHeaders.LAST_MODIFIED)) {
+			headers.putSingle(HttpHeaders.LAST_MODIFIED, lastModified);
+		}
+		Response.ResponseBuilder notModified = requestContext.getRequest().evaluatePreconditions(lastModified);
+		if(notModified != null) {
+			responseContext.setStatus(notModified.build().getStatus());
+			responseContext.setEntity(null);
+			return;
+		}
+		
+		String range = requestContext.getHeaderString("Range");
+		if(range == null || !matches(requestContext.getHeaderString("If-Range"), headers, lastModified)) {
+			return;
+		}
+		long[] bounds = parseRange(range, region.getLength());
+		if(bounds == UNSATISFIABLE) {
+			responseContext.setStatus(416);
+			headers.putSingle(CONTENT_RANGE, BYTES + " */" + region.getLength());
+			// without entity jersey sends an error page, which drops the header
+			responseContext.setEntity(region.slice(0, 0), responseContext.getEntityAnnotations(), responseContext.getMediaType());
+		} else if(bounds != null) {
+			responseContext.setStatus(206);
+			headers.putSingle(CONTENT_RANGE, BYTES + " " + bounds[0] + "-" + bounds[1] + "/" + region.getLength());
+			responseContext.setEntity(region.slice(bounds[0], bounds[1] - bounds[0] + 1),
+			                          responseContext.getEntityAnnotations(), responseContext.getMediaType());
+		}
+	}
+	
+	/**
+	 * @param ifRange an entity tag or a date
+	 */
+	private static boolean matches(String ifRange, MultivaluedMap<String, Object> headers, Date lastModified) {
+		if(ifRange == null) {
+			return true;
+		}
+		ifRange = ifRange.trim();
+		if(ifRange.startsWith("\"")) {
+			Object etag = headers.getFirst(HttpHeaders.ETAG);
+			return etag != null && ifRange.equals(etag.toString());
+		}
+		try {
+			return ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli() == lastModified.getTime();
+		} catch (DateTimeParseException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * @return the first and last byte, {@link #UNSATISFIABLE} or <code>null</code> to ignore the range
+	 */
+	private static long[] parseRange(String range, long length) {
+		int equals = range.indexOf('=');
+		if(equals < 0 || !BYTES.equalsIgnoreCase(range.substring(0, equals).trim()) || range.indexOf(',') >= 0) {
+			return null;
+		}
+		String spec = range.substring(equals + 1).trim();
+		int    dash = spec.indexOf('-');
+		if(dash < 0) {
+			return null;
+		}
+		try {
+			String first = spec.substring(0, dash).trim();
+			String last  = spec.substring(dash + 1).trim();
+			if(first.isEmpty()) {
+				long suffix = Long.parseLong(last);
+				if(suffix <= 0 || length == 0) {
+					return UNSATISFIABLE;
+				}
+				return new long[]{Math.max(0, length - suffix), length - 1};
+			}
+			long from = Long.parseLong(first);
+			long to   = last.isEmpty()
+			            ? length - 1
+			            : Math.min(Long.parseLong(last), length - 1);
+			if(from < 0 || !last.isEmpty() && Long.parseLong(last) < from) {
+				return null;
+			}
+			return from >= length
+			       ? UNSATISFIABLE
+			       : new long[]{from, to};
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,198 @@
+package de.mydata.rest.server.file;
+
+import de.mydata.log.Log;
+import de.mydata.log.Logger;
+import org.eclipse.jetty.server.HttpOutput;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.RuntimeDelegate;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes {@link FileRegion} results past jersey's entity stream: the status and headers are sent, then the bytes are
+ * handed to jetty as a memory mapped buffer of the {@link MappedFileCache}, or, for files too large to be mapped,
+ * read from the file channel into jetty's pooled direct buffers. Neither way copies the file into the heap. Jersey
+ * finds the response committed and adds nothing. A stream wrapping jetty's, e.g. the one of the resource executor,
+ * does so as {@link ContentOutput}.
+ * <p>
+ * Where the response is no jetty response, e.g. in a batch, the region is copied into the entity stream as usual.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+@Provider
+@Produces(MediaType.WILDCARD)
+public class FileRegionWriter implements MessageBodyWriter<FileRegion> {
+	
+	private static final Logger LOG = Log.getLogger(FileRegionWriter.class);
+	
+	private static final AtomicBoolean WARNED_COPY = new AtomicBoolean();
+	
+	@Context
+	private ServletContext      servletContext;
+	@Context
+	private HttpServletRequest  request;
+	@Context
+	private HttpServletResponse response;
+	
+	@Override
+	public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+		return FileRegion.class.isAssignableFrom(type);
+	}
+	
+	@Override
+	public long getSize(FileRegion region, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+		return region.getLength();
+	}
+	
+	@Override
+	public void writeTo(FileRegion region, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+	                    MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+		ServletOutputStream out = response.getOutputStream();
+		boolean             direct = out instanceof HttpOutput || out instanceof ContentOutput;
+		if(!direct || response.isCommitted()) {
+			if(!direct && WARNED_COPY.compareAndSet(false, true)) {
+				LOG.warn("the response stream %s is no jetty stream, file regions are copied through the heap", out.getClass().getName());
+			}
+			copy(region, entityStream);
+			return;
+		}
+		Object status = request.getAttribute(FileRegionFilter.STATUS_PROPERTY);
+		response.setStatus(status == null
+		                   ? HttpServletResponse.SC_OK
+		                   : (Integer) status);
+		setHeaders(httpHeaders);
+		response.setContentLengthLong(region.getLength());
+		
+		MappedFileCache cache  = (MappedFileCache) servletContext.getAttribute(MappedFileCache.CONTEXT_ATTRIBUTE);
+		ByteBuffer      mapped = cache == null
+		                         ? null
+		                         : cache.get(region);
+		if(mapped != null) {
+			if(out instanceof HttpOutput) {
+				((HttpOutput) out).sendContent(mapped);
+			} else {
+				((ContentOutput) out).sendContent(mapped);
+			}
+			return;
+		}
+		try (FileChannel channel = FileChannel.open(region.getPath(), StandardOpenOption.READ)) {
+			RegionChannel content = new RegionChannel(channel, region.getOffset(), region.getLength());
+			if(out instanceof HttpOutput) {
+				((HttpOutput) out).sendContent(content);
+			} else {
+				((ContentOutput) out).sendContent(content);
+			}
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void setHeaders(MultivaluedMap<String, Object> httpHeaders) {
+		for (Map.Entry<String, List<Object>> header : httpHeaders.entrySet()) {
+			if(HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(header.getKey())) {
+				continue;
+			}
+			boolean first = true;
+			for (Object value : header.getValue()) {
+				String text;
+				if(value instanceof String) {
+					text = (String) value;
+				} else {
+					RuntimeDelegate.HeaderDelegate<Object> delegate = (RuntimeDelegate.HeaderDelegate<Object>) RuntimeDelegate.getInstance().createHeaderDelegate(value.getClass());
+					text = delegate == null
+					       ? value.toString()
+					       : delegate.toString(value);
+				}
+				if(first) {
+					response.setHeader(header.getKey(), text);
+					first = false;
+				} else {
+					response.addHeader(header.getKey(), text);
+				}
+			}
+		}
+	}
+	
+	private static void copy(FileRegion region, OutputStream entityStream) throws IOException {
+		try (FileChannel channel = FileChannel.open(region.getPath(), StandardOpenOption.READ)) {
+			WritableByteChannel target   = Channels.newChannel(entityStream);
+			long                position = region.getOffset();
+			long                end      = position + region.getLength();
+			while (position < end) {
+				long sent = channel.transferTo(position, end - position, target);
+				if(sent <= 0) {
+					throw new IOException("file truncated: " + region);
+				}
+				position += sent;
+			}
+		}
+	}
+	
+	/**
+	 * The bytes of a region, read at their position so the channel is not moved
+	 */
+	private static final class RegionChannel implements ReadableByteChannel {
+		
+		private final FileChannel channel;
+		private final long        end;
+		private       long        position;
+		
+		private RegionChannel(FileChannel channel, long offset, long length) {
+			this.channel = channel;
+			this.position = offset;
+			this.end = offset + length;
+		}
+		
+		@Override
+		public int read(ByteBuffer target) throws IOException {
+			if(position >= end) {
+				return -1;
+			}
+			int limit = target.limit();
+			if(target.remaining() > end - position) {
+				((Buffer) target).limit(target.position() + (int) (end - position));
+			}
+			try {
+				int read = channel.read(target, position);
+				if(read > 0) {
+					position += read;
+				}
+				return read;
+			} finally {
+				((Buffer) target).limit(limit);
+			}
+		}
+		
+		@Override
+		public boolean isOpen() {
+			return channel.isOpen();
+		}
+		
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+}
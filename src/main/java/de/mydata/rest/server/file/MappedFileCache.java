@@ -0,0 +1,158 @@
+package de.mydata.rest.server.file;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Memory mapped buffers of the files served as {@link FileRegion}, so a hot file is mapped once and not for every
+ * request. The pages are held by the page cache of the os, not by the heap, so the limits bound the address space
+ * rather than memory. Files larger than the max file size are not mapped, {@link FileRegionWriter} streams them from
+ * the file channel.
+ * <p>
+ * A mapping is replaced when the size or modification time of its file changed. The least recently used mappings are
+ * dropped beyond the max count of files; the os releases them once they are collected.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public final class MappedFileCache {
+	
+	/**
+	 * Servlet context attribute {@link FileRegionWriter} finds the cache of its server by
+	 */
+	public static final String CONTEXT_ATTRIBUTE = MappedFileCache.class.getName();
+	
+	private final int                          maxFiles;
+	private final long                         maxFileSize;
+	private final LinkedHashMap<Path, Mapping> mappings;
+	private final LongAdder                    hits;
+	private final LongAdder                    misses;
+	private final LongAdder                    evictions;
+	private       long                         bytes;
+	
+	/**
+	 * @param maxFiles    mapped at once
+	 * @param maxFileSize of a mapped file, at most {@link Integer#MAX_VALUE}, 0 to map none
+	 */
+	public MappedFileCache(int maxFiles, long maxFileSize) {
+		this.maxFiles = maxFiles;
+		this.maxFileSize = Math.min(maxFileSize, Integer.MAX_VALUE);
+		mappings = new LinkedHashMap<>(64, 0.75f, true);
+		hits = new LongAdder();
+		misses = new LongAdder();
+		evictions = new LongAdder();
+	}
+	
+	/**
+	 * @return a buffer of the bytes of the region, <code>null</code> if its file is too large to be mapped
+	 */
+	ByteBuffer get(FileRegion region) throws IOException {
+		if(region.getFileSize() > maxFileSize || maxFiles <= 0) {
+			return null;
+		}
+		Mapping mapping;
+		synchronized (this) {
+			mapping = mappings.get(region.getPath());
+		}
+		if(mapping != null && mapping.size == region.getFileSize() && mapping.lastModified == region.getLastModified()) {
+			hits.increment();
+		} else {
+			misses.increment();
+			mapping = map(region);
+			put(region.getPath(), mapping);
+		}
+		ByteBuffer buffer = mapping.buffer.duplicate();
+		// through Buffer, the ByteBuffer overloads of newer jdks do not exist on java 8
+		((Buffer) buffer).limit((int) (region.getOffset() + region.getLength()));
+		((Buffer) buffer).position((int) region.getOffset());
+		return buffer.slice();
+	}
+	
+	private static Mapping map(FileRegion region) throws IOException {
+		try (FileChannel channel = FileChannel.open(region.getPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, region.getFileSize());
+			return new Mapping(buffer, region.getFileSize(), region.getLastModified());
+		}
+	}
+	
+	private synchronized void put(Path path, Mapping mapping) {
+		Mapping previous = mappings.put(path, mapping);
+		if(previous != null) {
+			bytes -= previous.size;
+		}
+		bytes += mapping.size;
+		while (mappings.size() > maxFiles) {
+			Mapping eldest = mappings.remove(mappings.keySet().iterator().next());
+			bytes -= eldest.size;
+			evictions.increment();
+		}
+	}
+	
+	public synchronized void invalidate(Path path) {
+		Mapping mapping = mappings.remove(path);
+		if(mapping != null) {
+			bytes -= mapping.size;
+		}
+	}
+	
+	public synchronized void clear() {
+		mappings.clear();
+		bytes = 0;
+	}
+	
+	public long getHits() {
+		return hits.sum();
+	}
+	
+	public long getMisses() {
+		return misses.sum();
+	}
+	
+	public long getEvictions() {
+		return evictions.sum();
+	}
+	
+	public synchronized int getFiles() {
+		return mappings.size();
+	}
+	
+	/**
+	 * @return size of the mapped files
+	 */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+	
+	public int getMaxFiles() {
+		return maxFiles;
+	}
+	
+	public long getMaxFileSize() {
+		return maxFileSize;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("[files: %d of %d; bytes: %d; hits: %d; misses: %d; evictions: %d]",
+		                     getFiles(), maxFiles, getBytes(), getHits(), getMisses(), getEvictions());
+	}
+	
+	private static final class Mapping {
+		
+		private final ByteBuffer buffer;
+		private final long       size;
+		private final long       lastModified;
+		
+		private Mapping(ByteBuffer buffer, long size, long lastModified) {
+			this.buffer = buffer;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+	}
+}
@@ -0,0 +1,206 @@
+package de.mydata.rest.server.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The {@link de.mydata.rest.server.JettyRestServer.IRestService}s and resource methods written by
+ * {@link RestServiceIndexProcessor} at compile time. Lets the server register its services without scanning the
+ * class path. Every jar on the class path may contain an index, they are merged. Jars and directories without an
+ * index, e.g. compiled without the processor, are not covered, see {@link #getUnindexedRoots(ClassLoader, String)}.
+ * <p>
+ * One entry per line, fields separated by tabs:
+ * <pre>
+ * service  &lt;binary class name&gt;  &lt;@Path of the class&gt;  &lt;deprecated&gt;
+ * resource &lt;binary class name&gt;  &lt;method name&gt;  &lt;@Path of the method&gt;  &lt;binary parameter type names, comma separated&gt;
+ * </pre>
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public final class RestServiceIndex {
+	
+	public static final String INDEX_LOCATION = "META-INF/jettyrest/rest-services.idx";
+	
+	static final String SERVICE  = "service";
+	static final String RESOURCE = "resource";
+	static final String NO_PATH  = "-";
+	
+	private final Map<String, Service> services;
+	private final Set<String>          roots;
+	
+	private RestServiceIndex() {
+		services = new LinkedHashMap<>();
+		roots = new HashSet<>();
+	}
+	
+	/**
+	 * @return the merged index of all jars or <code>null</code> if there is none
+	 */
+	public static RestServiceIndex load(ClassLoader classLoader) {
+		try {
+			Enumeration<URL> locations = classLoader.getResources(INDEX_LOCATION);
+			if(!locations.hasMoreElements()) {
+				return null;
+			}
+			RestServiceIndex index = new RestServiceIndex();
+			while (locations.hasMoreElements()) {
+				URL location = locations.nextElement();
+				index.roots.add(rootOf(location, INDEX_LOCATION));
+				try (BufferedReader reader = new BufferedReader(new InputStreamReader(location.openStream(), StandardCharsets.UTF_8))) {
+					index.read(reader);
+				}
+			}
+			return index;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * @return the jar or directory the resource is in, as url
+	 */
+	private static String rootOf(URL resource, String name) {
+		String url = resource.toExternalForm();
+		return url.endsWith(name)
+		       ? url.substring(0, url.length() - name.length())
+		       : url;
+	}
+	
+	/**
+	 * The jars and directories containing the package without an index of their own, their services are missing in
+	 * the index. Jars without directory entries are not found.
+	 *
+	 * @return urls of the jars and directories, empty if the index covers the package
+	 */
+	public Collection<String> getUnindexedRoots(ClassLoader classLoader, String packageName) {
+		String packagePath = packageName.replace('.', '/') + "/";
+		try {
+			Collection<String> unindexed = new ArrayList<>();
+			Enumeration<URL>   packages  = classLoader.getResources(packagePath);
+			while (packages.hasMoreElements()) {
+				String root = rootOf(packages.nextElement(), packagePath);
+				if(!roots.contains(root)) {
+					unindexed.add(root);
+				}
+			}
+			return unindexed;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	void read(BufferedReader reader) throws IOException {
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if(line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] fields = line.split("\t", -1);
+			if(SERVICE.equals(fields[0])) {
+				services.put(fields[1], new Service(fields[1], NO_PATH.equals(fields[2])
+				                                               ? null
+				                                               : fields[2], Boolean.parseBoolean(fields[3])));
+			} else if(RESOURCE.equals(fields[0])) {
+				Service service = services.get(fields[1]);
+				if(service != null) {
+					service.resources.add(new Resource(fields[2], fields[3], fields[4].isEmpty()
+					                                                        ? new String[0]
+					                                                        : fields[4].split(",")));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return the services of the package and its sub packages, like a class path scan would find them
+	 */
+	public Collection<Service> getServices(String packageName) {
+		String        prefix = packageName + ".";
+		List<Service> found  = new ArrayList<>();
+		for (Service service : services.values()) {
+			if(service.className.startsWith(prefix)) {
+				found.add(service);
+			}
+		}
+		return found;
+	}
+	
+	public static final class Service {
+		
+		private final String         className;
+		private final String         path;
+		private final boolean        deprecated;
+		private final List<Resource> resources;
+		
+		Service(String className, String path, boolean deprecated) {
+			this.className = className;
+			this.path = path;
+			this.deprecated = deprecated;
+			this.resources = new ArrayList<>();
+		}
+		
+		public String getClassName() {
+			return className;
+		}
+		
+		/**
+		 * @return the {@link javax.ws.rs.Path} of the class or <code>null</code> if it has none
+		 */
+		public String getPath() {
+			return path;
+		}
+		
+		public boolean isDeprecated() {
+			return deprecated;
+		}
+		
+		/**
+		 * @return the resource methods having a {@link javax.ws.rs.Path}, a http method and, if they return a value,
+		 * {@link javax.ws.rs.Produces}
+		 */
+		public List<Resource> getResources() {
+			return Collections.unmodifiableList(resources);
+		}
+	}
+	
+	public static final class Resource {
+		
+		private final String   methodName;
+		private final String   path;
+		private final String[] parameterTypes;
+		
+		Resource(String methodName, String path, String[] parameterTypes) {
+			this.methodName = methodName;
+			this.path = path;
+			this.parameterTypes = parameterTypes;
+		}
+		
+		public String getMethodName() {
+			return methodName;
+		}
+		
+		public String getPath() {
+			return path;
+		}
+		
+		/**
+		 * @return binary names as {@link Class#getName()} returns them, e.g. <code>int</code> or <code>[Ljava.lang.String;</code>
+		 */
+		public String[] getParameterTypes() {
+			return parameterTypes.clone();
+		}
+	}
+}
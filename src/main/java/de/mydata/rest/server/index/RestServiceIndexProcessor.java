@@ -0,0 +1,247 @@
+package de.mydata.rest.server.index;
+
+import de.mydata.rest.server.cache.CachedResponse;
+import de.mydata.rest.server.cache.SingleFlight;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.lang.String.format;
+
+/**
+ * Writes the {@link RestServiceIndex} of the compiled {@link de.mydata.rest.server.JettyRestServer.IRestService}s.
+ * Registered as annotation processor of this jar, so it runs whenever a project using the jar is compiled. The checks
+ * the server does on startup when scanning are reported as compiler warnings instead.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+@SupportedAnnotationTypes("*")
+public class RestServiceIndexProcessor extends AbstractProcessor {
+	
+	private static final String REST_SERVICE = "de.mydata.rest.server.JettyRestServer.IRestService";
+	
+	private static final List<Class<? extends Annotation>> GET_ONLY_ANNOTATIONS = Arrays.asList(CachedResponse.class, SingleFlight.class);
+	
+	/**
+	 * Index lines per service class, in order of compilation
+	 */
+	private final Map<String, List<String>> entries = new LinkedHashMap<>();
+	
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+	
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		TypeElement restService = processingEnv.getElementUtils().getTypeElement(REST_SERVICE);
+		if(restService == null) {
+			return false;
+		}
+		TypeMirror restServiceType = processingEnv.getTypeUtils().erasure(restService.asType());
+		
+		if(roundEnv.processingOver()) {
+			writeIndex();
+			return false;
+		}
+		for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+			collect(type, restServiceType);
+		}
+		return false;
+	}
+	
+	private void collect(TypeElement type, TypeMirror restServiceType) {
+		for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+			collect(nested, restServiceType);
+		}
+		if(type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)
+		   || !processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(type.asType()), restServiceType)) {
+			return;
+		}
+		
+		String       className = binaryName(type);
+		Path         path      = type.getAnnotation(Path.class);
+		List<String> lines     = new ArrayList<>();
+		lines.add(String.join("\t", RestServiceIndex.SERVICE, className,
+		                      path == null
+		                      ? RestServiceIndex.NO_PATH
+		                      : path.value(),
+		                      String.valueOf(type.getAnnotation(Deprecated.class) != null)));
+		if(path == null) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, format("Your rest service class '%s' must have a %s-Annotation!",
+			                                                                         type.getQualifiedName(), Path.class.getCanonicalName()), type);
+		}
+		
+		boolean anyPath = false;
+		for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+			Path methodPath = method.getAnnotation(Path.class);
+			if(methodPath == null) {
+				continue;
+			}
+			anyPath = true;
+			if(isResource(type, method)) {
+				List<String> parameterTypes = new ArrayList<>();
+				for (VariableElement parameter : method.getParameters()) {
+					parameterTypes.add(binaryName(processingEnv.getTypeUtils().erasure(parameter.asType())));
+				}
+				lines.add(String.join("\t", RestServiceIndex.RESOURCE, className, method.getSimpleName(), methodPath.value(),
+				                      String.join(",", parameterTypes)));
+			}
+		}
+		if(!anyPath) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, format("Your rest resource does not contain a compatible public method haven a %s-annotation! in %s",
+			                                                                         Path.class.getCanonicalName(), type.getQualifiedName()), type);
+		}
+		entries.put(className, lines);
+	}
+	
+	/**
+	 * The same rules as the scan at server startup
+	 */
+	private boolean isResource(TypeElement type, ExecutableElement method) {
+		boolean resource = true;
+		if(method.getAnnotation(GET.class) == null && method.getAnnotation(PUT.class) == null
+		   && method.getAnnotation(POST.class) == null && method.getAnnotation(DELETE.class) == null) {
+			resource = false;
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, format("Your rest method resource must have at least one of these annotations (GET,PUT,POST or DELETE)! in %s method '%s'",
+			                                                                         type.getQualifiedName(), method.getSimpleName()), method);
+		}
+		for (Class<? extends Annotation> getOnly : GET_ONLY_ANNOTATIONS) {
+			if(method.getAnnotation(getOnly) != null && method.getAnnotation(GET.class) == null) {
+				processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, format("Only GET requests are cached or coalesced, %s is ignored! in %s method '%s'",
+				                                                                         getOnly.getCanonicalName(),
+				                                                                         type.getQualifiedName(), method.getSimpleName()), method);
+			}
+		}
+		if(method.getAnnotation(Produces.class) == null && method.getReturnType().getKind() != TypeKind.VOID) {
+			resource = false;
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, format("Your rest method resource returns a %s value. Your method must have a %s-annotation! in %s method '%s'",
+			                                                                         method.getReturnType(), Produces.class.getCanonicalName(),
+			                                                                         type.getQualifiedName(), method.getSimpleName()), method);
+		}
+		return resource;
+	}
+	
+	/**
+	 * Keeps the entries of classes not compiled this time, e.g. on incremental builds of an ide, as long as the
+	 * classes still exist.
+	 */
+	private void readPreviousIndex(Map<String, List<String>> index) {
+		try {
+			FileObject previous = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", RestServiceIndex.INDEX_LOCATION);
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(previous.openInputStream(), StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					String[] fields = line.split("\t", -1);
+					if(fields.length < 2 || entries.containsKey(fields[1])
+					   || processingEnv.getElementUtils().getTypeElement(fields[1].replace('$', '.')) == null) {
+						continue;
+					}
+					index.computeIfAbsent(fields[1], className -> new ArrayList<>()).add(line);
+				}
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			// no previous index
+		}
+	}
+	
+	private void writeIndex() {
+		Map<String, List<String>> index = new LinkedHashMap<>();
+		readPreviousIndex(index);
+		index.putAll(entries);
+		if(index.isEmpty()) {
+			return;
+		}
+		try {
+			FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", RestServiceIndex.INDEX_LOCATION);
+			try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+				writer.write("# generated by " + getClass().getName() + "\n");
+				for (List<String> lines : index.values()) {
+					for (String line : lines) {
+						writer.write(line);
+						writer.write('\n');
+					}
+				}
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Can not write " + RestServiceIndex.INDEX_LOCATION + ": " + e);
+		}
+	}
+	
+	private String binaryName(TypeElement type) {
+		return processingEnv.getElementUtils().getBinaryName(type).toString();
+	}
+	
+	/**
+	 * @return the name {@link Class#getName()} returns for the type
+	 */
+	private String binaryName(TypeMirror type) {
+		switch (type.getKind()) {
+			case ARRAY:
+				return "[" + descriptor(((ArrayType) type).getComponentType());
+			case DECLARED:
+				return binaryName((TypeElement) ((DeclaredType) type).asElement());
+			default:
+				return type.toString();
+		}
+	}
+	
+	private String descriptor(TypeMirror type) {
+		switch (type.getKind()) {
+			case BOOLEAN:
+				return "Z";
+			case BYTE:
+				return "B";
+			case CHAR:
+				return "C";
+			case SHORT:
+				return "S";
+			case INT:
+				return "I";
+			case LONG:
+				return "J";
+			case FLOAT:
+				return "F";
+			case DOUBLE:
+				return "D";
+			case ARRAY:
+				return "[" + descriptor(((ArrayType) type).getComponentType());
+			default:
+				return "L" + binaryName(processingEnv.getTypeUtils().erasure(type)) + ";";
+		}
+	}
+}
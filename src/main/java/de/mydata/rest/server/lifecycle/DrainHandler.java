@@ -0,0 +1,71 @@
+package de.mydata.rest.server.lifecycle;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpHeaderValue;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.StatisticsHandler;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Outermost handler of a {@link de.mydata.rest.server.JettyRestServer}: counts the requests in flight and carries the
+ * phases of a drain, see {@link de.mydata.rest.server.JettyRestServer#drain()}.
+ * <ol>
+ * <li>ready: requests are served, {@link ReadinessServlet} answers <code>200</code></li>
+ * <li>not ready: still served, the readiness answers <code>503</code> so load balancers stop sending new ones</li>
+ * <li>draining: the connectors accept no connections, responses on open http/1 connections close them, so keep-alive
+ * clients reconnect to another instance instead of sending more; http/2 sessions get a <code>GOAWAY</code> from the
+ * server instead</li>
+ * </ol>
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public class DrainHandler extends StatisticsHandler {
+	
+	private volatile boolean ready;
+	private volatile boolean draining;
+	
+	public DrainHandler() {
+		ready = true;
+		draining = false;
+	}
+	
+	@Override
+	public void handle(String path, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+		if(draining && baseRequest.getHttpVersion() != HttpVersion.HTTP_2) {
+			response.setHeader(HttpHeader.CONNECTION.asString(), HttpHeaderValue.CLOSE.asString());
+		}
+		super.handle(path, baseRequest, request, response);
+	}
+	
+	/**
+	 * @return whether the server is started and not about to stop
+	 */
+	public boolean isReady() {
+		return ready && isRunning();
+	}
+	
+	public void markNotReady() {
+		ready = false;
+	}
+	
+	public boolean isDraining() {
+		return draining;
+	}
+	
+	public void startDraining() {
+		ready = false;
+		draining = true;
+	}
+	
+	/**
+	 * @return requests received and not yet completed, asynchronous ones included
+	 */
+	public int getInFlight() {
+		return getRequestsActive();
+	}
+}
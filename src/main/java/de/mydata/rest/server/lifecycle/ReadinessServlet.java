@@ -0,0 +1,39 @@
+package de.mydata.rest.server.lifecycle;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Answers <code>200 ready</code> while the server takes new requests and <code>503 not ready</code> once it drains,
+ * for the health checks of load balancers and orchestrators.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public class ReadinessServlet extends HttpServlet {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private final transient DrainHandler drain;
+	
+	public ReadinessServlet(DrainHandler drain) {
+		this.drain = drain;
+	}
+	
+	@Override
+	protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+		boolean ready = drain.isReady();
+		byte[] body = (ready
+		               ? "ready"
+		               : "not ready").getBytes(StandardCharsets.UTF_8);
+		resp.setStatus(ready
+		               ? HttpServletResponse.SC_OK
+		               : HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+		resp.setHeader("Cache-Control", "no-store");
+		resp.setContentType("text/plain; charset=utf-8");
+		resp.setContentLength(body.length);
+		resp.getOutputStream().write(body);
+	}
+}
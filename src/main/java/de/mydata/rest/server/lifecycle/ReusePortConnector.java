@@ -0,0 +1,80 @@
+package de.mydata.rest.server.lifecycle;
+
+import de.mydata.log.Log;
+import de.mydata.log.Logger;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+
+/**
+ * Binds its port with <code>SO_REUSEPORT</code>, so a new process binds the same port while the old one still
+ * serves, and the old one drains after the new one is ready. The kernel spreads new connections over both until the
+ * old one closes its socket, see {@link DrainHandler}.
+ * <p>
+ * The option needs java 9 and an operating system supporting it, e.g. linux; the port is bound without it otherwise.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public class ReusePortConnector extends ServerConnector {
+	
+	private static final Logger LOG = Log.getLogger(ReusePortConnector.class);
+	
+	private static final SocketOption<Boolean> SO_REUSEPORT = reusePortOption();
+	
+	public ReusePortConnector(Server server, int acceptors, int selectors, ConnectionFactory... factories) {
+		super(server, null, null, null, acceptors, selectors, factories);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static SocketOption<Boolean> reusePortOption() {
+		try {
+			return (SocketOption<Boolean>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * @return whether the jvm and the operating system support <code>SO_REUSEPORT</code>
+	 */
+	public static boolean isSupported() {
+		if(SO_REUSEPORT == null) {
+			return false;
+		}
+		try (ServerSocketChannel channel = ServerSocketChannel.open()) {
+			return channel.supportedOptions().contains(SO_REUSEPORT);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+	
+	@Override
+	protected ServerSocketChannel openAcceptChannel() throws IOException {
+		if(isInheritChannel()) {
+			return super.openAcceptChannel();
+		}
+		InetSocketAddress bindAddress = getHost() == null
+		                                ? new InetSocketAddress(getPort())
+		                                : new InetSocketAddress(getHost(), getPort());
+		ServerSocketChannel channel = ServerSocketChannel.open();
+		try {
+			channel.socket().setReuseAddress(getReuseAddress());
+			if(SO_REUSEPORT != null && channel.supportedOptions().contains(SO_REUSEPORT)) {
+				channel.setOption(SO_REUSEPORT, true);
+			} else {
+				LOG.warn("SO_REUSEPORT is not supported, port %d is bound exclusively", getPort());
+			}
+			channel.socket().bind(bindAddress, getAcceptQueueSize());
+			return channel;
+		} catch (IOException e) {
+			channel.close();
+			throw new IOException("Failed to bind to " + bindAddress, e);
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package de.mydata.rest.server.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with log-linear buckets like HdrHistogram: every power of two is split into 32 buckets, so a
+ * recorded value is off by at most 1/32 (about 3%) over the whole range of <code>long</code>. Recording is lock free, a
+ * single atomic increment of the bucket plus striped counters for count and sum.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public final class LatencyHistogram {
+	
+	private static final int SUB_BUCKET_BITS  = 6;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int SUB_BUCKET_HALF  = SUB_BUCKET_COUNT >> 1;
+	private static final int BUCKET_COUNT     = bucketIndex(Long.MAX_VALUE) + 1;
+	
+	private final AtomicLongArray buckets;
+	private final LongAdder       count;
+	private final LongAdder       sum;
+	private final AtomicLong      max;
+	
+	public LatencyHistogram() {
+		buckets = new AtomicLongArray(BUCKET_COUNT);
+		count = new LongAdder();
+		sum = new LongAdder();
+		max = new AtomicLong();
+	}
+	
+	static int bucketIndex(long value) {
+		if(value < SUB_BUCKET_COUNT) {
+			return (int) Math.max(0, value);
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+		return exponent * SUB_BUCKET_HALF + (int) (value >>> exponent);
+	}
+	
+	/**
+	 * @return the highest value recorded into the bucket
+	 */
+	static long highestValue(int index) {
+		if(index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int  exponent = index / SUB_BUCKET_HALF - 1;
+		long mantissa = index % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+		return ((mantissa + 1) << exponent) - 1;
+	}
+	
+	/**
+	 * @param nanos negative values are recorded as 0
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		buckets.incrementAndGet(bucketIndex(value));
+		count.increment();
+		sum.add(value);
+		long current = max.get();
+		while (value > current && !max.compareAndSet(current, value)) {
+			current = max.get();
+		}
+	}
+	
+	public long getCount() {
+		return count.sum();
+	}
+	
+	public long getSumNanos() {
+		return sum.sum();
+	}
+	
+	public long getMaxNanos() {
+		return max.get();
+	}
+	
+	/**
+	 * @param quantile 0.0 to 1.0, e.g. 0.99
+	 * @return the value the given part of the recorded values is lower or equal to, 0 if nothing was recorded
+	 */
+	public long getValueAtQuantile(double quantile) {
+		long[] counts = new long[BUCKET_COUNT];
+		long   total  = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		if(total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(Math.min(1.0, Math.max(0.0, quantile)) * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts[i];
+			if(seen >= rank) {
+				return Math.min(highestValue(i), max.get());
+			}
+		}
+		return max.get();
+	}
+	
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			buckets.set(i, 0);
+		}
+		count.reset();
+		sum.reset();
+		max.set(0);
+	}
+}
@@ -0,0 +1,141 @@
+package de.mydata.rest.server.metrics;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Path;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of one resource method. All of them are striped or atomic, recording takes no lock.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public final class ResourceMetrics {
+	
+	private final String           resource;
+	private final String           httpMethod;
+	private final String           path;
+	private final LongAdder        requests;
+	private final LongAdder        inFlight;
+	private final LongAdder        errors;
+	private final LongAdder        coalesced;
+	private final LongAdder        shed;
+	private final LatencyHistogram latency;
+	
+	ResourceMetrics(Method method) {
+		resource = method.getDeclaringClass().getName() + "#" + method.getName();
+		httpMethod = httpMethodOf(method);
+		path = joinPath(method.getDeclaringClass().getAnnotation(Path.class), method.getAnnotation(Path.class));
+		requests = new LongAdder();
+		inFlight = new LongAdder();
+		errors = new LongAdder();
+		coalesced = new LongAdder();
+		shed = new LongAdder();
+		latency = new LatencyHistogram();
+	}
+	
+	private static String httpMethodOf(Method method) {
+		for (Annotation annotation : method.getAnnotations()) {
+			HttpMethod httpMethod = annotation.annotationType().getAnnotation(HttpMethod.class);
+			if(httpMethod != null) {
+				return httpMethod.value();
+			}
+		}
+		return "";
+	}
+	
+	private static String joinPath(Path servicePath, Path methodPath) {
+		String path = (servicePath == null
+		               ? ""
+		               : "/" + servicePath.value()) + (methodPath == null
+		                                               ? ""
+		                                               : "/" + methodPath.value());
+		path = path.replaceAll("/+", "/");
+		return path.length() > 1 && path.endsWith("/")
+		       ? path.substring(0, path.length() - 1)
+		       : path;
+	}
+	
+	void started() {
+		inFlight.increment();
+	}
+	
+	/**
+	 * @param failed the method threw or the response status is 5xx
+	 */
+	void finished(long nanos, boolean failed) {
+		inFlight.decrement();
+		requests.increment();
+		if(failed) {
+			errors.increment();
+		}
+		latency.record(nanos);
+	}
+	
+	/**
+	 * A request was answered with the response of a concurrent identical one, without invoking the method, see
+	 * {@link de.mydata.rest.server.cache.SingleFlight}. It is counted as request too.
+	 */
+	public void coalesced() {
+		coalesced.increment();
+	}
+	
+	/**
+	 * A request was refused by the admission limits of the method, without invoking it, see
+	 * {@link de.mydata.rest.server.admission.AdmissionLimit}. It is counted as request too.
+	 */
+	public void shed() {
+		shed.increment();
+	}
+	
+	void reset() {
+		requests.reset();
+		errors.reset();
+		coalesced.reset();
+		shed.reset();
+		latency.reset();
+	}
+	
+	/**
+	 * @return declaring class and method, e.g. <code>de.mydata.Service#find</code>
+	 */
+	public String getResource() {
+		return resource;
+	}
+	
+	public String getHttpMethod() {
+		return httpMethod;
+	}
+	
+	/**
+	 * @return path template of the service and the method, e.g. <code>/items/{id}</code>
+	 */
+	public String getPath() {
+		return path;
+	}
+	
+	public long getRequests() {
+		return requests.sum();
+	}
+	
+	public long getInFlight() {
+		return inFlight.sum();
+	}
+	
+	public long getErrors() {
+		return errors.sum();
+	}
+	
+	public long getCoalesced() {
+		return coalesced.sum();
+	}
+	
+	public long getShed() {
+		return shed.sum();
+	}
+	
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+}
@@ -0,0 +1,106 @@
+package de.mydata.rest.server.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Snapshot of {@link ResourceMetrics} for JMX, latencies in milliseconds.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public final class ResourceStats {
+	
+	private final String resource;
+	private final String httpMethod;
+	private final String path;
+	private final long   requests;
+	private final long   inFlight;
+	private final long   errors;
+	private final long   coalesced;
+	private final long   shed;
+	private final double meanMillis;
+	private final double p50Millis;
+	private final double p99Millis;
+	private final double maxMillis;
+	
+	@ConstructorProperties({"resource", "httpMethod", "path", "requests", "inFlight", "errors", "coalesced", "shed", "meanMillis", "p50Millis", "p99Millis", "maxMillis"})
+	public ResourceStats(String resource, String httpMethod, String path, long requests, long inFlight, long errors, long coalesced, long shed,
+	                     double meanMillis, double p50Millis, double p99Millis, double maxMillis) {
+		this.resource = resource;
+		this.httpMethod = httpMethod;
+		this.path = path;
+		this.requests = requests;
+		this.inFlight = inFlight;
+		this.errors = errors;
+		this.coalesced = coalesced;
+		this.shed = shed;
+		this.meanMillis = meanMillis;
+		this.p50Millis = p50Millis;
+		this.p99Millis = p99Millis;
+		this.maxMillis = maxMillis;
+	}
+	
+	static ResourceStats of(ResourceMetrics metrics) {
+		LatencyHistogram latency = metrics.getLatency();
+		long             count   = latency.getCount();
+		return new ResourceStats(metrics.getResource(), metrics.getHttpMethod(), metrics.getPath(),
+		                         metrics.getRequests(), metrics.getInFlight(), metrics.getErrors(), metrics.getCoalesced(), metrics.getShed(),
+		                         count == 0
+		                         ? 0
+		                         : millis(latency.getSumNanos() / count),
+		                         millis(latency.getValueAtQuantile(0.5)),
+		                         millis(latency.getValueAtQuantile(0.99)),
+		                         millis(latency.getMaxNanos()));
+	}
+	
+	private static double millis(long nanos) {
+		return nanos / 1e6;
+	}
+	
+	public String getResource() {
+		return resource;
+	}
+	
+	public String getHttpMethod() {
+		return httpMethod;
+	}
+	
+	public String getPath() {
+		return path;
+	}
+	
+	public long getRequests() {
+		return requests;
+	}
+	
+	public long getInFlight() {
+		return inFlight;
+	}
+	
+	public long getErrors() {
+		return errors;
+	}
+	
+	public long getCoalesced() {
+		return coalesced;
+	}
+	
+	public long getShed() {
+		return shed;
+	}
+	
+	public double getMeanMillis() {
+		return meanMillis;
+	}
+	
+	public double getP50Millis() {
+		return p50Millis;
+	}
+	
+	public double getP99Millis() {
+		return p99Millis;
+	}
+	
+	public double getMaxMillis() {
+		return maxMillis;
+	}
+}
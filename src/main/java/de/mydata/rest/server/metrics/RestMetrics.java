@@ -0,0 +1,210 @@
+package de.mydata.rest.server.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.lang.String.format;
+
+/**
+ * Request counts, in flight requests, errors and latencies per resource method of a
+ * {@link de.mydata.rest.server.JettyRestServer}. Recorded by {@link RestMetricsListener}, served by
+ * {@link RestMetricsServlet} in the prometheus text format and by JMX.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public final class RestMetrics implements RestMetricsMXBean {
+	
+	/**
+	 * Servlet context attribute {@link RestMetricsListener} finds the metrics of its server by
+	 */
+	public static final String CONTEXT_ATTRIBUTE = RestMetrics.class.getName();
+	
+	private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+	
+	private final ConcurrentMap<Method, ResourceMetrics> resources;
+	
+	public RestMetrics() {
+		resources = new ConcurrentHashMap<>();
+	}
+	
+	/**
+	 * Creates the metrics of the resources up front, so they are scraped before the first request.
+	 */
+	public void register(Collection<Map.Entry<String, Method>> resourcesFound) {
+		for (Map.Entry<String, Method> resource : resourcesFound) {
+			forMethod(resource.getValue());
+		}
+	}
+	
+	public ResourceMetrics forMethod(Method method) {
+		ResourceMetrics metrics = resources.get(method);
+		if(metrics == null) {
+			metrics = resources.computeIfAbsent(method, ResourceMetrics::new);
+		}
+		return metrics;
+	}
+	
+	/**
+	 * @return ordered by path and http method
+	 */
+	public List<ResourceMetrics> getResourceMetrics() {
+		List<ResourceMetrics> metrics = new ArrayList<>(resources.values());
+		metrics.sort(Comparator.comparing(ResourceMetrics::getPath).thenComparing(ResourceMetrics::getHttpMethod)
+		                       .thenComparing(ResourceMetrics::getResource));
+		return metrics;
+	}
+	
+	@Override
+	public long getRequests() {
+		long requests = 0;
+		for (ResourceMetrics metrics : resources.values()) {
+			requests += metrics.getRequests();
+		}
+		return requests;
+	}
+	
+	@Override
+	public long getInFlight() {
+		long inFlight = 0;
+		for (ResourceMetrics metrics : resources.values()) {
+			inFlight += metrics.getInFlight();
+		}
+		return inFlight;
+	}
+	
+	@Override
+	public long getErrors() {
+		long errors = 0;
+		for (ResourceMetrics metrics : resources.values()) {
+			errors += metrics.getErrors();
+		}
+		return errors;
+	}
+	
+	@Override
+	public List<ResourceStats> getResources() {
+		List<ResourceStats> stats = new ArrayList<>();
+		for (ResourceMetrics metrics : getResourceMetrics()) {
+			stats.add(ResourceStats.of(metrics));
+		}
+		return stats;
+	}
+	
+	/**
+	 * Resets counts and latencies, in flight requests are kept.
+	 */
+	@Override
+	public void reset() {
+		for (ResourceMetrics metrics : resources.values()) {
+			metrics.reset();
+		}
+	}
+	
+	@Override
+	public String scrape() {
+		List<ResourceMetrics> all  = getResourceMetrics();
+		StringBuilder         text = new StringBuilder(256 + all.size() * 1024);
+		
+		header(text, "rest_requests_total", "counter", "Requests handled per resource method");
+		for (ResourceMetrics metrics : all) {
+			sample(text, "rest_requests_total", metrics, null, metrics.getRequests());
+		}
+		header(text, "rest_requests_in_flight", "gauge", "Requests currently handled per resource method");
+		for (ResourceMetrics metrics : all) {
+			sample(text, "rest_requests_in_flight", metrics, null, metrics.getInFlight());
+		}
+		header(text, "rest_request_errors_total", "counter", "Requests failed with an exception or a 5xx status");
+		for (ResourceMetrics metrics : all) {
+			sample(text, "rest_request_errors_total", metrics, null, metrics.getErrors());
+		}
+		header(text, "rest_requests_coalesced_total", "counter", "Requests answered with the response of a concurrent identical request");
+		for (ResourceMetrics metrics : all) {
+			sample(text, "rest_requests_coalesced_total", metrics, null, metrics.getCoalesced());
+		}
+		header(text, "rest_requests_shed_total", "counter", "Requests refused by the admission limits, the others were admitted");
+		for (ResourceMetrics metrics : all) {
+			sample(text, "rest_requests_shed_total", metrics, null, metrics.getShed());
+		}
+		header(text, "rest_request_duration_seconds", "summary", "Time from receiving the request until the response was written");
+		for (ResourceMetrics metrics : all) {
+			LatencyHistogram latency = metrics.getLatency();
+			for (double quantile : QUANTILES) {
+				sample(text, "rest_request_duration_seconds", metrics, quantile, seconds(latency.getValueAtQuantile(quantile)));
+			}
+			sample(text, "rest_request_duration_seconds_sum", metrics, null, seconds(latency.getSumNanos()));
+			sample(text, "rest_request_duration_seconds_count", metrics, null, latency.getCount());
+		}
+		header(text, "rest_request_duration_seconds_max", "gauge", "Longest request per resource method");
+		for (ResourceMetrics metrics : all) {
+			sample(text, "rest_request_duration_seconds_max", metrics, null, seconds(metrics.getLatency().getMaxNanos()));
+		}
+		return text.toString();
+	}
+	
+	private static void header(StringBuilder text, String name, String type, String help) {
+		text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+	
+	private static void sample(StringBuilder text, String name, ResourceMetrics metrics, Double quantile, Object value) {
+		text.append(name)
+		    .append("{resource=\"").append(escape(metrics.getResource()))
+		    .append("\",method=\"").append(metrics.getHttpMethod())
+		    .append("\",path=\"").append(escape(metrics.getPath())).append('"');
+		if(quantile != null) {
+			text.append(",quantile=\"").append(quantile).append('"');
+		}
+		text.append("} ").append(value).append('\n');
+	}
+	
+	private static String escape(String label) {
+		return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+	
+	private static String seconds(long nanos) {
+		return format(Locale.ROOT, "%.9f", nanos / 1e9);
+	}
+	
+	public ObjectName registerMBean(int port) {
+		try {
+			ObjectName  name   = objectName(port);
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			try {
+				server.registerMBean(this, name);
+			} catch (InstanceAlreadyExistsException e) {
+				// a server stopped without unregistering, e.g. killed in a test
+				server.unregisterMBean(name);
+				server.registerMBean(this, name);
+			}
+			return name;
+		} catch (JMException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	public void unregisterMBean(int port) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName(port));
+		} catch (InstanceNotFoundException ignored) {
+		} catch (JMException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private static ObjectName objectName(int port) throws JMException {
+		return new ObjectName("de.mydata.rest:type=RestMetrics,port=" + port);
+	}
+}
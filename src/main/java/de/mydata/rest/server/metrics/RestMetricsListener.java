@@ -0,0 +1,76 @@
+package de.mydata.rest.server.metrics;
+
+import org.glassfish.jersey.server.ContainerResponse;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import javax.servlet.ServletContext;
+import javax.ws.rs.core.Context;
+
+/**
+ * Records the requests of the jersey application into the {@link RestMetrics} of the server. Registered by
+ * {@link de.mydata.rest.server.JettyRestServer} when metrics are enabled. Jersey calls it for unmatched and failing
+ * requests too, even if the exception is not mapped to a response.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public class RestMetricsListener implements ApplicationEventListener {
+	
+	@Context
+	private ServletContext servletContext;
+	
+	private volatile RestMetrics metrics;
+	
+	@Override
+	public void onEvent(ApplicationEvent event) {
+		if(event.getType() == ApplicationEvent.Type.INITIALIZATION_FINISHED) {
+			metrics = (RestMetrics) servletContext.getAttribute(RestMetrics.CONTEXT_ATTRIBUTE);
+		}
+	}
+	
+	@Override
+	public RequestEventListener onRequest(RequestEvent requestEvent) {
+		RestMetrics metrics = this.metrics;
+		return metrics == null
+		       ? null
+		       : new RequestListener(metrics, System.nanoTime());
+	}
+	
+	private static final class RequestListener implements RequestEventListener {
+		
+		private final RestMetrics     metrics;
+		private final long            start;
+		private       ResourceMetrics resource;
+		
+		private RequestListener(RestMetrics metrics, long start) {
+			this.metrics = metrics;
+			this.start = start;
+		}
+		
+		@Override
+		public void onEvent(RequestEvent event) {
+			switch (event.getType()) {
+				// before the request filters, requests answered by them, e.g. from the cache, are counted too
+				case REQUEST_MATCHED:
+					ResourceMethod method = event.getUriInfo().getMatchedResourceMethod();
+					if(method != null && method.getInvocable() != null) {
+						resource = metrics.forMethod(method.getInvocable().getDefinitionMethod());
+						resource.started();
+					}
+					break;
+				case FINISHED:
+					if(resource != null) {
+						ContainerResponse response = event.getContainerResponse();
+						boolean           failed   = !event.isSuccess() || response == null || response.getStatus() >= 500;
+						resource.finished(System.nanoTime() - start, failed);
+					}
+					break;
+				default:
+					break;
+			}
+		}
+	}
+}
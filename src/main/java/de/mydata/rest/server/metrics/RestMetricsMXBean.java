@@ -0,0 +1,26 @@
+package de.mydata.rest.server.metrics;
+
+import java.util.List;
+
+/**
+ * JMX view of {@link RestMetrics}, registered as <code>de.mydata.rest:type=RestMetrics,port=&lt;port&gt;</code>.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public interface RestMetricsMXBean {
+	
+	long getRequests();
+	
+	long getInFlight();
+	
+	long getErrors();
+	
+	List<ResourceStats> getResources();
+	
+	/**
+	 * @return the text the scrape endpoint serves
+	 */
+	String scrape();
+	
+	void reset();
+}
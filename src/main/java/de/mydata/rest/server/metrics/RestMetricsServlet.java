@@ -0,0 +1,34 @@
+package de.mydata.rest.server.metrics;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves {@link RestMetrics#scrape()} in the prometheus text format.
+ *
+ * @author Bjoern Frohberg, MyData GmbH
+ */
+public class RestMetricsServlet extends HttpServlet {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+	
+	private final transient RestMetrics metrics;
+	
+	public RestMetricsServlet(RestMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	@Override
+	protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+		byte[] body = metrics.scrape().getBytes(StandardCharsets.UTF_8);
+		resp.setStatus(HttpServletResponse.SC_OK);
+		resp.setContentType(CONTENT_TYPE);
+		resp.setContentLength(body.length);
+		resp.getOutputStream().write(body);
+	}
+}